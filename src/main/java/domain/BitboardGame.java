@@ -0,0 +1,466 @@
+package domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import static domain.Bitboards.*;
+import static domain.ChessBoard.*;
+
+// an alternative to ChessGame that keeps a bit set per piece, for analysis that has to play through many positions quickly
+// it follows the same rules as ChessGame, but only ever generates the moves of the side to move
+public class BitboardGame {
+
+    private final long[] pieceBits = new long[(BLACK_KING + 1) * 2]; // pieceBits[piece * 2 + word]
+    private final long[] sideBits = new long[4]; // white in the first two words, black in the last two
+    private final byte[] squares = new byte[BITS]; // the piece on each bit, so captures can be looked up
+    private Turn turn;
+
+    // scratch sets filled by the generation methods, so nothing is allocated per move
+    private final long[] targets = new long[2];
+    private final long[] rays = new long[2];
+    private final MoveList scratchMoves = new MoveList();
+    // the pinned pieces found by findLegalMoves, and the ray from the king each one must stay on
+    private final int[] pinBits = new int[QUEEN_SHIFTS.length];
+    private final long[] pinRays = new long[QUEEN_SHIFTS.length * 2];
+    private int pinCount = 0;
+
+    @Data
+    @AllArgsConstructor
+    public static class Undo {
+        int from;
+        int to;
+        byte moved;
+        byte captured;
+    }
+
+    public BitboardGame(ChessBoard board) {
+        turn = board.turn();
+        for (int cell = 0; cell < Hexagon.CELLS; cell++) {
+            var piece = board.getPiece(cell);
+            if (piece != EMPTY) {
+                var bit = CELL_TO_BIT[cell];
+                squares[bit] = piece;
+                toggle(bit, piece);
+            }
+        }
+    }
+
+    public static BitboardGame start() {
+        return new BitboardGame(ChessBoard.initial());
+    }
+
+    public ChessBoard toBoard() {
+        var board = new ChessBoard(turn);
+        for (int cell = 0; cell < Hexagon.CELLS; cell++) {
+            board.setPiece(cell, getPiece(cell));
+        }
+        return board;
+    }
+
+    public Turn turn() {
+        return turn;
+    }
+
+    public byte getPiece(int cell) {
+        return squares[CELL_TO_BIT[cell]];
+    }
+
+    // places a piece directly rather than moving it, for building positions that don't come from a game
+    void setPiece(int cell, byte piece) {
+        var bit = CELL_TO_BIT[cell];
+        if (squares[bit] != EMPTY) {
+            toggle(bit, squares[bit]);
+        }
+        if (piece != EMPTY) {
+            toggle(bit, piece);
+        }
+        squares[bit] = piece;
+    }
+
+    // the set of cells holding the piece, bits 0-63 in word zero and bits 64-120 in word one
+    long pieceBits(byte piece, int word) {
+        return pieceBits[piece * 2 + word];
+    }
+
+    void setTurn(Turn turn) {
+        this.turn = turn;
+    }
+
+    public Undo makeMove(Move move) {
+        return makeMove(move.getFrom().index(), move.getTo().index());
+    }
+
+    public Undo makeMove(int from, int to) {
+        var fromBit = CELL_TO_BIT[from];
+        var toBit = CELL_TO_BIT[to];
+        var piece = squares[fromBit];
+        var captured = squares[toBit];
+
+        if (captured != EMPTY) {
+            toggle(toBit, captured);
+        }
+        toggle(fromBit, piece);
+        toggle(toBit, piece);
+        squares[fromBit] = EMPTY;
+        squares[toBit] = piece;
+        turn = turn.opposite();
+        return new Undo(from, to, piece, captured);
+    }
+
+    // moves must be unmade in the reverse order they were made
+    public void unmakeMove(Undo undo) {
+        var fromBit = CELL_TO_BIT[undo.from];
+        var toBit = CELL_TO_BIT[undo.to];
+
+        toggle(toBit, undo.moved);
+        toggle(fromBit, undo.moved);
+        if (undo.captured != EMPTY) {
+            toggle(toBit, undo.captured);
+        }
+        squares[fromBit] = undo.moved;
+        squares[toBit] = undo.captured;
+        turn = turn.opposite();
+    }
+
+    public boolean isValidMove(Move move) {
+        var from = move.getFrom().index();
+        var to = move.getTo().index();
+        if (from < 0 || to < 0) {
+            return false;
+        }
+        return isValidMove(from, to);
+    }
+
+    public boolean isValidMove(int from, int to) {
+        var fromBit = CELL_TO_BIT[from];
+        var toBit = CELL_TO_BIT[to];
+        var piece = squares[fromBit];
+        if (piece == EMPTY || !isPieceTurn(piece, turn)) {
+            return false;
+        }
+        findTargets(fromBit, piece);
+        return isSet(targets[0], targets[1], toBit) && leavesKingSafe(fromBit, toBit, piece, findKingBit(turn));
+    }
+
+    public boolean isCheck() {
+        return isAttacked(findKingBit(turn), turn.opposite());
+    }
+
+    public boolean isCheckmate() {
+        findLegalMoves(scratchMoves);
+        return scratchMoves.isEmpty() && isCheck();
+    }
+
+    // finds all pieces moves excluding the king moves, the same moves as ChessGame.findPieceMoves
+    public MoveList findPieceMoves(Turn turn) {
+        var moves = new MoveList();
+        findPieceMoves(turn, moves);
+        return moves;
+    }
+
+    public void findPieceMoves(Turn turn, MoveList moves) {
+        moves.clear();
+        for (var piece = turn.isWhite() ? WHITE_PAWN : BLACK_PAWN; piece < WHITE_KING; piece += 2) {
+            for (int word = 0; word < 2; word++) {
+                for (var bits = pieceBits[piece * 2 + word]; bits != 0; bits &= bits - 1) {
+                    var bit = word * 64 + Long.numberOfTrailingZeros(bits);
+                    moves.addSource(BIT_TO_CELL[bit]);
+                    findTargets(bit, piece);
+                    addTargets(bit, moves);
+                }
+            }
+        }
+    }
+
+    // finds the legal moves of the side to move, the same moves ChessGame.initPieceMoves keeps for it
+    public void findLegalMoves(MoveList moves) {
+        moves.clear();
+        var own = turn.isWhite() ? 0 : 2;
+        var enemy = 2 - own;
+        var kingBit = findKingBit(turn);
+        var kingLo = lowBit(kingBit);
+        var kingHi = highBit(kingBit);
+        var occupiedLo = sideBits[0] | sideBits[2];
+        var occupiedHi = sideBits[1] | sideBits[3];
+
+        // walk each ray out from the king once: an enemy slider first is a check, and one of ours in front of it is pinned
+        var blockLo = -1L;
+        var blockHi = -1L;
+        var checkers = 0;
+        pinCount = 0;
+        var rook = (turn.isWhite() ? BLACK_ROOK : WHITE_ROOK) * 2;
+        var bishop = (turn.isWhite() ? BLACK_BISHOP : WHITE_BISHOP) * 2;
+        var queen = (turn.isWhite() ? BLACK_QUEEN : WHITE_QUEEN) * 2;
+        for (int r = 0; r < QUEEN_SHIFTS.length; r++) {
+            var shift = QUEEN_SHIFTS[r];
+            var slider = r < ROOK_SHIFTS.length ? rook : bishop;
+            var slidersLo = pieceBits[slider] | pieceBits[queen];
+            var slidersHi = pieceBits[slider + 1] | pieceBits[queen + 1];
+
+            rays[0] = 0;
+            rays[1] = 0;
+            slide(shift, kingLo, kingHi, occupiedLo, occupiedHi, rays);
+            if ((rays[0] & slidersLo | rays[1] & slidersHi) != 0) {
+                checkers++;
+                blockLo = rays[0];
+                blockHi = rays[1];
+                continue;
+            }
+            var blockerLo = rays[0] & sideBits[own];
+            var blockerHi = rays[1] & sideBits[own + 1];
+            if ((blockerLo | blockerHi) == 0) {
+                continue;
+            }
+            slide(shift, kingLo, kingHi, occupiedLo & ~blockerLo, occupiedHi & ~blockerHi, rays);
+            if ((rays[0] & slidersLo | rays[1] & slidersHi) != 0) {
+                pinBits[pinCount] = blockerLo != 0 ? Long.numberOfTrailingZeros(blockerLo) : 64 + Long.numberOfTrailingZeros(blockerHi);
+                pinRays[pinCount * 2] = rays[0];
+                pinRays[pinCount * 2 + 1] = rays[1];
+                pinCount++;
+            }
+        }
+
+        // knights and pawns can't be blocked, so the only answer to them is to take them or move the king
+        var knight = (turn.isWhite() ? BLACK_KNIGHT : WHITE_KNIGHT) * 2;
+        var knightLo = KNIGHT_TARGETS[kingBit * 2] & pieceBits[knight];
+        var knightHi = KNIGHT_TARGETS[kingBit * 2 + 1] & pieceBits[knight + 1];
+        var pawn = (turn.isWhite() ? BLACK_PAWN : WHITE_PAWN) * 2;
+        var pawnLo = 0L;
+        var pawnHi = 0L;
+        for (var take : turn.isWhite() ? WHITE_TAKES : BLACK_TAKES) {
+            pawnLo |= take.lo(kingLo, kingHi) & pieceBits[pawn];
+            pawnHi |= take.hi(kingLo, kingHi) & pieceBits[pawn + 1];
+        }
+        var jumpers = Long.bitCount(knightLo | pawnLo) + Long.bitCount(knightHi | pawnHi);
+        if (jumpers > 0) {
+            checkers += jumpers;
+            blockLo = knightLo | pawnLo;
+            blockHi = knightHi | pawnHi;
+        }
+        if (checkers > 1) {
+            // in double check only the king can move
+            blockLo = 0;
+            blockHi = 0;
+        }
+
+        // the king can't step onto anything the enemy attacks, looking through the king so it can't back away along a ray
+        findAttacks(enemy, occupiedLo & ~kingLo, occupiedHi & ~kingHi, rays);
+        var attackedLo = rays[0];
+        var attackedHi = rays[1];
+
+        for (var piece = turn.isWhite() ? WHITE_PAWN : BLACK_PAWN; piece <= BLACK_KING; piece += 2) {
+            for (int word = 0; word < 2; word++) {
+                for (var bits = pieceBits[piece * 2 + word]; bits != 0; bits &= bits - 1) {
+                    var bit = word * 64 + Long.numberOfTrailingZeros(bits);
+                    moves.addSource(BIT_TO_CELL[bit]);
+                    findTargets(bit, piece);
+                    if (isKing(piece)) {
+                        targets[0] &= ~attackedLo;
+                        targets[1] &= ~attackedHi;
+                    } else {
+                        targets[0] &= blockLo;
+                        targets[1] &= blockHi;
+                        for (int i = 0; i < pinCount; i++) {
+                            if (pinBits[i] == bit) {
+                                targets[0] &= pinRays[i * 2];
+                                targets[1] &= pinRays[i * 2 + 1];
+                            }
+                        }
+                    }
+                    addTargets(bit, moves);
+                }
+            }
+        }
+    }
+
+    // fills out with every cell a side attacks, including the pieces of its own that it defends
+    private void findAttacks(int side, long occupiedLo, long occupiedHi, long[] out) {
+        var white = side == 0;
+        var pawn = (white ? WHITE_PAWN : BLACK_PAWN) * 2;
+        var knight = (white ? WHITE_KNIGHT : BLACK_KNIGHT) * 2;
+        var bishop = (white ? WHITE_BISHOP : BLACK_BISHOP) * 2;
+        var rook = (white ? WHITE_ROOK : BLACK_ROOK) * 2;
+        var queen = (white ? WHITE_QUEEN : BLACK_QUEEN) * 2;
+        var king = (white ? WHITE_KING : BLACK_KING) * 2;
+
+        out[0] = 0;
+        out[1] = 0;
+        // every piece of a kind moves at once, a shift per offset no matter how many there are
+        for (var take : white ? WHITE_TAKES : BLACK_TAKES) {
+            out[0] |= take.lo(pieceBits[pawn], pieceBits[pawn + 1]);
+            out[1] |= take.hi(pieceBits[pawn], pieceBits[pawn + 1]);
+        }
+        for (var jump : KNIGHT_SHIFTS) {
+            out[0] |= jump.lo(pieceBits[knight], pieceBits[knight + 1]);
+            out[1] |= jump.hi(pieceBits[knight], pieceBits[knight + 1]);
+        }
+        for (var jump : KING_SHIFTS) {
+            out[0] |= jump.lo(pieceBits[king], pieceBits[king + 1]);
+            out[1] |= jump.hi(pieceBits[king], pieceBits[king + 1]);
+        }
+        for (var shift : ROOK_SHIFTS) {
+            slide(shift, pieceBits[rook] | pieceBits[queen], pieceBits[rook + 1] | pieceBits[queen + 1], occupiedLo, occupiedHi, out);
+        }
+        for (var shift : BISHOP_SHIFTS) {
+            slide(shift, pieceBits[bishop] | pieceBits[queen], pieceBits[bishop + 1] | pieceBits[queen + 1], occupiedLo, occupiedHi, out);
+        }
+    }
+
+    private void addTargets(int bit, MoveList moves) {
+        var from = BIT_TO_CELL[bit];
+        for (int word = 0; word < 2; word++) {
+            for (var bits = targets[word]; bits != 0; bits &= bits - 1) {
+                moves.add(from, BIT_TO_CELL[word * 64 + Long.numberOfTrailingZeros(bits)]);
+            }
+        }
+    }
+
+    // fills targets with the cells the piece can move to, ignoring whether that leaves its king in check
+    private void findTargets(int bit, byte piece) {
+        var own = isWhite(piece) ? 0 : 2;
+        var enemy = 2 - own;
+        var lo = lowBit(bit);
+        var hi = highBit(bit);
+        var occupiedLo = sideBits[0] | sideBits[2];
+        var occupiedHi = sideBits[1] | sideBits[3];
+
+        switch (piece) {
+            case WHITE_PAWN, BLACK_PAWN -> {
+                var push = piece == WHITE_PAWN ? WHITE_PUSH : BLACK_PUSH;
+                var takes = piece == WHITE_PAWN ? WHITE_TAKES : BLACK_TAKES;
+                var home = PAWN_HOMES[piece];
+
+                // we can step ahead onto an empty cell, and a second time if we haven't moved yet
+                var stepLo = push.lo(lo, hi) & ~occupiedLo;
+                var stepHi = push.hi(lo, hi) & ~occupiedHi;
+                targets[0] = stepLo;
+                targets[1] = stepHi;
+                if ((lo & home[0] | hi & home[1]) != 0) {
+                    targets[0] |= push.lo(stepLo, stepHi) & ~occupiedLo;
+                    targets[1] |= push.hi(stepLo, stepHi) & ~occupiedHi;
+                }
+                for (var take : takes) {
+                    targets[0] |= take.lo(lo, hi) & sideBits[enemy];
+                    targets[1] |= take.hi(lo, hi) & sideBits[enemy + 1];
+                }
+                return;
+            }
+            case WHITE_KNIGHT, BLACK_KNIGHT -> {
+                targets[0] = KNIGHT_TARGETS[bit * 2];
+                targets[1] = KNIGHT_TARGETS[bit * 2 + 1];
+            }
+            case WHITE_KING, BLACK_KING -> {
+                targets[0] = KING_TARGETS[bit * 2];
+                targets[1] = KING_TARGETS[bit * 2 + 1];
+            }
+            case WHITE_ROOK, BLACK_ROOK -> slide(ROOK_SHIFTS, lo, hi, occupiedLo, occupiedHi, targets);
+            case WHITE_BISHOP, BLACK_BISHOP -> slide(BISHOP_SHIFTS, lo, hi, occupiedLo, occupiedHi, targets);
+            case WHITE_QUEEN, BLACK_QUEEN -> {
+                slide(ROOK_SHIFTS, lo, hi, occupiedLo, occupiedHi, rays);
+                slide(BISHOP_SHIFTS, lo, hi, occupiedLo, occupiedHi, targets);
+                targets[0] |= rays[0];
+                targets[1] |= rays[1];
+            }
+            default -> throw new IllegalStateException("Board has invalid piece " + piece + " at hexagon " + Hexagon.ofIndex(BIT_TO_CELL[bit]));
+        }
+        targets[0] &= ~sideBits[own];
+        targets[1] &= ~sideBits[own + 1];
+    }
+
+    // floods every slider in the set along each shift at once, stopping at (and including) the first occupied cell
+    private static void slide(Bitboards.Shift[] shifts, long lo, long hi, long occupiedLo, long occupiedHi, long[] out) {
+        out[0] = 0;
+        out[1] = 0;
+        for (var shift : shifts) {
+            slide(shift, lo, hi, occupiedLo, occupiedHi, out);
+        }
+    }
+
+    // adds one direction of the flood to out
+    private static void slide(Bitboards.Shift shift, long lo, long hi, long occupiedLo, long occupiedHi, long[] out) {
+        var rayLo = lo;
+        var rayHi = hi;
+        while ((rayLo | rayHi) != 0) {
+            var nextLo = shift.lo(rayLo, rayHi);
+            var nextHi = shift.hi(rayLo, rayHi);
+            out[0] |= nextLo;
+            out[1] |= nextHi;
+            rayLo = nextLo & ~occupiedLo;
+            rayHi = nextHi & ~occupiedHi;
+        }
+    }
+
+    // plays the move on the bit sets only, and checks whether the king of the moving side is attacked afterward
+    private boolean leavesKingSafe(int fromBit, int toBit, byte piece, int kingBit) {
+        var captured = squares[toBit];
+        if (captured != EMPTY) {
+            toggle(toBit, captured);
+        }
+        toggle(fromBit, piece);
+        toggle(toBit, piece);
+
+        var isSafe = !isAttacked(isKing(piece) ? toBit : kingBit, isWhite(piece) ? Turn.BLACK : Turn.WHITE);
+
+        toggle(toBit, piece);
+        toggle(fromBit, piece);
+        if (captured != EMPTY) {
+            toggle(toBit, captured);
+        }
+        return isSafe;
+    }
+
+    // looks outward from the cell for each kind of piece that could attack it
+    private boolean isAttacked(int bit, Turn by) {
+        var white = by.isWhite();
+        var lo = lowBit(bit);
+        var hi = highBit(bit);
+
+        var knight = (white ? WHITE_KNIGHT : BLACK_KNIGHT) * 2;
+        var king = (white ? WHITE_KING : BLACK_KING) * 2;
+        if ((KNIGHT_TARGETS[bit * 2] & pieceBits[knight] | KNIGHT_TARGETS[bit * 2 + 1] & pieceBits[knight + 1]) != 0
+            || (KING_TARGETS[bit * 2] & pieceBits[king] | KING_TARGETS[bit * 2 + 1] & pieceBits[king + 1]) != 0) {
+            return true;
+        }
+
+        // a pawn attacks the cell if it sits where the cell would take from, had it been a pawn of the other color
+        var pawn = (white ? WHITE_PAWN : BLACK_PAWN) * 2;
+        for (var take : white ? BLACK_TAKES : WHITE_TAKES) {
+            if ((take.lo(lo, hi) & pieceBits[pawn] | take.hi(lo, hi) & pieceBits[pawn + 1]) != 0) {
+                return true;
+            }
+        }
+
+        var queen = (white ? WHITE_QUEEN : BLACK_QUEEN) * 2;
+        var rook = (white ? WHITE_ROOK : BLACK_ROOK) * 2;
+        var bishop = (white ? WHITE_BISHOP : BLACK_BISHOP) * 2;
+        var occupiedLo = sideBits[0] | sideBits[2];
+        var occupiedHi = sideBits[1] | sideBits[3];
+        slide(ROOK_SHIFTS, lo, hi, occupiedLo, occupiedHi, rays);
+        if ((rays[0] & (pieceBits[rook] | pieceBits[queen]) | rays[1] & (pieceBits[rook + 1] | pieceBits[queen + 1])) != 0) {
+            return true;
+        }
+        slide(BISHOP_SHIFTS, lo, hi, occupiedLo, occupiedHi, rays);
+        return (rays[0] & (pieceBits[bishop] | pieceBits[queen]) | rays[1] & (pieceBits[bishop + 1] | pieceBits[queen + 1])) != 0;
+    }
+
+    private int findKingBit(Turn turn) {
+        var king = (turn.isWhite() ? WHITE_KING : BLACK_KING) * 2;
+        if (pieceBits[king] != 0) {
+            return Long.numberOfTrailingZeros(pieceBits[king]);
+        }
+        if (pieceBits[king + 1] != 0) {
+            return 64 + Long.numberOfTrailingZeros(pieceBits[king + 1]);
+        }
+        throw new IllegalStateException("Board doesn't have a king");
+    }
+
+    private void toggle(int bit, byte piece) {
+        var lo = lowBit(bit);
+        var hi = highBit(bit);
+        pieceBits[piece * 2] ^= lo;
+        pieceBits[piece * 2 + 1] ^= hi;
+        var side = isWhite(piece) ? 0 : 2;
+        sideBits[side] ^= lo;
+        sideBits[side + 1] ^= hi;
+    }
+}
@@ -0,0 +1,147 @@
+package domain;
+
+import java.util.Arrays;
+
+import static domain.ChessBoard.*;
+import static domain.Hexagon.CELLS;
+import static domain.Hexagon.Direction;
+import static domain.MoveTables.*;
+
+// tables for the bitboard engine, where the board is embedded in an 11x11 grid so every direction is a constant shift
+final class Bitboards {
+
+    // a cell's bit is file * STRIDE + rank, with the ranks of the files right of the midpoint raised to line up the hexagons
+    static final int STRIDE = 11;
+    static final int BITS = STRIDE * STRIDE; // fits in two longs, the first holding bits 0-63 and the second bits 64-120
+
+    static final int[] CELL_TO_BIT = computeCellToBit();
+    static final int[] BIT_TO_CELL = computeBitToCell();
+
+    // each offset is a shift by the delta, applied to the bits in the source mask, the cells that stay on the board
+    static final Shift[] ROOK_SHIFTS = computeShifts(ROOK_OFFSETS);
+    static final Shift[] BISHOP_SHIFTS = computeShifts(BISHOP_OFFSETS);
+    static final Shift[] KNIGHT_SHIFTS = computeShifts(KNIGHT_OFFSETS);
+    static final Shift[] KING_SHIFTS = computeShifts(KING_OFFSETS);
+    static final Shift[] QUEEN_SHIFTS = KING_SHIFTS; // the rook shifts come first, then the bishop shifts
+
+    static final Shift WHITE_PUSH = computeShift(new Direction[]{Direction.UP});
+    static final Shift BLACK_PUSH = computeShift(new Direction[]{Direction.DOWN});
+    static final Shift[] WHITE_TAKES = computeShifts(new Direction[][]{{Direction.UP_LEFT}, {Direction.UP_RIGHT}});
+    static final Shift[] BLACK_TAKES = computeShifts(new Direction[][]{{Direction.DOWN_LEFT}, {Direction.DOWN_RIGHT}});
+
+    // the cells a pawn may still double step from, by pawn piece
+    static final long[][] PAWN_HOMES = computePawnHomes();
+
+    // KNIGHT_TARGETS[bit * 2 + word] and KING_TARGETS are the jumps from a single cell, since they never depend on blockers
+    static final long[] KNIGHT_TARGETS = computeTargets(KNIGHT_SHIFTS);
+    static final long[] KING_TARGETS = computeTargets(KING_SHIFTS);
+
+    record Shift(int delta, long sourceLo, long sourceHi) {
+
+        long lo(long lo, long hi) {
+            lo &= sourceLo;
+            hi &= sourceHi;
+            if (delta > 0) {
+                return lo << delta;
+            }
+            return (lo >>> -delta) | (hi << (64 + delta));
+        }
+
+        long hi(long lo, long hi) {
+            lo &= sourceLo;
+            hi &= sourceHi;
+            if (delta > 0) {
+                return (hi << delta) | (lo >>> (64 - delta));
+            }
+            return hi >>> -delta;
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    static long lowBit(int bit) {
+        return bit < 64 ? 1L << bit : 0;
+    }
+
+    static long highBit(int bit) {
+        return bit >= 64 ? 1L << (bit - 64) : 0;
+    }
+
+    static boolean isSet(long lo, long hi, int bit) {
+        return bit < 64 ? (lo & (1L << bit)) != 0 : (hi & (1L << (bit - 64))) != 0;
+    }
+
+    private static int[] computeCellToBit() {
+        var bits = new int[CELLS];
+        for (int cell = 0; cell < CELLS; cell++) {
+            var hex = Hexagon.ofIndex(cell);
+            var raise = Math.max(0, hex.getFile() - Hexagon.MIDPOINT);
+            bits[cell] = hex.getFile() * STRIDE + hex.getRank() + raise;
+        }
+        return bits;
+    }
+
+    private static int[] computeBitToCell() {
+        var cells = new int[BITS];
+        Arrays.fill(cells, NONE);
+        for (int cell = 0; cell < CELLS; cell++) {
+            cells[CELL_TO_BIT[cell]] = cell;
+        }
+        return cells;
+    }
+
+    private static Shift[] computeShifts(Direction[][] offsets) {
+        var shifts = new Shift[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            shifts[i] = computeShift(offsets[i]);
+        }
+        return shifts;
+    }
+
+    private static Shift computeShift(Direction[] offset) {
+        var delta = 0;
+        long sourceLo = 0;
+        long sourceHi = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            var hex = Hexagon.ofIndex(cell).walk(offset);
+            if (hex.isOffBoard()) {
+                continue;
+            }
+            var bit = CELL_TO_BIT[cell];
+            var cellDelta = CELL_TO_BIT[hex.index()] - bit;
+            if (delta != 0 && cellDelta != delta) {
+                throw new IllegalStateException("Offset does not map to a single shift in the bitboard layout");
+            }
+            delta = cellDelta;
+            sourceLo |= lowBit(bit);
+            sourceHi |= highBit(bit);
+        }
+        return new Shift(delta, sourceLo, sourceHi);
+    }
+
+    private static long[][] computePawnHomes() {
+        var homes = new long[BLACK_PAWN + 1][2];
+        for (byte pawn = WHITE_PAWN; pawn <= BLACK_PAWN; pawn++) {
+            for (int cell = 0; cell < CELLS; cell++) {
+                if (!hasPawnMoved(Hexagon.ofIndex(cell), pawn)) {
+                    homes[pawn][0] |= lowBit(CELL_TO_BIT[cell]);
+                    homes[pawn][1] |= highBit(CELL_TO_BIT[cell]);
+                }
+            }
+        }
+        return homes;
+    }
+
+    private static long[] computeTargets(Shift[] shifts) {
+        var targets = new long[BITS * 2];
+        for (int cell = 0; cell < CELLS; cell++) {
+            var bit = CELL_TO_BIT[cell];
+            for (var shift : shifts) {
+                targets[bit * 2] |= shift.lo(lowBit(bit), highBit(bit));
+                targets[bit * 2 + 1] |= shift.hi(lowBit(bit), highBit(bit));
+            }
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,570 @@
+package domain;
+
+import static domain.Bitboards.*;
+import static domain.ChessBoard.*;
+
+// move generation for many boards at once, with the boards laid out as arrays of bit sets instead of one object each
+// every stage is a flat loop over boards, or over the pieces of all boards, that applies the same shifts and masks to
+// each one with hardly any branches on the position, which is the shape the jit vectorizes, so throughput grows with the
+// vector width rather than with the number of boards. the moves are the same as BitboardGame.findLegalMoves, in the
+// same order, and are written for every board into one shared buffer
+public class BoardBatch {
+
+    private static final int MAX_RAY = 10; // the longest line across the board, so a flood never takes more steps than this
+    private static final int KINDS = 6; // pawn, knight, bishop, rook, queen, king, in the order the moves are generated
+
+    private final int capacity;
+    private int size = 0;
+
+    // pieceLo[piece][board] holds bits 0-63 of the piece's set on the board and pieceHi[piece][board] bits 64-120
+    private final long[][] pieceLo = new long[BLACK_KING + 1][];
+    private final long[][] pieceHi = new long[BLACK_KING + 1][];
+    private final long[] whiteToMove; // all ones when white is to move and zero when black is, so it works as a mask
+
+    // by board, filled in by generate
+    private final long[] ownLo;
+    private final long[] ownHi;
+    private final long[] occupiedLo;
+    private final long[] occupiedHi;
+    private final long[] kingLo;
+    private final long[] kingHi;
+    private final long[] attackedLo; // every cell the side not to move attacks, looking through the king of the side to move
+    private final long[] attackedHi;
+    private final long[] blockLo; // where a piece other than the king has to move to answer a check, all cells if not in check
+    private final long[] blockHi;
+    private final long[] checkers;
+    private final long[] anyPinnedLo; // every pinned piece on the board
+    private final long[] anyPinnedHi;
+    private final long[][] pinnedLo; // by queen ray then board, the piece pinned to the king along that ray
+    private final long[][] pinnedHi;
+    private final long[][] pinRayLo; // and the cells it may still move to
+    private final long[][] pinRayHi;
+
+    // one lane per piece of the side to move on every board, grouped by kind and then by board so each kind is one range
+    private final int[] kindStart = new int[KINDS + 1];
+    private final int[][] laneStart = new int[KINDS][]; // laneStart[kind][board] is where the board's lanes of that kind begin
+    private int[] laneBoard = new int[0];
+    private int[] laneBit = new int[0];
+    private long[] sourceLo = new long[0];
+    private long[] sourceHi = new long[0];
+    private long[] targetLo = new long[0];
+    private long[] targetHi = new long[0];
+    private long[] laneOwnLo = new long[0];
+    private long[] laneOwnHi = new long[0];
+    private long[] laneOccupiedLo = new long[0];
+    private long[] laneOccupiedHi = new long[0];
+    private long[] laneWhite = new long[0];
+
+    // scratch for the floods, the first four by board and the rest sized for whichever is larger of boards and lanes
+    private final long[] slidersLo;
+    private final long[] slidersHi;
+    private final long[] blockersLo;
+    private final long[] blockersHi;
+    private long[] rayLo = new long[0];
+    private long[] rayHi = new long[0];
+    private long[] nextLo = new long[0];
+    private long[] nextHi = new long[0];
+
+    // the moves of every board, packed as in MoveList, the moves of board i start at moveStart[i]
+    private int[] moves = new int[0];
+    private final int[] moveStart;
+    private final int[] moveCount;
+
+    public BoardBatch(int capacity) {
+        this.capacity = capacity;
+        for (int piece = 0; piece <= BLACK_KING; piece++) {
+            pieceLo[piece] = new long[capacity];
+            pieceHi[piece] = new long[capacity];
+        }
+        whiteToMove = new long[capacity];
+        ownLo = new long[capacity];
+        ownHi = new long[capacity];
+        occupiedLo = new long[capacity];
+        occupiedHi = new long[capacity];
+        kingLo = new long[capacity];
+        kingHi = new long[capacity];
+        attackedLo = new long[capacity];
+        attackedHi = new long[capacity];
+        blockLo = new long[capacity];
+        blockHi = new long[capacity];
+        checkers = new long[capacity];
+        anyPinnedLo = new long[capacity];
+        anyPinnedHi = new long[capacity];
+        pinnedLo = new long[QUEEN_SHIFTS.length][capacity];
+        pinnedHi = new long[QUEEN_SHIFTS.length][capacity];
+        pinRayLo = new long[QUEEN_SHIFTS.length][capacity];
+        pinRayHi = new long[QUEEN_SHIFTS.length][capacity];
+        for (int kind = 0; kind < KINDS; kind++) {
+            laneStart[kind] = new int[capacity + 1];
+        }
+        slidersLo = new long[capacity];
+        slidersHi = new long[capacity];
+        blockersLo = new long[capacity];
+        blockersHi = new long[capacity];
+        moveStart = new int[capacity];
+        moveCount = new int[capacity];
+        ensureScratch(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // copies the board into the batch and returns its index
+    public int add(ChessBoard board) {
+        var index = nextIndex(board.turn());
+        for (int cell = 0; cell < Hexagon.CELLS; cell++) {
+            var piece = board.getPiece(cell);
+            if (piece != EMPTY) {
+                pieceLo[piece][index] |= lowBit(CELL_TO_BIT[cell]);
+                pieceHi[piece][index] |= highBit(CELL_TO_BIT[cell]);
+            }
+        }
+        return index;
+    }
+
+    public int add(BitboardGame game) {
+        var index = nextIndex(game.turn());
+        for (byte piece = WHITE_PAWN; piece <= BLACK_KING; piece++) {
+            pieceLo[piece][index] = game.pieceBits(piece, 0);
+            pieceHi[piece][index] = game.pieceBits(piece, 1);
+        }
+        return index;
+    }
+
+    public byte getPiece(int board, int cell) {
+        var bit = CELL_TO_BIT[cell];
+        for (byte piece = WHITE_PAWN; piece <= BLACK_KING; piece++) {
+            if (isSet(pieceLo[piece][board], pieceHi[piece][board], bit)) {
+                return piece;
+            }
+        }
+        return EMPTY;
+    }
+
+    // the shared buffer every board's moves are written into, see moveStart and moveCount
+    public int[] moves() {
+        return moves;
+    }
+
+    public int moveStart(int board) {
+        return moveStart[board];
+    }
+
+    public int moveCount(int board) {
+        return moveCount[board];
+    }
+
+    // the i-th move of a board, packed as in MoveList
+    public int getMove(int board, int i) {
+        return moves[moveStart[board] + i];
+    }
+
+    // finds the legal moves of the side to move on every board in the batch
+    public void generate() {
+        findSides();
+        findAttacks();
+        findChecksAndPins();
+        findLanes();
+        findTargets();
+        restrictTargets();
+        writeMoves();
+    }
+
+    private int nextIndex(Turn turn) {
+        if (size == capacity) {
+            throw new IllegalStateException("Batch is full with " + capacity + " boards");
+        }
+        var index = size++;
+        for (int piece = 0; piece <= BLACK_KING; piece++) {
+            pieceLo[piece][index] = 0;
+            pieceHi[piece][index] = 0;
+        }
+        whiteToMove[index] = turn.isWhite() ? -1L : 0;
+        return index;
+    }
+
+    private void findSides() {
+        for (int i = 0; i < size; i++) {
+            long whiteLo = 0, whiteHi = 0, blackLo = 0, blackHi = 0;
+            for (int piece = WHITE_PAWN; piece <= BLACK_KING; piece += 2) {
+                whiteLo |= pieceLo[piece][i];
+                whiteHi |= pieceHi[piece][i];
+                blackLo |= pieceLo[piece + 1][i];
+                blackHi |= pieceHi[piece + 1][i];
+            }
+            var white = whiteToMove[i];
+            ownLo[i] = select(white, whiteLo, blackLo);
+            ownHi[i] = select(white, whiteHi, blackHi);
+            occupiedLo[i] = whiteLo | blackLo;
+            occupiedHi[i] = whiteHi | blackHi;
+        }
+    }
+
+    // the cells the side not to move attacks, with the king of the side to move taken off so it can't back away along a ray
+    private void findAttacks() {
+        for (int i = 0; i < size; i++) {
+            var white = whiteToMove[i];
+            kingLo[i] = select(white, pieceLo[WHITE_KING][i], pieceLo[BLACK_KING][i]);
+            kingHi[i] = select(white, pieceHi[WHITE_KING][i], pieceHi[BLACK_KING][i]);
+            blockersLo[i] = occupiedLo[i] & ~kingLo[i];
+            blockersHi[i] = occupiedHi[i] & ~kingHi[i];
+            attackedLo[i] = 0;
+            attackedHi[i] = 0;
+        }
+
+        // pawns, knights and the king are single steps, each shift is applied to the whole set of pieces at once
+        for (int t = 0; t < WHITE_TAKES.length; t++) {
+            var whiteTake = WHITE_TAKES[t];
+            var blackTake = BLACK_TAKES[t];
+            for (int i = 0; i < size; i++) {
+                var white = whiteToMove[i];
+                attackedLo[i] |= select(white, blackTake.lo(pieceLo[BLACK_PAWN][i], pieceHi[BLACK_PAWN][i]),
+                    whiteTake.lo(pieceLo[WHITE_PAWN][i], pieceHi[WHITE_PAWN][i]));
+                attackedHi[i] |= select(white, blackTake.hi(pieceLo[BLACK_PAWN][i], pieceHi[BLACK_PAWN][i]),
+                    whiteTake.hi(pieceLo[WHITE_PAWN][i], pieceHi[WHITE_PAWN][i]));
+            }
+        }
+        stepEnemy(KNIGHT_SHIFTS, WHITE_KNIGHT);
+        stepEnemy(KING_SHIFTS, WHITE_KING);
+
+        findEnemySliders(WHITE_ROOK);
+        for (var shift : ROOK_SHIFTS) {
+            flood(shift, slidersLo, slidersHi, blockersLo, blockersHi, attackedLo, attackedHi);
+        }
+        findEnemySliders(WHITE_BISHOP);
+        for (var shift : BISHOP_SHIFTS) {
+            flood(shift, slidersLo, slidersHi, blockersLo, blockersHi, attackedLo, attackedHi);
+        }
+    }
+
+    // adds the single steps of the enemy's pieces of a kind to the attacked cells, whitePiece being the white one of the kind
+    private void stepEnemy(Shift[] shifts, int whitePiece) {
+        for (var shift : shifts) {
+            for (int i = 0; i < size; i++) {
+                var lo = select(whiteToMove[i], pieceLo[whitePiece + 1][i], pieceLo[whitePiece][i]);
+                var hi = select(whiteToMove[i], pieceHi[whitePiece + 1][i], pieceHi[whitePiece][i]);
+                attackedLo[i] |= shift.lo(lo, hi);
+                attackedHi[i] |= shift.hi(lo, hi);
+            }
+        }
+    }
+
+    // fills the sliders scratch with the enemy's pieces of the kind and its queens, whitePiece being the white one of the kind
+    private void findEnemySliders(int whitePiece) {
+        for (int i = 0; i < size; i++) {
+            var white = whiteToMove[i];
+            slidersLo[i] = select(white, pieceLo[whitePiece + 1][i] | pieceLo[BLACK_QUEEN][i], pieceLo[whitePiece][i] | pieceLo[WHITE_QUEEN][i]);
+            slidersHi[i] = select(white, pieceHi[whitePiece + 1][i] | pieceHi[BLACK_QUEEN][i], pieceHi[whitePiece][i] | pieceHi[WHITE_QUEEN][i]);
+        }
+    }
+
+    // walks each ray out from the king of the side to move: an enemy slider first is a check, one of ours in front of it is pinned
+    private void findChecksAndPins() {
+        for (int i = 0; i < size; i++) {
+            blockLo[i] = -1L;
+            blockHi[i] = -1L;
+            checkers[i] = 0;
+            anyPinnedLo[i] = 0;
+            anyPinnedHi[i] = 0;
+        }
+
+        for (int r = 0; r < QUEEN_SHIFTS.length; r++) {
+            var shift = QUEEN_SHIFTS[r];
+            findEnemySliders(r < ROOK_SHIFTS.length ? WHITE_ROOK : WHITE_BISHOP);
+            for (int i = 0; i < size; i++) {
+                rayLo[i] = 0;
+                rayHi[i] = 0;
+            }
+            flood(shift, kingLo, kingHi, occupiedLo, occupiedHi, rayLo, rayHi);
+
+            var raysLo = pinRayLo[r];
+            var raysHi = pinRayHi[r];
+            var pinLo = pinnedLo[r];
+            var pinHi = pinnedHi[r];
+            for (int i = 0; i < size; i++) {
+                var check = nonZero(rayLo[i] & slidersLo[i] | rayHi[i] & slidersHi[i]);
+                checkers[i] -= check;
+                blockLo[i] = select(check, rayLo[i], blockLo[i]);
+                blockHi[i] = select(check, rayHi[i], blockHi[i]);
+                // the first piece along the ray, if it is ours and the ray isn't a check it might be pinned
+                pinLo[i] = rayLo[i] & ownLo[i] & ~check;
+                pinHi[i] = rayHi[i] & ownHi[i] & ~check;
+                raysLo[i] = 0;
+                raysHi[i] = 0;
+            }
+            // carry on past it, boards with nothing to look past have an empty ray and stop at once
+            flood(shift, pinLo, pinHi, occupiedLo, occupiedHi, raysLo, raysHi);
+            for (int i = 0; i < size; i++) {
+                var pinned = nonZero(raysLo[i] & slidersLo[i] | raysHi[i] & slidersHi[i]);
+                pinLo[i] &= pinned;
+                pinHi[i] &= pinned;
+                raysLo[i] = (raysLo[i] | rayLo[i]) & pinned;
+                raysHi[i] = (raysHi[i] | rayHi[i]) & pinned;
+                anyPinnedLo[i] |= pinLo[i];
+                anyPinnedHi[i] |= pinHi[i];
+            }
+        }
+
+        // knights and pawns can't be blocked, so the only answer to them is to take them or move the king
+        for (int i = 0; i < size; i++) {
+            var white = whiteToMove[i];
+            long jumpersLo = 0;
+            long jumpersHi = 0;
+            for (var jump : KNIGHT_SHIFTS) {
+                jumpersLo |= jump.lo(kingLo[i], kingHi[i]);
+                jumpersHi |= jump.hi(kingLo[i], kingHi[i]);
+            }
+            jumpersLo &= select(white, pieceLo[BLACK_KNIGHT][i], pieceLo[WHITE_KNIGHT][i]);
+            jumpersHi &= select(white, pieceHi[BLACK_KNIGHT][i], pieceHi[WHITE_KNIGHT][i]);
+            var pawnLo = select(white, pieceLo[BLACK_PAWN][i], pieceLo[WHITE_PAWN][i]);
+            var pawnHi = select(white, pieceHi[BLACK_PAWN][i], pieceHi[WHITE_PAWN][i]);
+            for (int t = 0; t < WHITE_TAKES.length; t++) {
+                jumpersLo |= select(white, WHITE_TAKES[t].lo(kingLo[i], kingHi[i]), BLACK_TAKES[t].lo(kingLo[i], kingHi[i])) & pawnLo;
+                jumpersHi |= select(white, WHITE_TAKES[t].hi(kingLo[i], kingHi[i]), BLACK_TAKES[t].hi(kingLo[i], kingHi[i])) & pawnHi;
+            }
+            var jumped = nonZero(jumpersLo | jumpersHi);
+            checkers[i] += Long.bitCount(jumpersLo) + Long.bitCount(jumpersHi);
+            blockLo[i] = select(jumped, jumpersLo, blockLo[i]);
+            blockHi[i] = select(jumped, jumpersHi, blockHi[i]);
+            // in double check only the king can move
+            var doubleCheck = nonZero(checkers[i] >>> 1);
+            blockLo[i] &= ~doubleCheck;
+            blockHi[i] &= ~doubleCheck;
+        }
+    }
+
+    // lays out a lane for every piece of the side to move, grouped by kind and then board so each kind is one range of lanes
+    private void findLanes() {
+        var lanes = 0;
+        for (int kind = 0; kind < KINDS; kind++) {
+            kindStart[kind] = lanes;
+            var starts = laneStart[kind];
+            for (int i = 0; i < size; i++) {
+                starts[i] = lanes;
+                var piece = whiteToMove[i] != 0 ? kind * 2 + 1 : kind * 2 + 2;
+                lanes += Long.bitCount(pieceLo[piece][i]) + Long.bitCount(pieceHi[piece][i]);
+            }
+            starts[size] = lanes;
+        }
+        kindStart[KINDS] = lanes;
+        ensureLanes(lanes);
+        ensureScratch(lanes);
+
+        for (int kind = 0; kind < KINDS; kind++) {
+            var starts = laneStart[kind];
+            for (int i = 0; i < size; i++) {
+                var piece = whiteToMove[i] != 0 ? kind * 2 + 1 : kind * 2 + 2;
+                var lane = starts[i];
+                for (int word = 0; word < 2; word++) {
+                    for (var bits = word == 0 ? pieceLo[piece][i] : pieceHi[piece][i]; bits != 0; bits &= bits - 1) {
+                        var bit = word * 64 + Long.numberOfTrailingZeros(bits);
+                        laneBoard[lane] = i;
+                        laneBit[lane] = bit;
+                        sourceLo[lane] = lowBit(bit);
+                        sourceHi[lane] = highBit(bit);
+                        laneOwnLo[lane] = ownLo[i];
+                        laneOwnHi[lane] = ownHi[i];
+                        laneOccupiedLo[lane] = occupiedLo[i];
+                        laneOccupiedHi[lane] = occupiedHi[i];
+                        laneWhite[lane] = whiteToMove[i];
+                        targetLo[lane] = 0;
+                        targetHi[lane] = 0;
+                        lane++;
+                    }
+                }
+            }
+        }
+    }
+
+    // the cells each piece can move to ignoring checks and pins, one kind of piece at a time
+    private void findTargets() {
+        // pawns step ahead onto an empty cell, a second time if they haven't moved yet, and take diagonally forward
+        for (int l = kindStart[0]; l < kindStart[1]; l++) {
+            var white = laneWhite[l];
+            var lo = sourceLo[l];
+            var hi = sourceHi[l];
+            var emptyLo = ~laneOccupiedLo[l];
+            var emptyHi = ~laneOccupiedHi[l];
+            var stepLo = select(white, WHITE_PUSH.lo(lo, hi), BLACK_PUSH.lo(lo, hi)) & emptyLo;
+            var stepHi = select(white, WHITE_PUSH.hi(lo, hi), BLACK_PUSH.hi(lo, hi)) & emptyHi;
+            var home = nonZero(select(white, lo & PAWN_HOMES[WHITE_PAWN][0] | hi & PAWN_HOMES[WHITE_PAWN][1],
+                lo & PAWN_HOMES[BLACK_PAWN][0] | hi & PAWN_HOMES[BLACK_PAWN][1]));
+            var doubleLo = select(white, WHITE_PUSH.lo(stepLo, stepHi), BLACK_PUSH.lo(stepLo, stepHi)) & emptyLo & home;
+            var doubleHi = select(white, WHITE_PUSH.hi(stepLo, stepHi), BLACK_PUSH.hi(stepLo, stepHi)) & emptyHi & home;
+            var enemyLo = laneOccupiedLo[l] & ~laneOwnLo[l];
+            var enemyHi = laneOccupiedHi[l] & ~laneOwnHi[l];
+            long takesLo = 0;
+            long takesHi = 0;
+            for (int t = 0; t < WHITE_TAKES.length; t++) {
+                takesLo |= select(white, WHITE_TAKES[t].lo(lo, hi), BLACK_TAKES[t].lo(lo, hi));
+                takesHi |= select(white, WHITE_TAKES[t].hi(lo, hi), BLACK_TAKES[t].hi(lo, hi));
+            }
+            targetLo[l] = stepLo | doubleLo | takesLo & enemyLo;
+            targetHi[l] = stepHi | doubleHi | takesHi & enemyHi;
+        }
+
+        jump(KNIGHT_TARGETS, kindStart[1], kindStart[2]);
+        slide(BISHOP_SHIFTS, kindStart[2], kindStart[3]);
+        slide(ROOK_SHIFTS, kindStart[3], kindStart[4]);
+        slide(ROOK_SHIFTS, kindStart[4], kindStart[5]);
+        slide(BISHOP_SHIFTS, kindStart[4], kindStart[5]);
+        jump(KING_TARGETS, kindStart[5], kindStart[6]);
+
+        for (int l = kindStart[1]; l < kindStart[KINDS]; l++) {
+            targetLo[l] &= ~laneOwnLo[l];
+            targetHi[l] &= ~laneOwnHi[l];
+        }
+    }
+
+    private void jump(long[] table, int start, int end) {
+        for (int l = start; l < end; l++) {
+            targetLo[l] = table[laneBit[l] * 2];
+            targetHi[l] = table[laneBit[l] * 2 + 1];
+        }
+    }
+
+    private void slide(Shift[] shifts, int start, int end) {
+        for (var shift : shifts) {
+            floodRange(shift, start, end);
+        }
+    }
+
+    // drops the moves that leave the king in check: the king can't step onto an attacked cell, the other pieces have to
+    // answer a check, and a pinned piece has to stay on its ray
+    private void restrictTargets() {
+        for (int l = kindStart[0]; l < kindStart[5]; l++) {
+            var board = laneBoard[l];
+            targetLo[l] &= blockLo[board];
+            targetHi[l] &= blockHi[board];
+            // pins are rare, so only the pieces that are pinned look for their ray
+            if ((sourceLo[l] & anyPinnedLo[board] | sourceHi[l] & anyPinnedHi[board]) != 0) {
+                for (int r = 0; r < QUEEN_SHIFTS.length; r++) {
+                    var pinned = nonZero(sourceLo[l] & pinnedLo[r][board] | sourceHi[l] & pinnedHi[r][board]);
+                    targetLo[l] &= select(pinned, pinRayLo[r][board], -1L);
+                    targetHi[l] &= select(pinned, pinRayHi[r][board], -1L);
+                }
+            }
+        }
+        for (int l = kindStart[5]; l < kindStart[6]; l++) {
+            targetLo[l] &= ~attackedLo[laneBoard[l]];
+            targetHi[l] &= ~attackedHi[laneBoard[l]];
+        }
+    }
+
+    // writes the moves board by board, in the order BitboardGame generates them: by kind, then by source, then by target
+    private void writeMoves() {
+        var total = 0;
+        for (int l = kindStart[0]; l < kindStart[KINDS]; l++) {
+            total += Long.bitCount(targetLo[l]) + Long.bitCount(targetHi[l]);
+        }
+        if (moves.length < total) {
+            moves = new int[Math.max(total, moves.length * 2)];
+        }
+
+        var count = 0;
+        for (int i = 0; i < size; i++) {
+            moveStart[i] = count;
+            for (int kind = 0; kind < KINDS; kind++) {
+                for (int l = laneStart[kind][i]; l < laneStart[kind][i + 1]; l++) {
+                    var from = BIT_TO_CELL[laneBit[l]];
+                    for (int word = 0; word < 2; word++) {
+                        for (var bits = word == 0 ? targetLo[l] : targetHi[l]; bits != 0; bits &= bits - 1) {
+                            moves[count++] = MoveList.encode(from, BIT_TO_CELL[word * 64 + Long.numberOfTrailingZeros(bits)]);
+                        }
+                    }
+                }
+            }
+            moveCount[i] = count - moveStart[i];
+        }
+    }
+
+    // floods the sources of every board along one shift, adding each cell reached to out, stopping at and including the first blocker
+    // every board takes the same step together, and the flood ends once the rays on all of them have stopped
+    private void flood(Shift shift, long[] fromLo, long[] fromHi, long[] stopLo, long[] stopHi, long[] outLo, long[] outHi) {
+        System.arraycopy(fromLo, 0, nextLo, 0, size);
+        System.arraycopy(fromHi, 0, nextHi, 0, size);
+        var moving = -1L;
+        for (int step = 0; step < MAX_RAY && moving != 0; step++) {
+            moving = 0;
+            for (int i = 0; i < size; i++) {
+                var lo = shift.lo(nextLo[i], nextHi[i]);
+                var hi = shift.hi(nextLo[i], nextHi[i]);
+                outLo[i] |= lo;
+                outHi[i] |= hi;
+                nextLo[i] = lo & ~stopLo[i];
+                nextHi[i] = hi & ~stopHi[i];
+                moving |= nextLo[i] | nextHi[i];
+            }
+        }
+    }
+
+    // the same flood over a range of lanes, from each lane's piece and blocked by its own board
+    private void floodRange(Shift shift, int start, int end) {
+        System.arraycopy(sourceLo, start, rayLo, start, end - start);
+        System.arraycopy(sourceHi, start, rayHi, start, end - start);
+        var moving = -1L;
+        for (int step = 0; step < MAX_RAY && moving != 0; step++) {
+            moving = 0;
+            for (int l = start; l < end; l++) {
+                var lo = shift.lo(rayLo[l], rayHi[l]);
+                var hi = shift.hi(rayLo[l], rayHi[l]);
+                targetLo[l] |= lo;
+                targetHi[l] |= hi;
+                rayLo[l] = lo & ~laneOccupiedLo[l];
+                rayHi[l] = hi & ~laneOccupiedHi[l];
+                moving |= rayLo[l] | rayHi[l];
+            }
+        }
+    }
+
+    private void ensureLanes(int lanes) {
+        if (laneBoard.length >= lanes) {
+            return;
+        }
+        var length = Math.max(lanes, laneBoard.length * 2);
+        laneBoard = new int[length];
+        laneBit = new int[length];
+        sourceLo = new long[length];
+        sourceHi = new long[length];
+        targetLo = new long[length];
+        targetHi = new long[length];
+        laneOwnLo = new long[length];
+        laneOwnHi = new long[length];
+        laneOccupiedLo = new long[length];
+        laneOccupiedHi = new long[length];
+        laneWhite = new long[length];
+    }
+
+    private void ensureScratch(int length) {
+        if (rayLo.length >= length) {
+            return;
+        }
+        rayLo = new long[length];
+        rayHi = new long[length];
+        nextLo = new long[length];
+        nextHi = new long[length];
+    }
+
+    // a when the mask is all ones and b when it is zero
+    private static long select(long mask, long a, long b) {
+        return (a & mask) | (b & ~mask);
+    }
+
+    // all ones if the value has any bit set, zero otherwise
+    private static long nonZero(long value) {
+        return (value | -value) >> 63;
+    }
+}
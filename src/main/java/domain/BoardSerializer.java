@@ -1,6 +1,8 @@
 package domain;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 
@@ -8,6 +10,9 @@ import java.io.IOException;
 
 public class BoardSerializer extends StdSerializer<ChessBoard> {
 
+    private static final SerializableString TURN = new SerializedString("turn");
+    private static final SerializableString PIECES = new SerializedString("pieces");
+
     public BoardSerializer() {
         this(null);
     }
@@ -20,17 +25,18 @@ public class BoardSerializer extends StdSerializer<ChessBoard> {
     public void serialize(ChessBoard board, JsonGenerator json, SerializerProvider provider) throws IOException {
         json.writeStartObject();
 
-        json.writeFieldName("turn");
+        json.writeFieldName(TURN);
         json.writeNumber(board.turn().toInt());
 
-        json.writeFieldName("pieces");
+        json.writeFieldName(PIECES);
         json.writeStartArray();
 
+        // clients expect the jagged [file][rank] layout, so we split the flat array back up by file
         var pieces = board.getPieces();
-        for (byte[] piecesFile : pieces) {
+        for (int file = 0; file < ChessBoard.FILES; file++) {
             json.writeStartArray();
-            for (byte b : piecesFile) {
-                json.writeNumber(b);
+            for (int i = Hexagon.FILE_OFFSETS[file]; i < Hexagon.FILE_OFFSETS[file + 1]; i++) {
+                json.writeNumber(pieces[i]);
             }
             json.writeEndArray();
         }
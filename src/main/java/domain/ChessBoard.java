@@ -1,9 +1,11 @@
 package domain;
 
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.ToString;
 
 import java.util.Arrays;
@@ -13,7 +15,6 @@ import java.util.function.Function;
 
 @Data
 @NoArgsConstructor(force = true)
-@AllArgsConstructor
 @JsonSerialize(using = BoardSerializer.class)
 public class ChessBoard {
 
@@ -60,20 +61,60 @@ public class ChessBoard {
     }
 
     private Turn turn;
-    private final byte[][] pieces; // jagged array storing the pieces with [file][rank] format
+    private final byte[] pieces; // flat array storing the pieces by hexagon index, see Hexagon.indexOf
+    @Setter(AccessLevel.NONE)
+    private long zobrist; // position key, updated incrementally by every change to the pieces or turn
+
+    // pieceCells[piece] lists the cells holding that piece in ascending order, only the first pieceCounts[piece] are used
+    // these are derived from the pieces, so they are rebuilt whenever they are missing, e.g. after the board is deserialized
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient int[][] pieceCells = null;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient int[] pieceCounts = null;
+    // the sum of Evaluation.SQUARES over the pieces, kept with the piece lists since it's derived the same way
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient int squaresScore = 0;
 
     public ChessBoard(Turn turn) {
-        pieces = new byte[FILES][];
-        for (int i = 0; i < pieces.length; i++) {
-            pieces[i] = new byte[RANKS_PER_FILE[i]];
-        }
+        pieces = new byte[Hexagon.CELLS];
         this.turn = turn;
+        this.zobrist = turn.isBlack() ? Zobrist.BLACK_TURN : 0;
+    }
+
+    private ChessBoard(Turn turn, byte[] pieces, long zobrist, int[][] pieceCells, int[] pieceCounts, int squaresScore) {
+        this.turn = turn;
+        this.pieces = pieces;
+        this.zobrist = zobrist;
+        this.pieceCells = pieceCells;
+        this.pieceCounts = pieceCounts;
+        this.squaresScore = squaresScore;
     }
 
     public ChessBoard deepCopy() {
         assert pieces != null;
-        return new ChessBoard(turn,
-            Arrays.stream(pieces).map(byte[]::clone).toArray(byte[][]::new));
+        if (pieceCells == null) {
+            return new ChessBoard(turn, pieces.clone(), zobrist, null, null, 0);
+        }
+        var cellsCopy = new int[pieceCells.length][];
+        for (int piece = 0; piece < pieceCells.length; piece++) {
+            cellsCopy[piece] = pieceCells[piece].clone();
+        }
+        return new ChessBoard(turn, pieces.clone(), zobrist, cellsCopy, pieceCounts.clone(), squaresScore);
+    }
+
+    public long computeZobrist() {
+        assert pieces != null;
+        long key = turn.isBlack() ? Zobrist.BLACK_TURN : 0;
+        for (int i = 0; i < pieces.length; i++) {
+            key ^= Zobrist.PIECES[pieces[i]][i];
+        }
+        return key;
     }
 
     public static ChessBoard initial() {
@@ -128,6 +169,16 @@ public class ChessBoard {
 
     public void flipTurn() {
         turn = turn.opposite();
+        zobrist ^= Zobrist.BLACK_TURN;
+    }
+
+    public void setTurn(Turn turn) {
+        if (this.turn == null) {
+            this.turn = turn;
+            zobrist = computeZobrist();
+        } else if (this.turn != turn) {
+            flipTurn();
+        }
     }
 
     public void setPiece(Hexagon hex, byte piece) {
@@ -139,13 +190,106 @@ public class ChessBoard {
     }
 
     public void setPiece(int file, int rank, byte piece) {
-        assert pieces != null;
-        pieces[file][rank] = piece;
+        setPiece(Hexagon.indexOf(file, rank), piece);
     }
 
     public byte getPiece(int file, int rank) {
+        return getPiece(Hexagon.indexOf(file, rank));
+    }
+
+    public void setPiece(int index, byte piece) {
         assert pieces != null;
-        return pieces[file][rank];
+        var prevPiece = pieces[index];
+        zobrist ^= Zobrist.PIECES[prevPiece][index] ^ Zobrist.PIECES[piece][index];
+        pieces[index] = piece;
+
+        // if the piece lists haven't been built yet they will be built from the pieces when they're needed
+        if (pieceCells != null && prevPiece != piece) {
+            squaresScore += Evaluation.SQUARES[piece][index] - Evaluation.SQUARES[prevPiece][index];
+            if (prevPiece != EMPTY) {
+                removePieceCell(prevPiece, index);
+            }
+            if (piece != EMPTY) {
+                addPieceCell(piece, index);
+            }
+        }
+    }
+
+    public int pieceCount(byte piece) {
+        indexPieces();
+        return pieceCounts[piece];
+    }
+
+    // the cell of the i-th piece of a kind, in ascending cell order
+    public int pieceCell(byte piece, int i) {
+        indexPieces();
+        return pieceCells[piece][i];
+    }
+
+    // material and piece placement in centipawns, positive when white is ahead
+    public int squaresScore() {
+        indexPieces();
+        return squaresScore;
+    }
+
+    // the cell of the side's king, or -1 if the board doesn't have one
+    public int kingCell(Turn turn) {
+        var king = turn.isWhite() ? WHITE_KING : BLACK_KING;
+        return pieceCount(king) > 0 ? pieceCells[king][0] : -1;
+    }
+
+    private void indexPieces() {
+        if (pieceCells != null) {
+            return;
+        }
+        assert pieces != null;
+        pieceCells = new int[BLACK_KING + 1][];
+        pieceCounts = new int[BLACK_KING + 1];
+        for (int piece = 0; piece < pieceCells.length; piece++) {
+            pieceCells[piece] = new int[piece == WHITE_PAWN || piece == BLACK_PAWN ? 9 : 2];
+        }
+        squaresScore = 0;
+        for (int i = 0; i < pieces.length; i++) {
+            if (pieces[i] != EMPTY) {
+                addPieceCell(pieces[i], i);
+                squaresScore += Evaluation.SQUARES[pieces[i]][i];
+            }
+        }
+    }
+
+    private void addPieceCell(byte piece, int index) {
+        var cells = pieceCells[piece];
+        var count = pieceCounts[piece];
+        if (count == cells.length) {
+            cells = Arrays.copyOf(cells, cells.length * 2);
+            pieceCells[piece] = cells;
+        }
+        // keep the cells sorted so iterating a position gives the same order however it was reached
+        var i = count;
+        while (i > 0 && cells[i - 1] > index) {
+            cells[i] = cells[i - 1];
+            i--;
+        }
+        cells[i] = index;
+        pieceCounts[piece] = count + 1;
+    }
+
+    private void removePieceCell(byte piece, int index) {
+        var cells = pieceCells[piece];
+        var count = pieceCounts[piece];
+        var i = 0;
+        while (cells[i] != index) {
+            i++;
+        }
+        for (; i < count - 1; i++) {
+            cells[i] = cells[i + 1];
+        }
+        pieceCounts[piece] = count - 1;
+    }
+
+    public byte getPiece(int index) {
+        assert pieces != null;
+        return pieces[index];
     }
 
     public void setPiece(String notation, byte piece) {
@@ -174,12 +318,11 @@ public class ChessBoard {
     }
 
     public Hexagon findKing(Turn turn) {
-        for (var hex : Hexagon.ORDERED) {
-            if (getPiece(hex) == WHITE_KING && turn.isWhite() || getPiece(hex) == BLACK_KING && turn.isBlack()) {
-                return hex;
-            }
+        var king = kingCell(turn);
+        if (king < 0) {
+            throw new IllegalStateException("Board doesn't have a king");
         }
-        throw new IllegalStateException("Board doesn't have a king");
+        return Hexagon.ofIndex(king);
     }
 
     public static boolean isPieceTurn(byte piece, Turn turn) {
@@ -197,9 +340,7 @@ public class ChessBoard {
     }
 
     public boolean inBounds(int file, int rank) {
-        if (file < 0 || file >= FILES || rank < 0) return false;
-        assert pieces != null;
-        return rank < pieces[file].length;
+        return Hexagon.inBounds(file, rank);
     }
 
     public boolean inBounds(Hexagon hex) {
@@ -270,17 +411,14 @@ public class ChessBoard {
     }
 
     public String toPieceMovesString(List<PieceMoves> moves) {
-        var isAttacked = new boolean[FILES][];
-        for (int i = 0; i < isAttacked.length; i++) {
-            isAttacked[i] = new boolean[RANKS_PER_FILE[i]]; // defaulted to false
-        }
+        var isAttacked = new boolean[Hexagon.CELLS]; // defaulted to false
 
         for (var pm : moves) {
             for (var move : pm.getMoves()) {
-                isAttacked[move.getFile()][move.getRank()] = true;
+                isAttacked[move.index()] = true;
             }
         }
 
-        return toString((hex) -> isAttacked[hex.getFile()][hex.getRank()]);
+        return toString((hex) -> isAttacked[hex.index()]);
     }
 }
@@ -1,64 +1,124 @@
 package domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 import java.util.function.Function;
-import java.util.stream.Stream;
 
 import static domain.ChessBoard.*;
-import static domain.Hexagon.Direction;
+import static domain.MoveTables.*;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class ChessGame {
 
-    private final static Direction[][] ROOK_OFFSETS = {
-        {Direction.UP},
-        {Direction.DOWN},
-        {Direction.DOWN_LEFT},
-        {Direction.DOWN_RIGHT},
-        {Direction.UP_LEFT},
-        {Direction.UP_RIGHT}
-    };
-    private final static Direction[][] BISHOP_OFFSETS = {
-        {Direction.UP_RIGHT, Direction.DOWN_RIGHT},
-        {Direction.UP_LEFT, Direction.DOWN_LEFT},
-        {Direction.UP, Direction.UP_RIGHT},
-        {Direction.UP, Direction.UP_LEFT},
-        {Direction.DOWN, Direction.DOWN_RIGHT},
-        {Direction.DOWN, Direction.DOWN_LEFT}
-    };
-    private final static Direction[][] KING_OFFSETS =
-        Stream.concat(Arrays.stream(ROOK_OFFSETS), Arrays.stream(BISHOP_OFFSETS)).toArray(Direction[][]::new);
-    private final static Direction[][] KNIGHT_OFFSETS = {
-        {Direction.UP_RIGHT, Direction.UP_RIGHT, Direction.UP},
-        {Direction.UP_RIGHT, Direction.UP, Direction.UP},
-        {Direction.DOWN_RIGHT, Direction.DOWN_RIGHT, Direction.DOWN},
-        {Direction.DOWN_RIGHT, Direction.DOWN, Direction.DOWN},
-        {Direction.UP_LEFT, Direction.UP_LEFT, Direction.UP},
-        {Direction.UP_LEFT, Direction.UP, Direction.UP},
-        {Direction.DOWN_LEFT, Direction.DOWN_LEFT, Direction.DOWN},
-        {Direction.DOWN_LEFT, Direction.DOWN, Direction.DOWN},
-        {Direction.UP_LEFT, Direction.UP_LEFT, Direction.DOWN_LEFT},
-        {Direction.DOWN_LEFT, Direction.DOWN_LEFT, Direction.UP_LEFT},
-        {Direction.UP_RIGHT, Direction.UP_RIGHT, Direction.DOWN_RIGHT},
-        {Direction.DOWN_RIGHT, Direction.DOWN_RIGHT, Direction.UP_RIGHT},
-    };
-
     private ChessBoard board;
-    private List<PieceMoves> whiteMoves = null;
-    private List<PieceMoves> blackMoves = null;
+    @JsonIgnore
+    private MoveList whiteMoveList = null;
+    @JsonIgnore
+    private MoveList blackMoveList = null;
+
+    // the piece moves views are only built when something asks for them, e.g. the json protocol
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient List<PieceMoves> whiteMoves = null;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient List<PieceMoves> blackMoves = null;
+
+    // cellMoves[cell] caches the packed moves of the piece on that cell, null means it must be regenerated
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient int[][] cellMoves = null;
+    // cellAttacks[cell * 2 + word] caches the cells the piece on that cell attacks, valid whenever its cellMoves are
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient long[] cellAttacks = null;
+    // the cells each side attacks as of the last call to initPieceMoves, white in the first two words and black in the last two
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient long[] attacks = null;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient Deque<Undo> undoStack = null;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient Deque<MoveList> spareMoveLists = null;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient MoveList scratchMoves = null;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient KingSafety kingSafety = null;
+    // set when the game was stored without its move lists, they're generated the first time something asks for them
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient boolean movesPending = false;
+
+    // everything needed to take back a move: the changed cells, the previous turn, and the move caches it replaced
+    @Data
+    @AllArgsConstructor
+    public static class Undo {
+        int from;
+        int to;
+        byte moved;
+        byte captured;
+        Turn turn;
+        MoveList whiteMoveList;
+        MoveList blackMoveList;
+        int[] dirtyCells; // null if the cell move cache was cold when the move was made
+        int[][] dirtyMoves;
+        long[] dirtyAttacks;
+        long[] attacks;
+    }
+
+    public ChessGame(ChessBoard board, MoveList whiteMoveList, MoveList blackMoveList) {
+        this.board = board;
+        this.whiteMoveList = whiteMoveList;
+        this.blackMoveList = blackMoveList;
+    }
 
     public ChessGame deepCopy() {
-        return new ChessGame(board != null ? board.deepCopy() : null,
-            whiteMoves != null ? whiteMoves.stream().map(PieceMoves::deepCopy).toList() : null,
-            blackMoves != null ? blackMoves.stream().map(PieceMoves::deepCopy).toList() : null);
+        var game = new ChessGame(board != null ? board.deepCopy() : null,
+            whiteMoveList != null ? whiteMoveList.copy() : null,
+            blackMoveList != null ? blackMoveList.copy() : null);
+        game.movesPending = movesPending;
+        game.cellMoves = cellMoves != null ? cellMoves.clone() : null; // the cached arrays are never mutated, so they can be shared
+        game.cellAttacks = cellAttacks != null ? cellAttacks.clone() : null;
+        game.attacks = attacks != null ? attacks.clone() : null;
+        return game;
     }
 
     public static ChessGame start() {
@@ -73,8 +133,53 @@ public class ChessGame {
         this.board = board;
     }
 
+    // a game whose move lists were derived from the board and not stored with it, e.g. one read back from redis
+    public static ChessGame withPendingMoves(ChessBoard board) {
+        var game = new ChessGame(board);
+        game.movesPending = true;
+        return game;
+    }
+
+    // whether the move lists would be generated, or already are, for anything that asks for them
+    public boolean hasPieceMoves() {
+        return movesPending || whiteMoveList != null;
+    }
+
+    public MoveList getWhiteMoveList() {
+        ensurePieceMoves();
+        return whiteMoveList;
+    }
+
+    public MoveList getBlackMoveList() {
+        ensurePieceMoves();
+        return blackMoveList;
+    }
+
+    @JsonProperty("whiteMoves")
+    public List<PieceMoves> getWhiteMoves() {
+        ensurePieceMoves();
+        if (whiteMoves == null && whiteMoveList != null) {
+            whiteMoves = whiteMoveList.toPieceMoves();
+        }
+        return whiteMoves;
+    }
+
+    @JsonProperty("blackMoves")
+    public List<PieceMoves> getBlackMoves() {
+        ensurePieceMoves();
+        if (blackMoves == null && blackMoveList != null) {
+            blackMoves = blackMoveList.toPieceMoves();
+        }
+        return blackMoves;
+    }
+
+    public MoveList getMoveList(Turn turn) {
+        ensurePieceMoves();
+        return turn.isWhite() ? whiteMoveList : blackMoveList;
+    }
+
     public List<PieceMoves> getPieceMoves(Turn turn) {
-        return turn.isWhite() ? whiteMoves : blackMoves;
+        return turn.isWhite() ? getWhiteMoves() : getBlackMoves();
     }
 
     public List<PieceMoves> getCurrMoves() {
@@ -85,155 +190,374 @@ public class ChessGame {
         return getPieceMoves(board.turn().opposite());
     }
 
+    public void setBoard(ChessBoard board) {
+        this.board = board;
+        cellMoves = null;
+        attacks = null;
+    }
+
     public ChessGame setPiece(String notation, byte piece) {
         board.setPiece(notation, piece);
+        cellMoves = null;
+        attacks = null;
         return this;
     }
 
     public boolean isValidMove(Move move) {
         assert move != null;
-        assert whiteMoves != null;
-        assert blackMoves != null;
-
-        var moves = getCurrMoves();
+        ensurePieceMoves();
+        assert whiteMoveList != null;
+        assert blackMoveList != null;
 
         // has a match for a move from one hexagon to another hexagon
-        return moves.stream()
-            .anyMatch((pm) -> {
-                var isFrom = pm.getHex().equals(move.getFrom());
-                var hasTo = pm.getMoves().stream().anyMatch((m) -> m.equals(move.getTo()));
-                return isFrom && hasTo;
-            });
+        return getMoveList(board.turn()).contains(move);
     }
 
-    public void makeMove(Move move) {
-        makeMove(move.getFrom(), move.getTo());
+    public Undo makeMove(Move move) {
+        return makeMove(move.getFrom(), move.getTo());
     }
 
-    public void makeMove(Hexagon from, Hexagon to) {
+    public Undo makeMove(Hexagon from, Hexagon to) {
+        return makeMove(from.index(), to.index());
+    }
+
+    public Undo makeMove(int from, int to) {
         var piece = board.getPiece(from);
+        var captured = board.getPiece(to);
+        var turn = board.turn();
+
+        // only pieces that can reach one of the two changed cells need their moves regenerated
+        int[] dirtyCells = null;
+        int[][] dirtyMoves = null;
+        long[] dirtyAttacks = null;
+        if (cellMoves != null) {
+            var cells = new int[Hexagon.CELLS];
+            var count = 0;
+            cells[count++] = from;
+            cells[count++] = to;
+            for (byte cellPiece = WHITE_PAWN; cellPiece <= BLACK_KING; cellPiece++) {
+                for (int j = 0, n = board.pieceCount(cellPiece); j < n; j++) {
+                    var i = board.pieceCell(cellPiece, j);
+                    if (i != from && i != to && (reaches(cellPiece, i, from) || reaches(cellPiece, i, to))) {
+                        cells[count++] = i;
+                    }
+                }
+            }
+            dirtyCells = Arrays.copyOf(cells, count);
+            dirtyMoves = new int[count][];
+            dirtyAttacks = new long[count * 2];
+            for (int i = 0; i < count; i++) {
+                dirtyMoves[i] = cellMoves[dirtyCells[i]];
+                cellMoves[dirtyCells[i]] = null;
+                System.arraycopy(cellAttacks, dirtyCells[i] * 2, dirtyAttacks, i * 2, 2);
+            }
+        }
+
         board.setPiece(from, EMPTY);
         board.setPiece(to, piece);
         board.flipTurn();
 
+        // the previous move lists are kept for the undo, and spare buffers are used until the next call to initPieceMoves
+        var undo = new Undo(from, to, piece, captured, turn, whiteMoveList, blackMoveList, dirtyCells, dirtyMoves, dirtyAttacks, attacks);
+        whiteMoveList = whiteMoveList != null ? takeSpareMoveList() : null;
+        blackMoveList = blackMoveList != null ? takeSpareMoveList() : null;
         whiteMoves = null;
         blackMoves = null;
+        attacks = null;
+
+        if (undoStack == null) {
+            undoStack = new ArrayDeque<>();
+        }
+        undoStack.push(undo);
+        return undo;
+    }
+
+    public void unmakeMove() {
+        if (undoStack == null || undoStack.isEmpty()) {
+            throw new IllegalStateException("There is no move to unmake");
+        }
+        unmakeMove(undoStack.peek());
+    }
+
+    public void unmakeMove(Undo undo) {
+        if (undoStack == null || undoStack.peek() != undo) {
+            throw new IllegalStateException("Moves must be unmade in the reverse order they were made");
+        }
+        undoStack.pop();
+
+        board.setPiece(undo.to, undo.captured);
+        board.setPiece(undo.from, undo.moved);
+        board.setTurn(undo.turn);
+
+        // the lists were first generated after the move, so the position before it gets them the same way
+        movesPending |= undo.whiteMoveList == null && whiteMoveList != null;
+        recycleMoveList(whiteMoveList);
+        recycleMoveList(blackMoveList);
+        whiteMoveList = undo.whiteMoveList;
+        blackMoveList = undo.blackMoveList;
+        whiteMoves = null;
+        blackMoves = null;
+        attacks = undo.attacks;
+
+        if (undo.dirtyCells == null) {
+            // we didn't have a cache before the move, so whatever was cached since then belongs to the wrong position
+            cellMoves = null;
+        } else if (cellMoves != null) {
+            for (int i = 0; i < undo.dirtyCells.length; i++) {
+                cellMoves[undo.dirtyCells[i]] = undo.dirtyMoves[i];
+                System.arraycopy(undo.dirtyAttacks, i * 2, cellAttacks, undo.dirtyCells[i] * 2, 2);
+            }
+        }
+    }
+
+    private void ensurePieceMoves() {
+        if (movesPending) {
+            initPieceMoves();
+        }
+    }
+
+    private MoveList takeSpareMoveList() {
+        var moves = spareMoveLists != null ? spareMoveLists.poll() : null;
+        return moves != null ? moves : new MoveList();
+    }
+
+    private void recycleMoveList(MoveList moves) {
+        if (moves == null) {
+            return;
+        }
+        if (spareMoveLists == null) {
+            spareMoveLists = new ArrayDeque<>();
+        }
+        moves.clear();
+        spareMoveLists.push(moves);
     }
 
     public void initPieceMoves() {
-        // we find the piece moves for all other pieces besides the king
-        whiteMoves = findPieceMoves(Turn.WHITE);
-        blackMoves = findPieceMoves(Turn.BLACK);
-
-        var whiteKingHex = board.findKing(Turn.WHITE);
-        var blackKingHex = board.findKing(Turn.BLACK);
-
-        // find the moves for both kings - excluding any attacking squares
-        var whiteKingMoves = new PieceMoves(whiteKingHex, findKingMoves(whiteKingHex));
-        var blackKingMoves = new PieceMoves(blackKingHex, findKingMoves(blackKingHex));
-        var kingHex = board.turn().isWhite() ? whiteKingHex : blackKingHex;
-
-        // decide whether we will add the piece moves... are we in check?
-        // we don't need to check if the opposite move is in check... it should never be!
-        var currMoves = getCurrMoves();
-        var oppMoves = getOppositeMoves();
-        var isAttacked = findAttacking(oppMoves);
-        var isCheck = isAttacked[kingHex.getFile()][kingHex.getRank()];
-        if (isCheck) {
-            // if the current king is in check, we cannot move any other pieces
-            // TODO: add support for maintaining all "blocking" moves
-            currMoves.clear();
-        }
-
-        // now, we can add the king moves
-        whiteMoves.add(whiteKingMoves);
-        blackMoves.add(blackKingMoves);
-    }
-
-    public boolean[][] findAttacking(List<PieceMoves> moves) {
-        var isAttacked = new boolean[FILES][];
-        for (var i = 0; i < isAttacked.length; i++) {
-            isAttacked[i] = new boolean[RANKS_PER_FILE[i]]; // defaulted to false
-        }
-
-        for (var pm : moves) {
-            for (var move : pm.getMoves()) {
-                // make an exception for the pawn... which does not attack when moving ahead
-                var piece = board.getPiece(pm.getHex());
-                var isMovingAhead = move.getRank() > pm.getHex().getRank();
-                if (isPawn(piece) && isMovingAhead) {
-                    continue;
+        movesPending = false;
+        if (whiteMoveList == null) {
+            whiteMoveList = new MoveList();
+        }
+        if (blackMoveList == null) {
+            blackMoveList = new MoveList();
+        }
+        if (cellMoves == null) {
+            cellMoves = new int[Hexagon.CELLS][];
+        }
+        if (cellAttacks == null) {
+            cellAttacks = new long[Hexagon.CELLS * 2];
+        }
+        if (attacks == null) {
+            attacks = new long[4];
+        }
+        Arrays.fill(attacks, 0);
+        whiteMoveList.clear();
+        blackMoveList.clear();
+        whiteMoves = null;
+        blackMoves = null;
+
+        var whiteKing = board.kingCell(Turn.WHITE);
+        var blackKing = board.kingCell(Turn.BLACK);
+        if (whiteKing == NONE || blackKing == NONE) {
+            throw new IllegalStateException("Board doesn't have a king");
+        }
+
+        // we regenerate only the piece moves and attacks a move touched, walking the piece lists instead of every cell
+        for (byte piece = WHITE_PAWN; piece <= BLACK_KING; piece++) {
+            var side = isWhite(piece) ? 0 : 2;
+            for (int j = 0, n = board.pieceCount(piece); j < n; j++) {
+                var i = board.pieceCell(piece, j);
+                if (cellMoves[i] == null) {
+                    cellMoves[i] = findCellMoves(i);
+                    findCellAttacks(i, cellAttacks);
                 }
-                isAttacked[move.getFile()][move.getRank()] = true;
+                attacks[side] |= cellAttacks[i * 2];
+                attacks[side + 1] |= cellAttacks[i * 2 + 1];
             }
         }
-        return isAttacked;
-    }
 
-    public boolean isCheckmate() {
+        // the side to move only keeps the moves that don't leave its king in check
+        // we don't need to filter the opposite moves... it can never be their turn in this position!
         var turn = board.turn();
-        var kingHex = board.findKing(turn);
-        var pieceMoves = getPieceMoves(turn);
-        var oppPieceMoves = getPieceMoves(turn.opposite());
-        var kingMoves = pieceMoves.get(pieceMoves.size() - 1);
+        var king = turn.isWhite() ? whiteKing : blackKing;
+        var safety = getKingSafety();
+        safety.compute(board, king, attacks, turn.isWhite() ? 2 : 0);
+
+        // we gather the piece moves for all other pieces besides the king, grouped by the kind of piece
+        for (byte piece = WHITE_PAWN; piece < WHITE_KING; piece++) {
+            var moves = isWhite(piece) ? whiteMoveList : blackMoveList;
+            var isTurn = isPieceTurn(piece, turn);
+            for (int j = 0, n = board.pieceCount(piece); j < n; j++) {
+                var i = board.pieceCell(piece, j);
+                moves.addSource(i);
+                if (!isTurn) {
+                    moves.addAll(cellMoves[i]);
+                    continue;
+                }
+                for (var move : cellMoves[i]) {
+                    if (safety.allows(i, MoveList.toOf(move))) {
+                        moves.add(move);
+                    }
+                }
+            }
+        }
 
-        // the LAST element should always be the king moves!
-        assert (board.getPiece(kingMoves.getHex()) == (turn.isWhite() ? WHITE_KING : BLACK_KING));
+        // now, we can add the king moves - the side to move can't step onto an attacked hexagon
+        addKingMoves(whiteKing, whiteMoveList, king == whiteKing ? safety : null);
+        addKingMoves(blackKing, blackMoveList, king == blackKing ? safety : null);
+    }
 
-        // a king must be checked to be in checkmate
-        var isAttacked = findAttacking(oppPieceMoves);
-        var isChecked = isAttacked[kingHex.getFile()][kingHex.getRank()];
-        if (!isChecked) {
-            return false;
+    private void addKingMoves(int king, MoveList moves, KingSafety safety) {
+        moves.addSource(king);
+        for (var move : cellMoves[king]) {
+            if (safety == null || !safety.isAttacked(MoveList.toOf(move))) {
+                moves.add(move);
+            }
         }
+    }
 
-        // and all hexagons it can move to must be attacked (aka the opponent can move there)
-        for (var move : kingMoves.getMoves()) {
-            if (!isAttacked[move.getFile()][move.getRank()])
-                return false;
+    private KingSafety getKingSafety() {
+        if (kingSafety == null) {
+            kingSafety = new KingSafety();
         }
+        return kingSafety;
+    }
 
-        // TODO: add support for maintaining all "blocking" moves
-        // TODO: add support for preventing taking defended attackers
-        return true;
+    // generates the moves of whatever piece is on the cell, packed into a standalone array
+    private int[] findCellMoves(int cell) {
+        if (scratchMoves == null) {
+            scratchMoves = new MoveList();
+        }
+        scratchMoves.clear();
+        findCellMoves(cell, scratchMoves);
+        return scratchMoves.toArray();
     }
 
-    // finds all pieces moves excluding the king moves, which are handled elsewhere
-    public List<PieceMoves> findPieceMoves(Turn turn) {
-        List<PieceMoves> moves = new ArrayList<>();
-        for (var hex : Hexagon.ORDERED) {
-            var piece = board.getPiece(hex);
-            if (piece != EMPTY && isPieceTurn(piece, turn)) {
-                // we check the piece type to find the right piece moves (we have already checked the color)
-                switch (piece) {
-                    case WHITE_ROOK, BLACK_ROOK -> moves.add(findRookMoves(hex));
-                    case WHITE_BISHOP, BLACK_BISHOP -> moves.add(findBishopMoves(hex));
-                    case WHITE_QUEEN, BLACK_QUEEN -> moves.add(findQueenMoves(hex));
-                    case WHITE_KNIGHT, BLACK_KNIGHT -> moves.add(findKnightMoves(hex));
-                    case WHITE_PAWN, BLACK_PAWN -> moves.add(findPawnMoves(hex, turn));
-                    case WHITE_KING, BLACK_KING -> {
-                    } // this is a no-op, we find the king moves in a separate function
-                    default -> throw new IllegalStateException("Board has invalid piece " + piece + " at hexagon " + hex);
+    // marks every cell the piece on the cell attacks, including the pieces of its own side that it defends
+    public void findCellAttacks(int cell, long[] cellAttacks) {
+        cellAttacks[cell * 2] = 0;
+        cellAttacks[cell * 2 + 1] = 0;
+        var piece = board.getPiece(cell);
+        switch (piece) {
+            case WHITE_PAWN -> {
+                attack(cellAttacks, cell, WHITE_TAKE_LEFT[cell]);
+                attack(cellAttacks, cell, WHITE_TAKE_RIGHT[cell]);
+            }
+            case BLACK_PAWN -> {
+                attack(cellAttacks, cell, BLACK_TAKE_LEFT[cell]);
+                attack(cellAttacks, cell, BLACK_TAKE_RIGHT[cell]);
+            }
+            case WHITE_KNIGHT, BLACK_KNIGHT, WHITE_KING, BLACK_KING -> {
+                // jumps can't be blocked, so they attack everything they reach
+                cellAttacks[cell * 2] = REACH[piece][cell * 2];
+                cellAttacks[cell * 2 + 1] = REACH[piece][cell * 2 + 1];
+            }
+            case WHITE_ROOK, BLACK_ROOK -> attackAlong(cellAttacks, cell, ROOK_RAYS[cell]);
+            case WHITE_BISHOP, BLACK_BISHOP -> attackAlong(cellAttacks, cell, BISHOP_RAYS[cell]);
+            case WHITE_QUEEN, BLACK_QUEEN -> attackAlong(cellAttacks, cell, QUEEN_RAYS[cell]);
+            case EMPTY -> {
+            } // an empty cell attacks nothing
+            default -> throw new IllegalStateException("Board has invalid piece " + piece + " at hexagon " + Hexagon.ofIndex(cell));
+        }
+    }
+
+    private void attackAlong(long[] cellAttacks, int cell, int[][] rays) {
+        for (var ray : rays) {
+            for (var target : ray) {
+                attack(cellAttacks, cell, target);
+                if (board.getPiece(target) != EMPTY) {
+                    break;
                 }
             }
         }
+    }
+
+    private static void attack(long[] cellAttacks, int cell, int target) {
+        if (target != NONE) {
+            cellAttacks[cell * 2 + (target >>> 6)] |= 1L << target;
+        }
+    }
+
+    public void findCellMoves(int cell, MoveList moves) {
+        var piece = board.getPiece(cell);
+        // we check the piece type to find the right piece moves
+        switch (piece) {
+            case WHITE_ROOK, BLACK_ROOK -> findMovesByTraveling(cell, ROOK_RAYS, moves);
+            case WHITE_BISHOP, BLACK_BISHOP -> findMovesByTraveling(cell, BISHOP_RAYS, moves);
+            case WHITE_QUEEN, BLACK_QUEEN -> findMovesByTraveling(cell, QUEEN_RAYS, moves);
+            case WHITE_KNIGHT, BLACK_KNIGHT -> findOffsetMoves(cell, KNIGHT_JUMPS, moves);
+            case WHITE_PAWN, BLACK_PAWN -> findPawnMoves(cell, isWhite(piece) ? Turn.WHITE : Turn.BLACK, moves);
+            case WHITE_KING, BLACK_KING -> findOffsetMoves(cell, KING_JUMPS, moves);
+            case EMPTY -> {
+            } // this is a no-op, there is nothing to move
+            default -> throw new IllegalStateException("Board has invalid piece " + piece + " at hexagon " + Hexagon.ofIndex(cell));
+        }
+    }
+
+    public boolean isCheck() {
+        var turn = board.turn();
+        var king = board.findKing(turn).index();
+        if (attacks == null) {
+            // the attack sets are only known after initPieceMoves, so we walk the rays from the king instead
+            var safety = getKingSafety();
+            safety.findChecksAndPins(board, king);
+            return safety.isCheck();
+        }
+        return isSet(attacks, turn.isWhite() ? 2 : 0, king);
+    }
+
+    public boolean isCheckmate() {
+        ensurePieceMoves();
+        assert whiteMoveList != null;
+        assert blackMoveList != null;
+
+        // the moves of the side to move are all legal, so it is mate when it is in check and has nothing left to play
+        return getMoveList(board.turn()).isEmpty() && isCheck();
+    }
+
+    // the score in centipawns from the point of view of the side to move, after initPieceMoves
+    // material and placement come from the board's running sum, and mobility from the move lists, which are both kept up incrementally
+    // only the side to move has its moves filtered for legality, so its mobility counts a few less moves when pieces are pinned
+    public int evaluate() {
+        ensurePieceMoves();
+        assert whiteMoveList != null;
+        assert blackMoveList != null;
+
+        var score = board.squaresScore() + Evaluation.MOBILITY_WEIGHT * (whiteMoveList.size() - blackMoveList.size());
+        return board.turn().isWhite() ? score : -score;
+    }
+
+    // finds all pieces moves excluding the king moves, which are handled elsewhere
+    public MoveList findPieceMoves(Turn turn) {
+        var moves = new MoveList();
+        findPieceMoves(turn, moves);
         return moves;
     }
 
+    public void findPieceMoves(Turn turn, MoveList moves) {
+        moves.clear();
+        for (var piece = turn.isWhite() ? WHITE_PAWN : BLACK_PAWN; piece < WHITE_KING; piece += 2) {
+            for (int j = 0; j < board.pieceCount(piece); j++) {
+                var cell = board.pieceCell(piece, j);
+                moves.addSource(cell);
+                findCellMoves(cell, moves);
+            }
+        }
+    }
+
     public PieceMoves findRookMoves(Hexagon hex) {
-        return new PieceMoves(hex, findMovesByTraveling(hex, ROOK_OFFSETS));
+        return new PieceMoves(hex, findMovesByTraveling(hex, ROOK_RAYS));
     }
 
     public PieceMoves findBishopMoves(Hexagon hex) {
-        return new PieceMoves(hex, findMovesByTraveling(hex, BISHOP_OFFSETS));
+        return new PieceMoves(hex, findMovesByTraveling(hex, BISHOP_RAYS));
     }
 
     public PieceMoves findQueenMoves(Hexagon hex) {
-        return new PieceMoves(hex, findMovesByTraveling(hex, KING_OFFSETS));
+        return new PieceMoves(hex, findMovesByTraveling(hex, QUEEN_RAYS));
     }
 
     public PieceMoves findKnightMoves(Hexagon hex) {
-        return new PieceMoves(hex, findOffsetMoves(hex, KNIGHT_OFFSETS));
+        return new PieceMoves(hex, findOffsetMoves(hex, KNIGHT_JUMPS));
     }
 
     // finds ALL the king moves and returns it directly to a list
@@ -243,112 +567,101 @@ public class ChessGame {
     }
 
     public List<Hexagon> findKingMoves(Hexagon hex, Function<Hexagon, Boolean> isNotAttacked) {
-        return findOffsetMoves(hex, KING_OFFSETS, isNotAttacked);
+        return findOffsetMoves(hex, KING_JUMPS, isNotAttacked);
     }
 
-    private static final Direction[] WHITE_AHEAD = {Direction.UP};
-    private static final Direction[] WHITE_TAKE_LEFT = {Direction.UP_LEFT};
-    private static final Direction[] WHITE_TAKE_RIGHT = {Direction.UP_RIGHT};
-    private static final Direction[] BLACK_AHEAD = {Direction.DOWN};
-    private static final Direction[] BLACK_TAKE_LEFT = {Direction.DOWN_LEFT};
-    private static final Direction[] BLACK_TAKE_RIGHT = {Direction.DOWN_RIGHT};
-
     public PieceMoves findPawnMoves(Hexagon hex, Turn turn) {
-        var basePiece = board.getPiece(hex);
-        List<Hexagon> moves = new ArrayList<>();
+        var moves = new MoveList();
+        findPawnMoves(hex.index(), turn, moves);
+        return new PieceMoves(hex, moves.toHexagons());
+    }
+
+    public void findPawnMoves(int from, Turn turn, MoveList moves) {
+        var basePiece = board.getPiece(from);
+        var ahead = turn.isWhite() ? WHITE_AHEAD : BLACK_AHEAD;
 
         // we can always move one rank ahead on the same file
-        var move1 = hex.walk(turn.isWhite() ? WHITE_AHEAD : BLACK_AHEAD);
-        if (board.inBounds(move1)) {
+        var move1 = ahead[from];
+        if (move1 != NONE) {
             var piece = board.getPiece(move1);
             if (piece == EMPTY) {
-                moves.add(move1);
+                moves.add(from, move1);
             }
         }
 
-        // we can move a rank ahead of that if we haven't moved yet!
-        var move2 = move1.walk(turn.isWhite() ? WHITE_AHEAD : BLACK_AHEAD);
-        if (board.inBounds(move2) && !hasPawnMoved(hex, basePiece)) {
+        // we can move a rank ahead of that if we haven't moved yet, as long as nothing is in the way!
+        var move2 = move1 != NONE && board.getPiece(move1) == EMPTY ? ahead[move1] : NONE;
+        if (move2 != NONE && !hasPawnMoved(Hexagon.ofIndex(from), basePiece)) {
             var piece = board.getPiece(move2);
             if (piece == EMPTY) {
-                moves.add(move2);
+                moves.add(from, move2);
             }
         }
 
         // we can also take in adjacent ranks
-        var move3 = hex.walk(turn.isWhite() ? WHITE_TAKE_LEFT : BLACK_TAKE_LEFT);
-        if (board.inBounds(move3)) {
+        var move3 = (turn.isWhite() ? WHITE_TAKE_LEFT : BLACK_TAKE_LEFT)[from];
+        if (move3 != NONE) {
             var piece = board.getPiece(move3);
             if (piece != EMPTY && areOpposite(basePiece, piece)) {
-                moves.add(move3);
+                moves.add(from, move3);
             }
         }
 
-        var move4 = hex.walk(turn.isWhite() ? WHITE_TAKE_RIGHT : BLACK_TAKE_RIGHT);
-        if (board.inBounds(move4)) {
+        var move4 = (turn.isWhite() ? WHITE_TAKE_RIGHT : BLACK_TAKE_RIGHT)[from];
+        if (move4 != NONE) {
             var piece = board.getPiece(move4);
             if (piece != EMPTY && areOpposite(basePiece, piece)) {
-                moves.add(move4);
+                moves.add(from, move4);
             }
         }
-
-        return new PieceMoves(hex, moves);
     }
 
-    // travel along the offsets - aka keep on going until we can't move in that direction
-    public List<Hexagon> findMovesByTraveling(Hexagon hex, Direction[][] directions) {
-        var basePiece = board.getPiece(hex);
-        List<Hexagon> moves = new ArrayList<>();
-
-        for (var direction : directions) {
-            var move = hex;
-
-            while (true) {
-                move = move.walk(direction);
+    public List<Hexagon> findMovesByTraveling(Hexagon hex, int[][][] raysTable) {
+        var moves = new MoveList();
+        findMovesByTraveling(hex.index(), raysTable, moves);
+        return moves.toHexagons();
+    }
 
-                if (!board.inBounds(move)) {
-                    break;
-                }
+    // travel along the precomputed rays - aka keep on going until we hit a piece, the rays already stop at the edge
+    public void findMovesByTraveling(int from, int[][][] raysTable, MoveList moves) {
+        var basePiece = board.getPiece(from);
 
+        for (var ray : raysTable[from]) {
+            for (var move : ray) {
                 var piece = board.getPiece(move);
                 if (piece == EMPTY) {
                     // we can move here and keep going!
-                    moves.add(move);
+                    moves.add(from, move);
                 } else {
                     // we cannot keep going - maybe we can take if the piece is opposite color
                     if (areOpposite(piece, basePiece)) {
-                        moves.add(move);
+                        moves.add(from, move);
                     }
                     break;
                 }
             }
         }
-
-        return moves;
     }
 
-    public List<Hexagon> findOffsetMoves(Hexagon hex, Direction[][] directions) {
-        return findOffsetMoves(hex, directions, (x) -> true);
+    public List<Hexagon> findOffsetMoves(Hexagon hex, int[][] jumpsTable) {
+        return findOffsetMoves(hex, jumpsTable, (x) -> true);
     }
 
-    public List<Hexagon> findOffsetMoves(Hexagon hex, Direction[][] directions, Function<Hexagon, Boolean> canMoveTo) {
-        var basePiece = board.getPiece(hex);
-        List<Hexagon> moves = new ArrayList<>();
+    public List<Hexagon> findOffsetMoves(Hexagon hex, int[][] jumpsTable, Function<Hexagon, Boolean> canMoveTo) {
+        var moves = new MoveList();
+        findOffsetMoves(hex.index(), jumpsTable, moves);
+        return moves.toHexagons().stream().filter(canMoveTo::apply).toList();
+    }
 
-        for (var direction : directions) {
-            var move = hex.walk(direction);
-            if (!board.inBounds(move)) {
-                continue;
-            }
+    public void findOffsetMoves(int from, int[][] jumpsTable, MoveList moves) {
+        var basePiece = board.getPiece(from);
 
+        for (var move : jumpsTable[from]) {
             var piece = board.getPiece(move);
             var canMoveHex = piece == EMPTY || areOpposite(basePiece, piece); // short-circuiting prevents us from checking if an empty piece is opposite
-
-            if (canMoveHex && canMoveTo.apply(move)) {
-                moves.add(move);
+            if (canMoveHex) {
+                moves.add(from, move);
             }
         }
-
-        return moves;
     }
 }
@@ -0,0 +1,64 @@
+package domain;
+
+import static domain.ChessBoard.*;
+import static domain.Hexagon.CELLS;
+import static domain.Hexagon.MIDPOINT;
+
+// piece values and piece-square tables, the board sums these incrementally as pieces are set so a position is scored in constant time
+final class Evaluation {
+
+    // indexed by piece, the king is never captured so it has no value
+    static final int[] PIECE_VALUES = {0, 100, 100, 300, 300, 325, 325, 500, 500, 900, 900, 0, 0};
+
+    static final int MOBILITY_WEIGHT = 2; // per move the side has over the other
+
+    // SQUARES[piece][cell] is the material plus placement score of a piece on a cell, positive for white and negative for black
+    static final int[][] SQUARES = computeSquares();
+
+    private Evaluation() {
+    }
+
+    // hexagon distance, using the sheared coordinates where moving up right raises the rank on every file
+    static int distance(int cell1, int cell2) {
+        var hex1 = Hexagon.ofIndex(cell1);
+        var hex2 = Hexagon.ofIndex(cell2);
+        var dFile = hex2.getFile() - hex1.getFile();
+        var dRank = (hex2.getRank() + Math.max(0, hex2.getFile() - MIDPOINT)) - (hex1.getRank() + Math.max(0, hex1.getFile() - MIDPOINT));
+        return Math.max(Math.abs(dFile), Math.max(Math.abs(dRank), Math.abs(dFile - dRank)));
+    }
+
+    // the cell on the other side of the board's horizontal axis, which is where black's pieces mirror white's
+    static int mirror(int cell) {
+        var hex = Hexagon.ofIndex(cell);
+        return Hexagon.indexOf(hex.getFile(), RANKS_PER_FILE[hex.getFile()] - 1 - hex.getRank());
+    }
+
+    // the placement bonus for a white piece, black uses the mirrored cell
+    static int placement(byte piece, int cell) {
+        var hex = Hexagon.ofIndex(cell);
+        var centrality = MIDPOINT - distance(cell, Hexagon.indexOf(MIDPOINT, MIDPOINT)); // 5 in the center, 0 on the rim
+        return switch (piece) {
+            // pawns gain for every step past the rank they start on, and a little for holding the center files
+            case WHITE_PAWN -> 8 * (hex.getRank() - (MIDPOINT - 1 - Math.abs(hex.getFile() - MIDPOINT))) + 2 * centrality;
+            case WHITE_KNIGHT -> 6 * centrality - 10;
+            case WHITE_BISHOP -> 4 * centrality - 6;
+            case WHITE_ROOK -> 2 * centrality - 4;
+            case WHITE_QUEEN -> 2 * centrality - 4;
+            // the king stays out of the middle, where every line on the board can reach it
+            case WHITE_KING -> -6 * centrality;
+            default -> throw new IllegalStateException("Placement is only defined for white pieces, got " + piece);
+        };
+    }
+
+    private static int[][] computeSquares() {
+        var squares = new int[BLACK_KING + 1][CELLS]; // the empty piece row stays zero
+        for (byte piece = WHITE_PAWN; piece <= WHITE_KING; piece += 2) {
+            for (int cell = 0; cell < CELLS; cell++) {
+                var score = PIECE_VALUES[piece] + placement(piece, cell);
+                squares[piece][cell] = score;
+                squares[piece + 1][mirror(cell)] = -score;
+            }
+        }
+        return squares;
+    }
+}
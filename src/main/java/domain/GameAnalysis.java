@@ -0,0 +1,89 @@
+package domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// replays a finished game and scores every move against the best move the search finds in the same position
+public class GameAnalysis {
+
+    public static final int BEST = 0;
+    public static final int GOOD = 1;
+    public static final int INACCURACY = 2;
+    public static final int MISTAKE = 3;
+    public static final int BLUNDER = 4;
+
+    // a mate is worth this much when measuring a loss, so missing one reads as a blunder without swamping every other number
+    private static final int SCORE_CAP = 2000;
+
+    @Data
+    @AllArgsConstructor
+    public static class MoveAnalysis {
+        private int ply;
+        private Move move;
+        private Move bestMove;
+        private int bestScore; // the score for the side that moved had it played the best move instead
+        private int score; // the score for the side that moved after the move was played
+        private int loss; // how many centipawns the move gave up compared to the best move, never negative
+        private int classification;
+    }
+
+    private GameAnalysis() {
+    }
+
+    public static int classify(int loss) {
+        if (loss <= 0) {
+            return BEST;
+        } else if (loss < 50) {
+            return GOOD;
+        } else if (loss < 100) {
+            return INACCURACY;
+        } else if (loss < 300) {
+            return MISTAKE;
+        }
+        return BLUNDER;
+    }
+
+    // the played move and the best move are both scored by searching the position they lead to, so the two scores are measured
+    // the same way, a side to move bias in the evaluation would otherwise show up as a loss on every move
+    public static List<MoveAnalysis> analyze(List<Move> moves, Search search, Search.Limits limits) {
+        var game = ChessGame.start();
+        List<MoveAnalysis> analyses = new ArrayList<>();
+
+        // the search of each position gives the best move there, and the score after the move that led to it
+        var result = search.findBestMove(game, limits);
+        for (int i = 0; i < moves.size(); i++) {
+            var move = moves.get(i);
+            var bestMove = result.getMove();
+
+            game.initPieceMoves();
+            if (!game.isValidMove(move)) {
+                throw new IllegalStateException("Move " + move + " at ply " + i + " is not valid in the replayed game");
+            }
+
+            var bestScore = 0;
+            if (bestMove != null && !bestMove.equals(move)) {
+                var undo = game.makeMove(bestMove);
+                bestScore = -capScore(search.findBestMove(game, limits).getScore());
+                game.unmakeMove(undo);
+            }
+
+            game.makeMove(move);
+            result = search.findBestMove(game, limits);
+            var score = -capScore(result.getScore());
+            if (bestMove == null || bestMove.equals(move)) {
+                bestScore = score;
+            }
+
+            var loss = Math.max(0, bestScore - score);
+            analyses.add(new MoveAnalysis(i, move, bestMove, bestScore, score, loss, classify(loss)));
+        }
+        return analyses;
+    }
+
+    private static int capScore(int score) {
+        return Math.max(-SCORE_CAP, Math.min(SCORE_CAP, score));
+    }
+}
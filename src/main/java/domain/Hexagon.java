@@ -1,8 +1,11 @@
 package domain;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -10,22 +13,56 @@ import java.util.List;
 import static domain.ChessBoard.FILES;
 import static domain.ChessBoard.RANKS_PER_FILE;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
-public class Hexagon {
-    public static final Hexagon[] ORDERED = getOrdered();
+// hexagons are immutable and interned: every on board cell has exactly one instance, so they can be shared freely
+@Getter
+@EqualsAndHashCode
+public final class Hexagon {
     public static final int MIDPOINT = 5;
+    public static final int[] FILE_OFFSETS = getFileOffsets(); // index of the first rank of each file in the flat layout
+    public static final int CELLS = FILE_OFFSETS[FILES]; // 91 cells, indexed in file-major order
+    public static final Hexagon[] ORDERED = getOrdered(); // ORDERED[i] is the hexagon at flat index i
+    public static final Hexagon OFF_BOARD = new Hexagon(-1, -1, -1); // returned for any coordinate that isn't on the board
 
-    int file;
-    int rank;
+    private final int file;
+    private final int rank;
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @Getter(AccessLevel.NONE)
+    private final int index;
 
-    public static Hexagon of(int file, int rank) {
-        return new Hexagon(file, rank);
+    private Hexagon(int file, int rank, int index) {
+        this.file = file;
+        this.rank = rank;
+        this.index = index;
+    }
+
+    @JsonCreator
+    public static Hexagon of(@JsonProperty("file") int file, @JsonProperty("rank") int rank) {
+        return inBounds(file, rank) ? ORDERED[indexOf(file, rank)] : OFF_BOARD;
+    }
+
+    public static Hexagon ofIndex(int index) {
+        return ORDERED[index];
     }
 
     public Hexagon deepCopy() {
-        return new Hexagon(file, rank);
+        return this; // instances are immutable, so a copy is the same hexagon
+    }
+
+    public static int indexOf(int file, int rank) {
+        return FILE_OFFSETS[file] + rank;
+    }
+
+    public int index() {
+        return index;
+    }
+
+    public boolean isOffBoard() {
+        return this == OFF_BOARD;
+    }
+
+    public static boolean inBounds(int file, int rank) {
+        return file >= 0 && file < FILES && rank >= 0 && rank < RANKS_PER_FILE[file];
     }
 
     public enum Direction {
@@ -77,20 +114,39 @@ public class Hexagon {
         };
     }
 
+    private static int[] getFileOffsets() {
+        var offsets = new int[FILES + 1];
+        for (int file = 0; file < FILES; file++) {
+            offsets[file + 1] = offsets[file] + RANKS_PER_FILE[file];
+        }
+        return offsets;
+    }
+
     private static Hexagon[] getOrdered() {
         List<Hexagon> hexagons = new ArrayList<>();
         for (int file = 0; file < FILES; file++) {
             for (int rank = 0; rank < RANKS_PER_FILE[file]; rank++) {
-                hexagons.add(new Hexagon(file, rank));
+                hexagons.add(new Hexagon(file, rank, hexagons.size()));
             }
         }
         return hexagons.toArray(Hexagon[]::new);
     }
 
     public static Hexagon fromNotation(String notation) {
+        if (notation.length() < 2) {
+            throw new IllegalArgumentException("Hexagon notation must be a file letter followed by a rank: " + notation);
+        }
         var file = notation.charAt(0) - 'a';
-        var rank = Integer.parseInt(notation.substring(1)) - 1;
-        return new Hexagon(file, rank);
+        var rankDigits = notation.substring(1);
+        if (!rankDigits.chars().allMatch(Character::isDigit) || rankDigits.length() > 2) {
+            throw new IllegalArgumentException("Hexagon notation must be a file letter followed by a rank: " + notation);
+        }
+        var rank = Integer.parseInt(rankDigits) - 1;
+        // an off board cell isn't a hexagon that can be named, so it's rejected instead of read as the off board sentinel
+        if (!inBounds(file, rank)) {
+            throw new IllegalArgumentException("Hexagon notation is off the board: " + notation);
+        }
+        return Hexagon.of(file, rank);
     }
 
     @Override
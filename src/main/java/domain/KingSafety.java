@@ -0,0 +1,155 @@
+package domain;
+
+import java.util.Arrays;
+
+import static domain.ChessBoard.*;
+import static domain.Hexagon.CELLS;
+import static domain.MoveTables.*;
+
+// the checks, pins and attacked cells around one king, found by walking the precomputed rays out from the king once
+final class KingSafety {
+
+    private static final int ROOK_RAY_COUNT = ROOK_OFFSETS.length;
+
+    private int king = NONE;
+    private int checkers = 0;
+    // the cells a move other than the king's must land on to resolve a check, every cell when not in check
+    private final long[] blocks = new long[2];
+    // pinRays[cell] is the queen ray from the king that the piece on the cell is pinned along, or NONE
+    private final int[] pinRays = new int[CELLS];
+    // the cells the opponent attacks, plus the cells behind the king on a checking ray so it can't step back along it
+    private final long[] attacked = new long[2];
+
+    KingSafety() {
+        Arrays.fill(pinRays, NONE);
+    }
+
+    // opponentAttacks holds the cells the opponent attacks in the two words from the offset
+    void compute(ChessBoard board, int king, long[] opponentAttacks, int offset) {
+        attacked[0] = opponentAttacks[offset];
+        attacked[1] = opponentAttacks[offset + 1];
+        findChecksAndPins(board, king);
+    }
+
+    boolean isCheck() {
+        return checkers > 0;
+    }
+
+    // whether moving a piece besides the king keeps the king safe
+    boolean allows(int from, int to) {
+        if (!isSet(blocks, 0, to)) {
+            return false;
+        }
+        var ray = pinRays[from];
+        return ray == NONE || isSet(QUEEN_RAY_MASKS[king], ray * 2, to);
+    }
+
+    boolean isAttacked(int cell) {
+        return isSet(attacked, 0, cell);
+    }
+
+    void findChecksAndPins(ChessBoard board, int king) {
+        // only the pins from the last position can be stale, and there are at most one per ray
+        if (this.king != NONE) {
+            for (var ray : QUEEN_RAYS[this.king]) {
+                for (var cell : ray) {
+                    pinRays[cell] = NONE;
+                }
+            }
+        }
+        this.king = king;
+        checkers = 0;
+        blocks[0] = -1L;
+        blocks[1] = -1L;
+
+        var kingPiece = board.getPiece(king);
+        var rays = QUEEN_RAYS[king];
+        for (int r = 0; r < rays.length; r++) {
+            var ray = rays[r];
+            var pinned = NONE;
+            for (int i = 0; i < ray.length; i++) {
+                var piece = board.getPiece(ray[i]);
+                if (piece == EMPTY) {
+                    continue;
+                }
+                if (!areOpposite(piece, kingPiece)) {
+                    if (pinned != NONE) {
+                        break; // two of our own pieces shield the king
+                    }
+                    pinned = ray[i];
+                    continue;
+                }
+                if (slidesAlong(piece, r)) {
+                    if (pinned == NONE) {
+                        addCheck(ray, i);
+                        var behind = QUEEN_RAYS[king][OPPOSITE_QUEEN_RAYS[r]];
+                        attack(behind.length > 0 ? behind[0] : NONE);
+                    } else {
+                        pinRays[pinned] = r;
+                    }
+                }
+                break;
+            }
+        }
+
+        // knights and pawns can't be blocked, so the only way to answer them is to take them or move the king
+        for (var cell : KNIGHT_JUMPS[king]) {
+            var piece = board.getPiece(cell);
+            if (piece != EMPTY && areOpposite(piece, kingPiece) && (piece == WHITE_KNIGHT || piece == BLACK_KNIGHT)) {
+                addCheck(cell);
+            }
+        }
+        for (var neighbors : NEIGHBORS) {
+            var cell = neighbors[king];
+            if (cell == NONE) {
+                continue;
+            }
+            var piece = board.getPiece(cell);
+            if (isPawn(piece) && areOpposite(piece, kingPiece) && pawnTakes(piece, cell, king)) {
+                addCheck(cell);
+            }
+        }
+    }
+
+    private void attack(int cell) {
+        if (cell != NONE) {
+            attacked[cell >>> 6] |= 1L << cell;
+        }
+    }
+
+    private void addCheck(int[] ray, int checkerIndex) {
+        if (startCheck()) {
+            for (int i = 0; i <= checkerIndex; i++) {
+                blocks[ray[i] >>> 6] |= 1L << ray[i];
+            }
+        }
+    }
+
+    private void addCheck(int checker) {
+        if (startCheck()) {
+            blocks[checker >>> 6] |= 1L << checker;
+        }
+    }
+
+    // in double check only the king can move, so the block cells are only kept for a single checker
+    private boolean startCheck() {
+        blocks[0] = 0;
+        blocks[1] = 0;
+        return ++checkers == 1;
+    }
+
+    private static boolean slidesAlong(byte piece, int ray) {
+        return switch (piece) {
+            case WHITE_QUEEN, BLACK_QUEEN -> true;
+            case WHITE_ROOK, BLACK_ROOK -> ray < ROOK_RAY_COUNT;
+            case WHITE_BISHOP, BLACK_BISHOP -> ray >= ROOK_RAY_COUNT;
+            default -> false;
+        };
+    }
+
+    private static boolean pawnTakes(byte pawn, int from, int target) {
+        return isWhite(pawn)
+            ? WHITE_TAKE_LEFT[from] == target || WHITE_TAKE_RIGHT[from] == target
+            : BLACK_TAKE_LEFT[from] == target || BLACK_TAKE_RIGHT[from] == target;
+    }
+}
@@ -12,6 +12,19 @@ public class Move {
     Hexagon to;
 
     public Move deepCopy() {
-        return new Move(from.deepCopy(), to.deepCopy());
+        return new Move(from, to);
+    }
+
+    // written as from-to, e.g. f5-f6
+    public String toNotation() {
+        return from + "-" + to;
+    }
+
+    public static Move fromNotation(String notation) {
+        var tokens = notation.split("-", -1); // keeps trailing empty tokens, so "f5-f6-" isn't read as f5-f6
+        if (tokens.length != 2) {
+            throw new IllegalArgumentException("Move notation must be two hexagons separated by a dash: " + notation);
+        }
+        return new Move(Hexagon.fromNotation(tokens[0]), Hexagon.fromNotation(tokens[1]));
     }
 }
\ No newline at end of file
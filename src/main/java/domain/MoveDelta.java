@@ -0,0 +1,60 @@
+package domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Arrays;
+
+// how a side's move list changed from one position to the next, as the packed moves that appeared and disappeared
+// a move rarely changes more than a few pieces' moves, so this is much smaller than the lists it turns one into the other with
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MoveDelta {
+    private int[] added;
+    private int[] removed;
+
+    public static MoveDelta between(MoveList before, MoveList after) {
+        var from = before.toArray();
+        var to = after.toArray();
+        Arrays.sort(from);
+        Arrays.sort(to);
+
+        // walk the sorted lists together, a move only in one of them was removed or added
+        var added = new int[to.length];
+        var removed = new int[from.length];
+        int addedCount = 0, removedCount = 0;
+        int i = 0, j = 0;
+        while (i < from.length || j < to.length) {
+            if (j == to.length || (i < from.length && from[i] < to[j])) {
+                removed[removedCount++] = from[i++];
+            } else if (i == from.length || to[j] < from[i]) {
+                added[addedCount++] = to[j++];
+            } else {
+                i++;
+                j++;
+            }
+        }
+        return new MoveDelta(Arrays.copyOf(added, addedCount), Arrays.copyOf(removed, removedCount));
+    }
+
+    // applies the delta to the moves it was taken from, the result is sorted
+    public int[] applyTo(int[] moves) {
+        var sorted = moves.clone();
+        Arrays.sort(sorted);
+        var removedSorted = removed.clone();
+        Arrays.sort(removedSorted);
+
+        var result = new int[sorted.length - removed.length + added.length];
+        var count = 0;
+        for (var move : sorted) {
+            if (Arrays.binarySearch(removedSorted, move) < 0) {
+                result[count++] = move;
+            }
+        }
+        System.arraycopy(added, 0, result, count, added.length);
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,204 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// a reusable buffer of moves packed into ints, with a destination bitset per source cell for constant time lookups
+public class MoveList {
+
+    public static final byte NO_PROMOTION = 0;
+
+    private static final int WORDS_PER_CELL = 2; // 91 destinations fit in two longs
+
+    private int[] moves;
+    private int size = 0;
+    private int[] sources; // the cells of every piece that was generated, in generation order, even if it has no moves
+    private int sourcesSize = 0;
+    private final long[] destinations = new long[Hexagon.CELLS * WORDS_PER_CELL];
+
+    public MoveList() {
+        this(64);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+        sources = new int[16];
+    }
+
+    // moves are packed as [promotion:8][to:8][from:8] so they can be stored and compared as plain ints
+    public static int encode(int from, int to) {
+        return encode(from, to, NO_PROMOTION);
+    }
+
+    public static int encode(int from, int to, byte promotion) {
+        return from | (to << 8) | ((promotion & 0xFF) << 16);
+    }
+
+    public static int fromOf(int move) {
+        return move & 0xFF;
+    }
+
+    public static int toOf(int move) {
+        return (move >>> 8) & 0xFF;
+    }
+
+    public static byte promotionOf(int move) {
+        return (byte) ((move >>> 16) & 0xFF);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int get(int i) {
+        return moves[i];
+    }
+
+    public int sourcesSize() {
+        return sourcesSize;
+    }
+
+    public int getSource(int i) {
+        return sources[i];
+    }
+
+    public void addSource(int from) {
+        if (sourcesSize == sources.length) {
+            sources = Arrays.copyOf(sources, sources.length * 2);
+        }
+        sources[sourcesSize++] = from;
+    }
+
+    public void add(int from, int to) {
+        add(encode(from, to));
+    }
+
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+        }
+        moves[size++] = move;
+        var to = toOf(move);
+        destinations[fromOf(move) * WORDS_PER_CELL + (to >>> 6)] |= 1L << to;
+    }
+
+    public void addAll(int[] packedMoves) {
+        for (var move : packedMoves) {
+            add(move);
+        }
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    public boolean contains(int from, int to) {
+        return (destinations[from * WORDS_PER_CELL + (to >>> 6)] & (1L << to)) != 0;
+    }
+
+    public boolean contains(Move move) {
+        // a move read from a client may be missing either cell, that's an invalid move rather than an error
+        if (move.getFrom() == null || move.getTo() == null) {
+            return false;
+        }
+        var from = move.getFrom().index();
+        var to = move.getTo().index();
+        if (from < 0 || to < 0) {
+            return false;
+        }
+        return contains(from, to);
+    }
+
+    public void clear() {
+        // only the sources that have moves can have destination bits set
+        for (int i = 0; i < size; i++) {
+            var from = fromOf(moves[i]);
+            destinations[from * WORDS_PER_CELL] = 0;
+            destinations[from * WORDS_PER_CELL + 1] = 0;
+        }
+        size = 0;
+        sourcesSize = 0;
+    }
+
+    public MoveList copy() {
+        var copy = new MoveList(Math.max(size, 1));
+        copy.sources = Arrays.copyOf(sources, Math.max(sourcesSize, 1));
+        copy.sourcesSize = sourcesSize;
+        for (int i = 0; i < size; i++) {
+            copy.add(moves[i]);
+        }
+        return copy;
+    }
+
+    public List<Hexagon> toHexagons() {
+        List<Hexagon> hexagons = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            hexagons.add(Hexagon.ofIndex(toOf(moves[i])));
+        }
+        return hexagons;
+    }
+
+    // writes the targets into targets grouped by source, keeping the order they were added in, and returns the offsets
+    // where the targets of the piece on a cell are targets[offsets[cell]] up to targets[offsets[cell + 1]]
+    public int[] groupTargets(int[] targets) {
+        var offsets = new int[Hexagon.CELLS + 1];
+        for (int i = 0; i < size; i++) {
+            offsets[fromOf(moves[i]) + 1]++;
+        }
+        for (int cell = 0; cell < Hexagon.CELLS; cell++) {
+            offsets[cell + 1] += offsets[cell];
+        }
+        var next = Arrays.copyOf(offsets, Hexagon.CELLS);
+        for (int i = 0; i < size; i++) {
+            targets[next[fromOf(moves[i])]++] = toOf(moves[i]);
+        }
+        return offsets;
+    }
+
+    // builds the piece moves view used by the json protocol, one entry per source in the order they were generated
+    public List<PieceMoves> toPieceMoves() {
+        var sourceSlots = new int[Hexagon.CELLS];
+        Arrays.fill(sourceSlots, -1);
+
+        List<PieceMoves> pieceMoves = new ArrayList<>(sourcesSize);
+        for (int i = 0; i < sourcesSize; i++) {
+            var from = sources[i];
+            sourceSlots[from] = pieceMoves.size();
+            pieceMoves.add(new PieceMoves(Hexagon.ofIndex(from), new ArrayList<>()));
+        }
+        for (int i = 0; i < size; i++) {
+            var slot = sourceSlots[fromOf(moves[i])];
+            if (slot >= 0) {
+                pieceMoves.get(slot).getMoves().add(Hexagon.ofIndex(toOf(moves[i])));
+            }
+        }
+        return pieceMoves;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof MoveList other)) return false;
+        return Arrays.equals(moves, 0, size, other.moves, 0, other.size)
+            && Arrays.equals(sources, 0, sourcesSize, other.sources, 0, other.sourcesSize);
+    }
+
+    @Override
+    public int hashCode() {
+        var hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + moves[i];
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return toPieceMoves().toString();
+    }
+}
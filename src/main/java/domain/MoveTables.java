@@ -0,0 +1,193 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static domain.Hexagon.CELLS;
+import static domain.Hexagon.Direction;
+
+// lookup tables for move generation, computed once from the board shape so generation never has to walk hexagons
+final class MoveTables {
+
+    static final int NONE = -1; // marks a step that leaves the board
+
+    static final Direction[][] ROOK_OFFSETS = {
+        {Direction.UP},
+        {Direction.DOWN},
+        {Direction.DOWN_LEFT},
+        {Direction.DOWN_RIGHT},
+        {Direction.UP_LEFT},
+        {Direction.UP_RIGHT}
+    };
+    static final Direction[][] BISHOP_OFFSETS = {
+        {Direction.UP_RIGHT, Direction.DOWN_RIGHT},
+        {Direction.UP_LEFT, Direction.DOWN_LEFT},
+        {Direction.UP, Direction.UP_RIGHT},
+        {Direction.UP, Direction.UP_LEFT},
+        {Direction.DOWN, Direction.DOWN_RIGHT},
+        {Direction.DOWN, Direction.DOWN_LEFT}
+    };
+    static final Direction[][] KING_OFFSETS =
+        Stream.concat(Arrays.stream(ROOK_OFFSETS), Arrays.stream(BISHOP_OFFSETS)).toArray(Direction[][]::new);
+    static final Direction[][] KNIGHT_OFFSETS = {
+        {Direction.UP_RIGHT, Direction.UP_RIGHT, Direction.UP},
+        {Direction.UP_RIGHT, Direction.UP, Direction.UP},
+        {Direction.DOWN_RIGHT, Direction.DOWN_RIGHT, Direction.DOWN},
+        {Direction.DOWN_RIGHT, Direction.DOWN, Direction.DOWN},
+        {Direction.UP_LEFT, Direction.UP_LEFT, Direction.UP},
+        {Direction.UP_LEFT, Direction.UP, Direction.UP},
+        {Direction.DOWN_LEFT, Direction.DOWN_LEFT, Direction.DOWN},
+        {Direction.DOWN_LEFT, Direction.DOWN, Direction.DOWN},
+        {Direction.UP_LEFT, Direction.UP_LEFT, Direction.DOWN_LEFT},
+        {Direction.DOWN_LEFT, Direction.DOWN_LEFT, Direction.UP_LEFT},
+        {Direction.UP_RIGHT, Direction.UP_RIGHT, Direction.DOWN_RIGHT},
+        {Direction.DOWN_RIGHT, Direction.DOWN_RIGHT, Direction.UP_RIGHT},
+    };
+
+    // NEIGHBORS[direction.ordinal()][cell] is the adjacent cell in that direction, or NONE if it is off the board
+    static final int[][] NEIGHBORS = computeNeighbors();
+
+    // RAYS[cell][ray] lists the cells along one offset, nearest first, stopping at the edge of the board
+    static final int[][][] ROOK_RAYS = computeRays(ROOK_OFFSETS);
+    static final int[][][] BISHOP_RAYS = computeRays(BISHOP_OFFSETS);
+    static final int[][][] QUEEN_RAYS = computeRays(KING_OFFSETS); // the rook rays come first, then the bishop rays
+
+    // OPPOSITE_QUEEN_RAYS[ray] is the queen ray that points the opposite way
+    static final int[] OPPOSITE_QUEEN_RAYS = computeOppositeRays(KING_OFFSETS);
+
+    // QUEEN_RAY_MASKS[cell][ray * 2 + word] is the set of cells on one of the queen rays, to test if a cell lies along a ray
+    static final long[][] QUEEN_RAY_MASKS = computeRayMasks(QUEEN_RAYS);
+
+    // JUMPS[cell] lists every on board cell a single offset away
+    static final int[][] KNIGHT_JUMPS = computeJumps(KNIGHT_OFFSETS);
+    static final int[][] KING_JUMPS = computeJumps(KING_OFFSETS);
+
+    // the cells a pawn steps forward to and takes on, by color
+    static final int[] WHITE_AHEAD = NEIGHBORS[Direction.UP.ordinal()];
+    static final int[] WHITE_TAKE_LEFT = NEIGHBORS[Direction.UP_LEFT.ordinal()];
+    static final int[] WHITE_TAKE_RIGHT = NEIGHBORS[Direction.UP_RIGHT.ordinal()];
+    static final int[] BLACK_AHEAD = NEIGHBORS[Direction.DOWN.ordinal()];
+    static final int[] BLACK_TAKE_LEFT = NEIGHBORS[Direction.DOWN_LEFT.ordinal()];
+    static final int[] BLACK_TAKE_RIGHT = NEIGHBORS[Direction.DOWN_RIGHT.ordinal()];
+
+    // REACH[piece][cell * 2 + word] is the set of cells a piece could ever move to from a cell, ignoring any blockers
+    static final long[][] REACH = computeReach();
+
+    private MoveTables() {
+    }
+
+    static boolean reaches(byte piece, int cell, int target) {
+        return isSet(REACH[piece], cell * 2, target);
+    }
+
+    private static int step(int cell, Direction[] offset) {
+        var hex = Hexagon.ofIndex(cell).walk(offset);
+        return hex.isOffBoard() ? NONE : hex.index();
+    }
+
+    private static int[][] computeNeighbors() {
+        var directions = Direction.values();
+        var neighbors = new int[directions.length][CELLS];
+        for (var direction : directions) {
+            Direction[] offset = {direction};
+            for (int cell = 0; cell < CELLS; cell++) {
+                neighbors[direction.ordinal()][cell] = step(cell, offset);
+            }
+        }
+        return neighbors;
+    }
+
+    private static int[][][] computeRays(Direction[][] offsets) {
+        var rays = new int[CELLS][offsets.length][];
+        for (int cell = 0; cell < CELLS; cell++) {
+            for (int i = 0; i < offsets.length; i++) {
+                List<Integer> ray = new ArrayList<>();
+                for (var next = step(cell, offsets[i]); next != NONE; next = step(next, offsets[i])) {
+                    ray.add(next);
+                }
+                rays[cell][i] = ray.stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+        return rays;
+    }
+
+    static boolean isSet(long[] mask, int offset, int cell) {
+        return (mask[offset + (cell >>> 6)] & (1L << cell)) != 0;
+    }
+
+    private static int[] computeOppositeRays(Direction[][] offsets) {
+        // walking a ray and then its opposite from the middle of the board comes back to where we started
+        var center = Hexagon.of(Hexagon.MIDPOINT, Hexagon.MIDPOINT).index();
+        var opposites = new int[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            opposites[i] = NONE;
+            for (int j = 0; j < offsets.length; j++) {
+                if (step(step(center, offsets[i]), offsets[j]) == center) {
+                    opposites[i] = j;
+                }
+            }
+        }
+        return opposites;
+    }
+
+    private static long[][] computeRayMasks(int[][][] raysTable) {
+        var masks = new long[CELLS][];
+        for (int cell = 0; cell < CELLS; cell++) {
+            var rays = raysTable[cell];
+            masks[cell] = new long[rays.length * 2];
+            for (int i = 0; i < rays.length; i++) {
+                for (var target : rays[i]) {
+                    masks[cell][i * 2 + (target >>> 6)] |= 1L << target;
+                }
+            }
+        }
+        return masks;
+    }
+
+    private static long[][] computeReach() {
+        var reach = new long[ChessBoard.BLACK_KING + 1][CELLS * 2];
+        for (int cell = 0; cell < CELLS; cell++) {
+            for (byte piece = ChessBoard.WHITE_PAWN; piece <= ChessBoard.BLACK_KING; piece++) {
+                List<Integer> targets = new ArrayList<>();
+                switch (piece) {
+                    case ChessBoard.WHITE_PAWN, ChessBoard.BLACK_PAWN -> {
+                        var isWhite = ChessBoard.isWhite(piece);
+                        var ahead = NEIGHBORS[(isWhite ? Direction.UP : Direction.DOWN).ordinal()];
+                        targets.add(ahead[cell]);
+                        targets.add(ahead[cell] != NONE ? ahead[ahead[cell]] : NONE);
+                        targets.add(NEIGHBORS[(isWhite ? Direction.UP_LEFT : Direction.DOWN_LEFT).ordinal()][cell]);
+                        targets.add(NEIGHBORS[(isWhite ? Direction.UP_RIGHT : Direction.DOWN_RIGHT).ordinal()][cell]);
+                    }
+                    case ChessBoard.WHITE_KNIGHT, ChessBoard.BLACK_KNIGHT -> Arrays.stream(KNIGHT_JUMPS[cell]).forEach(targets::add);
+                    case ChessBoard.WHITE_BISHOP, ChessBoard.BLACK_BISHOP -> Arrays.stream(BISHOP_RAYS[cell]).flatMapToInt(Arrays::stream).forEach(targets::add);
+                    case ChessBoard.WHITE_ROOK, ChessBoard.BLACK_ROOK -> Arrays.stream(ROOK_RAYS[cell]).flatMapToInt(Arrays::stream).forEach(targets::add);
+                    case ChessBoard.WHITE_QUEEN, ChessBoard.BLACK_QUEEN -> Arrays.stream(QUEEN_RAYS[cell]).flatMapToInt(Arrays::stream).forEach(targets::add);
+                    case ChessBoard.WHITE_KING, ChessBoard.BLACK_KING -> Arrays.stream(KING_JUMPS[cell]).forEach(targets::add);
+                }
+                for (var target : targets) {
+                    if (target != NONE) {
+                        reach[piece][cell * 2 + (target >>> 6)] |= 1L << target;
+                    }
+                }
+            }
+        }
+        return reach;
+    }
+
+    private static int[][] computeJumps(Direction[][] offsets) {
+        var jumps = new int[CELLS][];
+        for (int cell = 0; cell < CELLS; cell++) {
+            List<Integer> cellJumps = new ArrayList<>();
+            for (var offset : offsets) {
+                var next = step(cell, offset);
+                if (next != NONE) {
+                    cellJumps.add(next);
+                }
+            }
+            jumps[cell] = cellJumps.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return jumps;
+    }
+}
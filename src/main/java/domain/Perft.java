@@ -0,0 +1,213 @@
+package domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static domain.ChessBoard.isKing;
+
+// counts the leaf nodes of the move tree to a fixed depth, used to check and benchmark move generation
+public class Perft {
+
+    private Perft() {
+    }
+
+    public static long perft(ChessGame game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        game.initPieceMoves();
+
+        // the move list is handed to the undo record while a move is made, so it is safe to walk it while we recurse
+        var moves = game.getMoveList(game.getBoard().turn());
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            var move = moves.get(i);
+            if (capturesKing(game, move)) {
+                continue;
+            }
+            if (depth == 1) {
+                nodes++; // bulk count the leaves instead of making each move
+                continue;
+            }
+            var undo = game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+            nodes += perft(game, depth - 1);
+            game.unmakeMove(undo);
+        }
+        return nodes;
+    }
+
+    // the same count on the bitboard engine, reusing one move buffer per ply
+    public static long perft(BitboardGame game, int depth) {
+        var buffers = new MoveList[Math.max(depth, 1)];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new MoveList();
+        }
+        return perft(game, depth, buffers);
+    }
+
+    private static long perft(BitboardGame game, int depth, MoveList[] buffers) {
+        if (depth == 0) {
+            return 1;
+        }
+        var moves = buffers[depth - 1];
+        game.findLegalMoves(moves);
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            var move = moves.get(i);
+            if (isKing(game.getPiece(MoveList.toOf(move)))) {
+                continue;
+            }
+            if (depth == 1) {
+                nodes++;
+                continue;
+            }
+            var undo = game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+            nodes += perft(game, depth - 1, buffers);
+            game.unmakeMove(undo);
+        }
+        return nodes;
+    }
+
+    // the same count, but the positions one move from the leaves are collected into a batch and their moves generated together
+    public static long batchPerft(BitboardGame game, int depth, int batchSize) {
+        if (depth <= 1) {
+            return perft(game, depth);
+        }
+        var buffers = new MoveList[depth - 1];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new MoveList();
+        }
+        var batch = new BoardBatch(batchSize);
+        return batchPerft(game, depth, buffers, batch) + countBatch(batch);
+    }
+
+    private static long batchPerft(BitboardGame game, int depth, MoveList[] buffers, BoardBatch batch) {
+        if (depth == 1) {
+            batch.add(game);
+            return batch.isFull() ? countBatch(batch) : 0;
+        }
+        var moves = buffers[depth - 2];
+        game.findLegalMoves(moves);
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            var move = moves.get(i);
+            if (isKing(game.getPiece(MoveList.toOf(move)))) {
+                continue;
+            }
+            var undo = game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+            nodes += batchPerft(game, depth - 1, buffers, batch);
+            game.unmakeMove(undo);
+        }
+        return nodes;
+    }
+
+    // generates the moves of every board in the batch and counts them, then empties it
+    private static long countBatch(BoardBatch batch) {
+        batch.generate();
+        long nodes = 0;
+        for (int board = 0; board < batch.size(); board++) {
+            for (int i = 0; i < batch.moveCount(board); i++) {
+                if (!isKing(batch.getPiece(board, MoveList.toOf(batch.getMove(board, i))))) {
+                    nodes++;
+                }
+            }
+        }
+        batch.clear();
+        return nodes;
+    }
+
+    // the node count below each root move, in generation order
+    public static Map<Move, Long> divide(ChessGame game, int depth) {
+        Map<Move, Long> counts = new LinkedHashMap<>();
+        if (depth == 0) {
+            return counts;
+        }
+        for (var move : findRootMoves(game)) {
+            var undo = game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+            counts.put(toMove(move), perft(game, depth - 1));
+            game.unmakeMove(undo);
+        }
+        return counts;
+    }
+
+    // splits the root moves across the pool, each task walks its subtree on its own copy of the game
+    public static long parallelPerft(ChessGame game, int depth, ForkJoinPool pool) {
+        if (depth <= 1) {
+            return perft(game, depth);
+        }
+        return pool.invoke(new RootTask(game, depth));
+    }
+
+    public static long parallelPerft(ChessGame game, int depth) {
+        return parallelPerft(game, depth, ForkJoinPool.commonPool());
+    }
+
+    private static class RootTask extends RecursiveTask<Long> {
+        private final ChessGame game;
+        private final int depth;
+
+        RootTask(ChessGame game, int depth) {
+            this.game = game;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            List<SubtreeTask> tasks = new ArrayList<>();
+            for (var move : findRootMoves(game)) {
+                var child = game.deepCopy();
+                child.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+                tasks.add(new SubtreeTask(child, depth - 1));
+            }
+            long nodes = 0;
+            for (var task : invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    private static class SubtreeTask extends RecursiveTask<Long> {
+        private final ChessGame game;
+        private final int depth;
+
+        SubtreeTask(ChessGame game, int depth) {
+            this.game = game;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            return perft(game, depth);
+        }
+    }
+
+    private static int[] findRootMoves(ChessGame game) {
+        game.initPieceMoves();
+        var moves = game.getMoveList(game.getBoard().turn());
+        var rootMoves = new int[moves.size()];
+        var count = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            if (!capturesKing(game, moves.get(i))) {
+                rootMoves[count++] = moves.get(i);
+            }
+        }
+        return Arrays.copyOf(rootMoves, count);
+    }
+
+    // only reachable from a hand built position where the side not to move is left in check, a board without a king can't be searched
+    private static boolean capturesKing(ChessGame game, int move) {
+        return isKing(game.getBoard().getPiece(MoveList.toOf(move)));
+    }
+
+    private static Move toMove(int move) {
+        return new Move(Hexagon.ofIndex(MoveList.fromOf(move)), Hexagon.ofIndex(MoveList.toOf(move)));
+    }
+}
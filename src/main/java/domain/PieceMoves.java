@@ -14,6 +14,6 @@ public class PieceMoves {
     List<Hexagon> moves;
 
     public PieceMoves deepCopy() {
-        return new PieceMoves(hex.deepCopy(), moves.stream().map(Hexagon::deepCopy).toList());
+        return new PieceMoves(hex, List.copyOf(moves)); // hexagons are interned, so only the list needs copying
     }
 }
\ No newline at end of file
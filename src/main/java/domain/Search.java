@@ -0,0 +1,458 @@
+package domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static domain.ChessBoard.*;
+
+// iterative deepening alpha-beta over the ChessGame move generator, used to play the computer side of a game
+// with more than one thread it runs a lazy smp search: every thread searches the whole tree on its own copy of the game
+// and they only cooperate through the shared transposition table, which is enough to split the work between them
+public class Search {
+
+    public static final int MATE = 30000;
+    public static final int MAX_PLY = 64;
+    // any score past this is a mate, either found by the search or read from a tablebase where mates run longer than MAX_PLY
+    static final int MATE_BOUND = MATE - 512;
+
+    private static final int INFINITY = 32000;
+    private static final int CHECK_INTERVAL = 1024; // nodes searched between checks of the budget
+
+    private final TranspositionTable table;
+    private final int threads;
+    private final ExecutorService executor;
+    private final List<Tablebase> tablebases;
+
+    @Data
+    @AllArgsConstructor
+    public static class Limits {
+        private long timeMillis; // zero for no time limit
+        private long maxNodes; // zero for no node limit
+        private int maxDepth;
+
+        public static Limits ofTime(long timeMillis) {
+            return new Limits(timeMillis, 0, MAX_PLY);
+        }
+
+        public static Limits ofNodes(long maxNodes) {
+            return new Limits(0, maxNodes, MAX_PLY);
+        }
+
+        public static Limits ofDepth(int maxDepth) {
+            return new Limits(0, 0, maxDepth);
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Result {
+        private Move move; // null when the side to move has no legal moves
+        private int score; // from the point of view of the side to move
+        private int depth; // the last iteration that was searched to completion
+        private long nodes;
+    }
+
+    public Search(TranspositionTable table) {
+        this(table, 1, null);
+    }
+
+    // the helper threads are submitted to the executor while the calling thread runs the main search
+    public Search(TranspositionTable table, int threads, ExecutorService executor) {
+        this(table, threads, executor, List.of());
+    }
+
+    // positions with the pieces of one of the tablebases are read from it instead of searched
+    public Search(TranspositionTable table, int threads, ExecutorService executor, List<Tablebase> tablebases) {
+        if (threads < 1 || (threads > 1 && executor == null)) {
+            throw new IllegalStateException("A search needs at least one thread and an executor to run its helpers");
+        }
+        this.table = table;
+        this.threads = threads;
+        this.executor = executor;
+        this.tablebases = tablebases;
+    }
+
+    public Result findBestMove(ChessGame game, Limits limits) {
+        var known = findTablebaseMove(game);
+        if (known != null) {
+            return known;
+        }
+        var budget = new Budget(limits);
+
+        List<Future<?>> helpers = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            var helper = new Worker(game.deepCopy(), table, tablebases, budget);
+            // half of the helpers run one ply ahead of the main thread so they fill the table with deeper results
+            var startDepth = 1 + i % 2;
+            helpers.add(executor.submit(() -> helper.iterate(startDepth, limits.getMaxDepth())));
+        }
+
+        var main = new Worker(game.deepCopy(), table, tablebases, budget);
+        var result = main.iterate(1, limits.getMaxDepth());
+
+        // the main thread decides when the search is over, the helpers only exist to warm the table
+        budget.stopped = true;
+        for (var helper : helpers) {
+            try {
+                helper.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException("Search helper thread failed", ex.getCause());
+            }
+        }
+        result.setNodes(budget.nodes.get());
+        return result;
+    }
+
+    // a position in a tablebase is already solved, the best move is the one into the child that is worst for the other side
+    private Result findTablebaseMove(ChessGame game) {
+        if (probeTablebases(tablebases, game.getBoard()) == Tablebase.NOT_FOUND) {
+            return null;
+        }
+        game = game.deepCopy();
+        game.initPieceMoves();
+        var moves = game.getMoveList(game.getBoard().turn()).copy();
+
+        var bestMove = 0;
+        var best = -INFINITY;
+        for (int i = 0; i < moves.size(); i++) {
+            var move = moves.get(i);
+            var undo = game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+            var childScore = probeTablebases(tablebases, game.getBoard());
+            game.unmakeMove(undo);
+            if (childScore == Tablebase.NOT_FOUND) {
+                // the move leaves pieces no table has, so the search has to decide
+                return null;
+            }
+            var score = childScore > 0 ? -childScore + 1 : childScore < 0 ? -childScore - 1 : 0;
+            if (score > best) {
+                best = score;
+                bestMove = move;
+            }
+        }
+        return bestMove != 0 ? new Result(toMove(bestMove), best, 0, 0) : null;
+    }
+
+    private static int probeTablebases(List<Tablebase> tablebases, ChessBoard board) {
+        for (var tablebase : tablebases) {
+            var score = tablebase.probe(board);
+            if (score != Tablebase.NOT_FOUND) {
+                return score;
+            }
+        }
+        return Tablebase.NOT_FOUND;
+    }
+
+    private static class Budget {
+        final long deadline;
+        final long maxNodes;
+        final AtomicLong nodes = new AtomicLong();
+        volatile boolean stopped = false;
+
+        Budget(Limits limits) {
+            deadline = limits.getTimeMillis() > 0 ? System.nanoTime() + limits.getTimeMillis() * 1_000_000 : Long.MAX_VALUE;
+            maxNodes = limits.getMaxNodes() > 0 ? limits.getMaxNodes() : Long.MAX_VALUE;
+        }
+
+        void spend(long count) {
+            if (nodes.addAndGet(count) >= maxNodes || System.nanoTime() >= deadline) {
+                stopped = true;
+            }
+        }
+    }
+
+    private static class Worker {
+        private final ChessGame game;
+        private final ChessBoard board;
+        private final TranspositionTable table;
+        private final List<Tablebase> tablebases;
+        private final Budget budget;
+
+        private final int[][] plyMoves = new int[MAX_PLY + 1][];
+        private final int[][] plyScores = new int[MAX_PLY + 1][];
+        private final int[][] killers = new int[MAX_PLY + 1][2];
+        private long unspent = 0;
+        private int rootMove = 0; // the best move of the last iteration, searched first in the next
+
+        Worker(ChessGame game, TranspositionTable table, List<Tablebase> tablebases, Budget budget) {
+            this.game = game;
+            this.board = game.getBoard();
+            this.table = table;
+            this.tablebases = tablebases;
+            this.budget = budget;
+        }
+
+        Result iterate(int startDepth, int maxDepth) {
+            var result = new Result(null, 0, 0, 0);
+            for (int depth = startDepth; depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+                var bestMove = new int[]{0};
+                var score = searchRoot(depth, bestMove);
+                if (budget.stopped && result.getMove() != null) {
+                    break; // an unfinished iteration can't be trusted over the last complete one
+                }
+                rootMove = bestMove[0];
+                result.setMove(rootMove != 0 ? toMove(rootMove) : null);
+                result.setScore(score);
+                result.setDepth(budget.stopped ? depth - 1 : depth);
+                if (budget.stopped || result.getMove() == null || Math.abs(score) >= MATE_BOUND) {
+                    break;
+                }
+            }
+            budget.spend(unspent);
+            unspent = 0;
+            return result;
+        }
+
+        private int searchRoot(int depth, int[] bestMove) {
+            game.initPieceMoves();
+            var count = findMoves(0, false);
+            if (count == 0) {
+                return game.isCheck() ? -MATE : 0;
+            }
+            scoreMoves(0, count, rootMove & 0xFFFF);
+
+            var alpha = -INFINITY;
+            var best = -INFINITY;
+            for (int i = 0; i < count; i++) {
+                var move = pickMove(0, i, count);
+                var undo = game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+                var score = -search(depth - 1, 1, -INFINITY, -alpha);
+                game.unmakeMove(undo);
+                if (budget.stopped) {
+                    // keep what was found so far, and a move to play if the very first iteration never got anywhere
+                    if (bestMove[0] == 0) {
+                        bestMove[0] = move;
+                    }
+                    break;
+                }
+                if (score > best) {
+                    best = score;
+                    bestMove[0] = move;
+                    alpha = Math.max(alpha, score);
+                }
+            }
+            if (!budget.stopped) {
+                table.store(board.getZobrist(), bestMove[0], best, depth, TranspositionTable.EXACT);
+            }
+            return best;
+        }
+
+        private int search(int depth, int ply, int alpha, int beta) {
+            if (depth <= 0 || ply >= MAX_PLY) {
+                return quiesce(ply, alpha, beta);
+            }
+            if (spendNode()) {
+                return 0;
+            }
+            if (!tablebases.isEmpty()) {
+                var score = probeTablebases(tablebases, board);
+                if (score != Tablebase.NOT_FOUND) {
+                    return score > 0 ? score - ply : score < 0 ? score + ply : 0;
+                }
+            }
+
+            var key = board.getZobrist();
+            var entry = table.probe(key);
+            var tableMove = 0;
+            if (entry != TranspositionTable.MISS) {
+                tableMove = TranspositionTable.moveOf(entry);
+                if (TranspositionTable.depthOf(entry) >= depth) {
+                    var score = fromTable(TranspositionTable.scoreOf(entry), ply);
+                    var bound = TranspositionTable.boundOf(entry);
+                    if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+
+            game.initPieceMoves();
+            var count = findMoves(ply, false);
+            if (count == 0) {
+                return game.isCheck() ? -MATE + ply : 0;
+            }
+            scoreMoves(ply, count, tableMove);
+
+            var startAlpha = alpha;
+            var best = -INFINITY;
+            var bestMove = 0;
+            for (int i = 0; i < count; i++) {
+                var move = pickMove(ply, i, count);
+                var undo = game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+                var score = -search(depth - 1, ply + 1, -beta, -alpha);
+                game.unmakeMove(undo);
+                if (budget.stopped) {
+                    return 0;
+                }
+                if (score > best) {
+                    best = score;
+                    bestMove = move;
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            if (board.getPiece(MoveList.toOf(move)) == EMPTY) {
+                                addKiller(ply, move);
+                            }
+                            break;
+                        }
+                    }
+                }
+            }
+
+            var bound = best >= beta ? TranspositionTable.LOWER : best > startAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+            table.store(key, bestMove, toTable(best, ply), depth, bound);
+            return best;
+        }
+
+        // searches captures until the position is quiet, so the evaluation isn't taken in the middle of an exchange
+        private int quiesce(int ply, int alpha, int beta) {
+            if (spendNode()) {
+                return 0;
+            }
+            // the evaluation needs the move lists for mobility, and we need them anyway for the captures
+            game.initPieceMoves();
+            var standPat = game.evaluate();
+            if (ply >= MAX_PLY || standPat >= beta) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+
+            var count = findMoves(ply, true);
+            if (count == 0) {
+                // no captures doesn't mean no moves, only a position with no moves at all can be mate
+                return game.getMoveList(board.turn()).isEmpty() && game.isCheck() ? -MATE + ply : standPat;
+            }
+            scoreMoves(ply, count, 0);
+
+            var best = standPat;
+            for (int i = 0; i < count; i++) {
+                var move = pickMove(ply, i, count);
+                var undo = game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+                var score = -quiesce(ply + 1, -beta, -alpha);
+                game.unmakeMove(undo);
+                if (budget.stopped) {
+                    return 0;
+                }
+                if (score > best) {
+                    best = score;
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            break;
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        // copies the legal moves of the side to move into the buffer for this ply, skipping king captures
+        private int findMoves(int ply, boolean capturesOnly) {
+            var moves = game.getMoveList(board.turn());
+            if (plyMoves[ply] == null || plyMoves[ply].length < moves.size()) {
+                plyMoves[ply] = new int[Math.max(moves.size(), 64)];
+                plyScores[ply] = new int[plyMoves[ply].length];
+            }
+            var buffer = plyMoves[ply];
+            var count = 0;
+            for (int i = 0; i < moves.size(); i++) {
+                var move = moves.get(i);
+                var captured = board.getPiece(MoveList.toOf(move));
+                if (isKing(captured) || (capturesOnly && captured == EMPTY)) {
+                    continue;
+                }
+                buffer[count++] = move;
+            }
+            return count;
+        }
+
+        // the table move first, then captures of the most valuable victim by the least valuable attacker, then killers
+        private void scoreMoves(int ply, int count, int tableMove) {
+            var moves = plyMoves[ply];
+            var scores = plyScores[ply];
+            for (int i = 0; i < count; i++) {
+                var move = moves[i];
+                var captured = board.getPiece(MoveList.toOf(move));
+                if (tableMove != 0 && (move & 0xFFFF) == tableMove) {
+                    scores[i] = 1_000_000;
+                } else if (captured != EMPTY) {
+                    scores[i] = 100_000 + Evaluation.PIECE_VALUES[captured] * 16 - Evaluation.PIECE_VALUES[board.getPiece(MoveList.fromOf(move))] / 16;
+                } else if (move == killers[ply][0]) {
+                    scores[i] = 90_000;
+                } else if (move == killers[ply][1]) {
+                    scores[i] = 80_000;
+                } else {
+                    scores[i] = 0;
+                }
+            }
+        }
+
+        // selection sort one step at a time, most nodes cut off after the first few moves so sorting them all is wasted
+        private int pickMove(int ply, int i, int count) {
+            var moves = plyMoves[ply];
+            var scores = plyScores[ply];
+            var best = i;
+            for (int j = i + 1; j < count; j++) {
+                if (scores[j] > scores[best]) {
+                    best = j;
+                }
+            }
+            var move = moves[best];
+            var score = scores[best];
+            moves[best] = moves[i];
+            scores[best] = scores[i];
+            moves[i] = move;
+            scores[i] = score;
+            return move;
+        }
+
+        private void addKiller(int ply, int move) {
+            if (killers[ply][0] != move) {
+                killers[ply][1] = killers[ply][0];
+                killers[ply][0] = move;
+            }
+        }
+
+        private boolean spendNode() {
+            if (++unspent >= CHECK_INTERVAL) {
+                budget.spend(unspent);
+                unspent = 0;
+            }
+            return budget.stopped;
+        }
+    }
+
+    // mate scores are stored relative to the node so they stay correct when the position is reached at another ply
+    private static int toTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    private static Move toMove(int move) {
+        return new Move(Hexagon.ofIndex(MoveList.fromOf(move)), Hexagon.ofIndex(MoveList.toOf(move)));
+    }
+}
@@ -0,0 +1,678 @@
+package domain;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static domain.ChessBoard.*;
+import static domain.Hexagon.CELLS;
+
+// an endgame table with the distance to mate of every position of a small set of pieces, found by retrograde analysis
+// a position is indexed by the cells of its pieces, with the white king turned into one twelfth of the board by the
+// rotations and reflections of the hexagon, so a probe is a few array lookups and a single read from the mapped file
+public class Tablebase implements AutoCloseable {
+
+    public static final int NOT_FOUND = Integer.MIN_VALUE; // the board doesn't have the pieces of this table
+    public static final int MAX_PIECES = 4; // kings included, five pieces would need more than a mapped buffer can hold
+    public static final String FILE_SUFFIX = ".htb";
+
+    // header: [magic:4][version:4][pieceCount:4][pieces:MAX_PIECES]
+    private static final int MAGIC = 0x4854_4231; // HTB1
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    // a position is one unsigned byte, its distance to mate in plies plus one, so a side that is mated on the board is 1
+    // an odd distance to mate is a win for the side to move and an even one is a loss
+    private static final int DRAW = 0; // also every position that isn't resolved yet while generating
+    private static final int INVALID = 255; // two pieces on one cell, or the side that just moved left its king in check
+    private static final int MAX_VALUE = 254;
+
+    private static final int CHUNK = 1 << 16; // positions per task when generating
+
+    // TRANSFORMS[t][cell] is where one of the twelve rotations and reflections of the board moves the cell to
+    // none of the pieces in a table are pawns, and every other piece moves the same way in all six directions
+    static final int[][] TRANSFORMS = computeTransforms();
+    // CANONICAL[cell] lists the transforms taking the cell to the lowest cell it can be turned into, where the white king is kept
+    // a king on one of the lines of symmetry has more than one, and the one giving the lowest index is used
+    private static final int[][] CANONICAL = computeCanonical();
+    private static final int[] KING_SLOT_CELLS = computeKingSlotCells();
+    private static final int[] KING_SLOTS = computeKingSlots();
+    // MIRRORS[cell] flips the board top to bottom, which swaps the colors of a position
+    private static final int[] MIRRORS = computeMirrors();
+
+    private final byte[] pieces; // the white king first, then the rest of white, then the black king and the rest of black
+    private final int[] pieceCounts; // how many of each piece the table has
+    private final int[] flippedCounts; // the same with the colors swapped
+    private final int size;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private Tablebase(byte[] pieces, FileChannel channel, MappedByteBuffer buffer) {
+        this.pieces = pieces;
+        this.pieceCounts = new int[BLACK_KING + 1];
+        this.flippedCounts = new int[BLACK_KING + 1];
+        for (var piece : pieces) {
+            pieceCounts[piece]++;
+            flippedCounts[flip(piece)]++;
+        }
+        this.size = sizeOf(pieces);
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    // generates the table for a material set such as "KQvK" into a file and maps it, the smaller tables are used for
+    // positions after a capture, and a capture that leaves pieces without a table is scored as a draw
+    public static Tablebase generate(Path path, String material, List<Tablebase> subtables, ExecutorService executor) throws IOException {
+        var pieces = parseMaterial(material);
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) sizeOf(pieces));
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, pieces.length);
+        buffer.put(12, pieces);
+
+        var table = new Tablebase(pieces, channel, buffer);
+        new Generator(table, subtables, executor).run();
+
+        // the magic goes in last, so a file from a run that didn't finish is never opened
+        buffer.putInt(0, MAGIC);
+        buffer.force();
+        return table;
+    }
+
+    public static Tablebase open(Path path) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        var pieceCount = channel.size() >= HEADER_BYTES ? buffer.getInt(8) : 0;
+        if (channel.size() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+            || pieceCount < 2 || pieceCount > MAX_PIECES) {
+            channel.close();
+            throw new IllegalStateException("File " + path + " is not a complete tablebase");
+        }
+        var pieces = new byte[pieceCount];
+        buffer.get(12, pieces);
+
+        var table = new Tablebase(pieces, channel, buffer);
+        if (channel.size() != HEADER_BYTES + (long) table.size) {
+            channel.close();
+            throw new IllegalStateException("File " + path + " has the wrong size for a " + table.getMaterial() + " tablebase");
+        }
+        return table;
+    }
+
+    // opens every table in the directory, an empty list if there isn't one
+    public static List<Tablebase> openAll(Path directory) throws IOException {
+        List<Tablebase> tables = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return tables;
+        }
+        try (var paths = Files.list(directory)) {
+            for (var path : paths.filter((p) -> p.toString().endsWith(FILE_SUFFIX)).sorted().toList()) {
+                tables.add(open(path));
+            }
+        }
+        return tables;
+    }
+
+    public String getMaterial() {
+        var material = new StringBuilder();
+        for (var piece : pieces) {
+            if (piece == BLACK_KING) {
+                material.append('v');
+            }
+            material.append(Character.toUpperCase(pieceToChar(piece)));
+        }
+        return material.toString();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // the score of the board for the side to move in the same units as Search: MATE less the plies to mate for a win,
+    // the negative of that for a loss, zero for a draw, and NOT_FOUND if the board has other pieces than the table
+    public int probe(ChessBoard board) {
+        boolean flipped;
+        if (hasPieces(board, pieceCounts)) {
+            flipped = false;
+        } else if (hasPieces(board, flippedCounts)) {
+            flipped = true;
+        } else {
+            return NOT_FOUND;
+        }
+
+        var cells = new int[pieces.length];
+        var seen = new int[BLACK_KING + 1];
+        for (int i = 0; i < pieces.length; i++) {
+            var piece = flipped ? flip(pieces[i]) : pieces[i];
+            var cell = board.pieceCell(piece, seen[piece]++);
+            cells[i] = flipped ? MIRRORS[cell] : cell;
+        }
+        var turn = flipped ? board.turn().opposite() : board.turn();
+
+        var value = valueAt(indexOf(cells, turn.toInt()));
+        if (value == INVALID) {
+            return NOT_FOUND;
+        } else if (value == DRAW) {
+            return 0;
+        }
+        var distance = value - 1;
+        return distance % 2 == 1 ? Search.MATE - distance : -(Search.MATE - distance);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static boolean hasPieces(ChessBoard board, int[] counts) {
+        for (byte piece = WHITE_PAWN; piece <= BLACK_KING; piece++) {
+            if (board.pieceCount(piece) != counts[piece]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the cells are in the order of the pieces, so the white king is always first
+    // every position the board's symmetries turn into each other has the same index, so each is only solved once
+    private int indexOf(int[] cells, int turn) {
+        var lowest = Integer.MAX_VALUE;
+        for (var t : CANONICAL[cells[0]]) {
+            var transform = TRANSFORMS[t];
+            var index = turn * KING_SLOT_CELLS.length + KING_SLOTS[transform[cells[0]]];
+            for (int i = 1; i < pieces.length; i++) {
+                index = index * CELLS + transform[cells[i]];
+            }
+            lowest = Math.min(lowest, index);
+        }
+        return lowest;
+    }
+
+    // the inverse of indexOf, fills in the cells and returns the side to move
+    private int decode(int index, int[] cells) {
+        for (int i = pieces.length - 1; i > 0; i--) {
+            cells[i] = index % CELLS;
+            index /= CELLS;
+        }
+        cells[0] = KING_SLOT_CELLS[index % KING_SLOT_CELLS.length];
+        return index / KING_SLOT_CELLS.length;
+    }
+
+    private int valueAt(int index) {
+        return buffer.get(HEADER_BYTES + index) & 0xFF;
+    }
+
+    private void setValue(int index, int value) {
+        buffer.put(HEADER_BYTES + index, (byte) value);
+    }
+
+    private static boolean isWin(int value) {
+        return value != DRAW && value != INVALID && value % 2 == 0;
+    }
+
+    private static boolean isLoss(int value) {
+        return value != DRAW && value != INVALID && value % 2 == 1;
+    }
+
+    private static Turn turnOf(int turn) {
+        return turn == Turn.WHITE.toInt() ? Turn.WHITE : Turn.BLACK;
+    }
+
+    private static byte flip(byte piece) {
+        return (byte) (isWhite(piece) ? piece + 1 : piece - 1);
+    }
+
+    private static int sizeOf(byte[] pieces) {
+        var size = 2L * KING_SLOT_CELLS.length;
+        for (int i = 1; i < pieces.length; i++) {
+            size *= CELLS;
+        }
+        if (size > Integer.MAX_VALUE - HEADER_BYTES) {
+            throw new IllegalStateException("A tablebase of " + pieces.length + " pieces is too large to map");
+        }
+        return (int) size;
+    }
+
+    // "KRvKB" is a white king and rook against a black king and bishop, pawns aren't supported since they'd break the symmetry
+    static byte[] parseMaterial(String material) {
+        var sides = material.split("v");
+        if (sides.length != 2 || sides[0].isEmpty() || sides[1].isEmpty() || sides[0].charAt(0) != 'K' || sides[1].charAt(0) != 'K') {
+            throw new IllegalArgumentException("Material must be two sides that start with their king, like KQvK: " + material);
+        }
+        var pieces = new byte[sides[0].length() + sides[1].length()];
+        if (pieces.length > MAX_PIECES) {
+            throw new IllegalArgumentException("Material can have at most " + MAX_PIECES + " pieces: " + material);
+        }
+        var count = 0;
+        for (int side = 0; side < 2; side++) {
+            for (int i = 0; i < sides[side].length(); i++) {
+                var letter = side == 0 ? sides[side].charAt(i) : Character.toLowerCase(sides[side].charAt(i));
+                var piece = EMPTY;
+                for (byte p = WHITE_KNIGHT; p <= BLACK_KING; p++) {
+                    if (pieceToChar(p) == letter) {
+                        piece = p;
+                    }
+                }
+                if (piece == EMPTY || (i > 0 && isKing(piece))) {
+                    throw new IllegalArgumentException("Material has a piece that can't be in a tablebase: " + material);
+                }
+                pieces[count++] = piece;
+            }
+        }
+        return pieces;
+    }
+
+    // cube coordinates, where each of the six rook directions changes two of the three axes by one
+    private static int[] toCube(int cell) {
+        var hex = Hexagon.ofIndex(cell);
+        var q = hex.getFile() - Hexagon.MIDPOINT;
+        var s = hex.getRank() + Math.max(0, q) - Hexagon.MIDPOINT;
+        return new int[]{q, s - q, -s};
+    }
+
+    private static int fromCube(int[] cube) {
+        var file = cube[0] + Hexagon.MIDPOINT;
+        var rank = -cube[2] + Hexagon.MIDPOINT - Math.max(0, cube[0]);
+        return Hexagon.of(file, rank).index();
+    }
+
+    private static int[][] computeTransforms() {
+        var transforms = new int[12][CELLS];
+        for (int cell = 0; cell < CELLS; cell++) {
+            var cube = toCube(cell);
+            for (int t = 0; t < 12; t++) {
+                // a sixth of a turn moves (x, y, z) to (-z, -x, -y), and the second half of the transforms mirror y and z first
+                var turned = t < 6 ? cube.clone() : new int[]{cube[0], cube[2], cube[1]};
+                for (int i = 0; i < t % 6; i++) {
+                    turned = new int[]{-turned[2], -turned[0], -turned[1]};
+                }
+                transforms[t][cell] = fromCube(turned);
+            }
+        }
+        return transforms;
+    }
+
+    private static int[][] computeCanonical() {
+        var canonical = new int[CELLS][];
+        for (int cell = 0; cell < CELLS; cell++) {
+            var lowest = cell;
+            for (var transform : TRANSFORMS) {
+                lowest = Math.min(lowest, transform[cell]);
+            }
+            List<Integer> transforms = new ArrayList<>();
+            for (int t = 0; t < TRANSFORMS.length; t++) {
+                if (TRANSFORMS[t][cell] == lowest) {
+                    transforms.add(t);
+                }
+            }
+            canonical[cell] = transforms.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return canonical;
+    }
+
+    private static int[] computeKingSlotCells() {
+        return Arrays.stream(Hexagon.ORDERED).mapToInt(Hexagon::index).filter((cell) -> TRANSFORMS[CANONICAL[cell][0]][cell] == cell).toArray();
+    }
+
+    private static int[] computeKingSlots() {
+        var slots = new int[CELLS];
+        Arrays.fill(slots, -1);
+        for (int slot = 0; slot < KING_SLOT_CELLS.length; slot++) {
+            slots[KING_SLOT_CELLS[slot]] = slot;
+        }
+        return slots;
+    }
+
+    private static int[] computeMirrors() {
+        var mirrors = new int[CELLS];
+        for (int cell = 0; cell < CELLS; cell++) {
+            mirrors[cell] = Evaluation.mirror(cell);
+        }
+        return mirrors;
+    }
+
+    // what taking a piece leads to: the smaller table that has the pieces that are left, and where each of them goes in it
+    private record Capture(Tablebase table, boolean flipped, int[] slots) {
+    }
+
+    // retrograde analysis, one level of distance to mate at a time: the positions lost at the last level make every position
+    // that can move into them a win at this one, and the positions won at the last level might make a position that can
+    // move into them lost, which is confirmed by checking all of its moves lead to positions already won for the other side
+    private static class Generator {
+        private final Tablebase table;
+        private final Capture[] captures; // by the index of the taken piece, null if what's left is a draw
+        private final ExecutorService executor;
+        private final AtomicInteger maxValue = new AtomicInteger();
+
+        Generator(Tablebase table, List<Tablebase> subtables, ExecutorService executor) {
+            this.table = table;
+            this.executor = executor;
+            this.captures = new Capture[table.pieces.length];
+            for (int i = 0; i < table.pieces.length; i++) {
+                if (!isKing(table.pieces[i])) {
+                    captures[i] = findCapture(i, subtables);
+                }
+            }
+        }
+
+        void run() {
+            sweep(this::initialize);
+            for (int level = 1; ; level++) {
+                if (level > MAX_VALUE) {
+                    throw new IllegalStateException("Tablebase " + table.getMaterial() + " has a mate longer than a byte can hold");
+                }
+                var resolving = level;
+                var frontier = sweep((index, scratch) -> retreat(index, resolving, scratch));
+                if (frontier == 0 && level >= maxValue.get()) {
+                    break;
+                }
+            }
+        }
+
+        // runs the step over every position in parallel chunks, returning how many positions it reported doing anything for
+        private int sweep(Step step) {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int start = 0; start < table.size; start += CHUNK) {
+                var chunkStart = start;
+                var chunkEnd = Math.min(table.size, start + CHUNK);
+                futures.add(executor.submit(() -> {
+                    var scratch = new Scratch(table.pieces);
+                    var count = 0;
+                    for (int index = chunkStart; index < chunkEnd; index++) {
+                        count += step.apply(index, scratch);
+                    }
+                    return count;
+                }));
+            }
+            var count = 0;
+            for (var future : futures) {
+                try {
+                    count += future.get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while generating tablebase " + table.getMaterial(), ex);
+                } catch (ExecutionException ex) {
+                    throw new IllegalStateException("Failed to generate tablebase " + table.getMaterial(), ex.getCause());
+                }
+            }
+            return count;
+        }
+
+        // marks positions that can't happen, mates on the board, and the wins and losses that come from captures
+        private int initialize(int index, Scratch scratch) {
+            var turn = table.decode(index, scratch.cells);
+            // an index that isn't the lowest of its symmetric positions is never looked up
+            if (table.indexOf(scratch.cells, turn) != index || !scratch.place(scratch.cells, turnOf(1 - turn))) {
+                table.setValue(index, INVALID);
+                return 0;
+            }
+            var game = scratch.game;
+            if (game.isCheck()) {
+                table.setValue(index, INVALID);
+                return 0;
+            }
+            game.setTurn(game.turn().opposite());
+            game.findLegalMoves(scratch.moves);
+            if (scratch.moves.isEmpty()) {
+                table.setValue(index, game.isCheck() ? 1 : DRAW);
+                return 0;
+            }
+
+            var bestWin = Integer.MAX_VALUE;
+            var longestLoss = 0;
+            var quietMoves = 0;
+            var drawn = false;
+            for (int i = 0; i < scratch.moves.size(); i++) {
+                var move = scratch.moves.get(i);
+                var taken = indexOfCell(scratch.cells, MoveList.toOf(move));
+                if (taken < 0) {
+                    quietMoves++;
+                    continue;
+                }
+                var value = captureValue(scratch.cells, indexOfCell(scratch.cells, MoveList.fromOf(move)), MoveList.toOf(move), taken, 1 - turn, scratch);
+                if (isLoss(value)) {
+                    bestWin = Math.min(bestWin, value + 1);
+                } else if (isWin(value)) {
+                    longestLoss = Math.max(longestLoss, value + 1);
+                } else {
+                    drawn = true;
+                }
+            }
+            // a win from a capture can still be beaten by a quicker mate without one, which replaces it when it's found
+            if (bestWin != Integer.MAX_VALUE) {
+                resolve(index, bestWin);
+            } else if (quietMoves == 0 && !drawn) {
+                resolve(index, longestLoss);
+            }
+            return 0;
+        }
+
+        // works back from a position resolved at the last level to the positions that move into it, returns 1 if it was one
+        // values written by other tasks in the same pass are always one more than the level, so reads of them are never used
+        private int retreat(int index, int level, Scratch scratch) {
+            if (table.valueAt(index) != level) {
+                return 0;
+            }
+            var cells = scratch.cells;
+            var predecessor = scratch.predecessor;
+            var turn = table.decode(index, cells);
+            var mover = 1 - turn; // the side that made the last move is the side to move in every predecessor
+
+            for (int i = 0; i < cells.length; i++) {
+                if (turnOf(mover).isWhite() != isWhite(table.pieces[i])) {
+                    continue;
+                }
+                var originCount = scratch.findOrigins(cells, i);
+                for (int j = 0; j < originCount; j++) {
+                    System.arraycopy(cells, 0, predecessor, 0, cells.length);
+                    predecessor[i] = scratch.origins[j];
+                    var predecessorIndex = table.indexOf(predecessor, mover);
+                    var value = table.valueAt(predecessorIndex);
+                    if (isLoss(level)) {
+                        // moving into a lost position wins, unless a capture already found a quicker win
+                        if (value == DRAW || (isWin(value) && value > level + 1)) {
+                            resolve(predecessorIndex, level + 1);
+                        }
+                    } else if (value == DRAW) {
+                        var loss = findLoss(predecessor, mover, level, scratch);
+                        if (loss != DRAW) {
+                            resolve(predecessorIndex, loss);
+                        }
+                    }
+                }
+            }
+            return 1;
+        }
+
+        // the value of the position if every move leads to a position known to be won by the other side, otherwise DRAW
+        private int findLoss(int[] cells, int turn, int level, Scratch scratch) {
+            scratch.place(cells, turnOf(turn));
+            scratch.game.findLegalMoves(scratch.moves);
+            var child = scratch.child;
+            var longest = DRAW;
+            for (int i = 0; i < scratch.moves.size(); i++) {
+                var move = scratch.moves.get(i);
+                var mover = indexOfCell(cells, MoveList.fromOf(move));
+                var to = MoveList.toOf(move);
+                var taken = indexOfCell(cells, to);
+
+                int value;
+                if (taken >= 0) {
+                    value = captureValue(cells, mover, to, taken, 1 - turn, scratch);
+                } else {
+                    System.arraycopy(cells, 0, child, 0, cells.length);
+                    child[mover] = to;
+                    value = table.valueAt(table.indexOf(child, 1 - turn));
+                    // a win found after the last level might still be replaced by a quicker one, so it isn't final yet
+                    if (value > level) {
+                        return DRAW;
+                    }
+                }
+                if (!isWin(value)) {
+                    return DRAW;
+                }
+                longest = Math.max(longest, value + 1);
+            }
+            return longest;
+        }
+
+        private void resolve(int index, int value) {
+            table.setValue(index, value);
+            maxValue.accumulateAndGet(value, Math::max);
+        }
+
+        // the value of the position after a piece is taken, from the smaller table, for the side to move after the capture
+        private int captureValue(int[] cells, int mover, int to, int taken, int turn, Scratch scratch) {
+            var capture = captures[taken];
+            if (capture == null) {
+                return DRAW;
+            }
+            var subCells = scratch.subCells;
+            for (int k = 0; k < capture.slots.length; k++) {
+                var slot = capture.slots[k];
+                var cell = slot == mover ? to : cells[slot];
+                subCells[k] = capture.flipped ? MIRRORS[cell] : cell;
+            }
+            return capture.table.valueAt(capture.table.indexOf(subCells, capture.flipped ? 1 - turn : turn));
+        }
+
+        private Capture findCapture(int taken, List<Tablebase> subtables) {
+            for (var subtable : subtables) {
+                if (subtable.pieces.length != table.pieces.length - 1) {
+                    continue;
+                }
+                for (var flipped : new boolean[]{false, true}) {
+                    var slots = new int[subtable.pieces.length];
+                    var used = new boolean[table.pieces.length];
+                    used[taken] = true;
+                    var matched = true;
+                    for (int k = 0; k < slots.length && matched; k++) {
+                        var wanted = flipped ? flip(subtable.pieces[k]) : subtable.pieces[k];
+                        slots[k] = -1;
+                        for (int i = 0; i < table.pieces.length; i++) {
+                            if (!used[i] && table.pieces[i] == wanted) {
+                                slots[k] = i;
+                                used[i] = true;
+                                break;
+                            }
+                        }
+                        matched = slots[k] >= 0;
+                    }
+                    if (matched) {
+                        return new Capture(subtable, flipped, slots);
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static int indexOfCell(int[] cells, int cell) {
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i] == cell) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        int apply(int index, Scratch scratch);
+    }
+
+    // the per task state for generating, so nothing is allocated per position
+    private static class Scratch {
+        final BitboardGame game = new BitboardGame(new ChessBoard(Turn.WHITE));
+        final MoveList moves = new MoveList();
+        final int[] cells;
+        final int[] predecessor;
+        final int[] child;
+        final int[] subCells;
+        final int[] origins = new int[CELLS];
+        private final byte[] pieces;
+        private final int[] placed; // the cells the pieces are on in the game, -1 before the first position
+
+        Scratch(byte[] pieces) {
+            this.pieces = pieces;
+            cells = new int[pieces.length];
+            predecessor = new int[pieces.length];
+            child = new int[pieces.length];
+            subCells = new int[pieces.length];
+            placed = new int[pieces.length];
+            Arrays.fill(placed, -1);
+        }
+
+        // sets the game up with the pieces on the cells, unless two of them share a cell
+        boolean place(int[] cells, Turn turn) {
+            for (int i = 0; i < cells.length; i++) {
+                for (int j = 0; j < i; j++) {
+                    if (cells[i] == cells[j]) {
+                        return false;
+                    }
+                }
+            }
+            for (var cell : placed) {
+                if (cell >= 0) {
+                    game.setPiece(cell, EMPTY);
+                }
+            }
+            for (int i = 0; i < cells.length; i++) {
+                game.setPiece(cells[i], pieces[i]);
+                placed[i] = cells[i];
+            }
+            game.setTurn(turn);
+            return true;
+        }
+
+        // fills origins with the cells the piece could have moved from, which for anything but a pawn are the cells it could move to
+        int findOrigins(int[] cells, int i) {
+            var cell = cells[i];
+            var count = 0;
+            var rays = switch (pieces[i]) {
+                case WHITE_ROOK, BLACK_ROOK -> MoveTables.ROOK_RAYS[cell];
+                case WHITE_BISHOP, BLACK_BISHOP -> MoveTables.BISHOP_RAYS[cell];
+                case WHITE_QUEEN, BLACK_QUEEN -> MoveTables.QUEEN_RAYS[cell];
+                default -> null;
+            };
+            if (rays != null) {
+                for (var ray : rays) {
+                    for (var target : ray) {
+                        if (isOccupied(cells, target)) {
+                            break;
+                        }
+                        origins[count++] = target;
+                    }
+                }
+                return count;
+            }
+            var jumps = isKing(pieces[i]) ? MoveTables.KING_JUMPS[cell] : MoveTables.KNIGHT_JUMPS[cell];
+            for (var target : jumps) {
+                if (!isOccupied(cells, target)) {
+                    origins[count++] = target;
+                }
+            }
+            return count;
+        }
+
+        private static boolean isOccupied(int[] cells, int cell) {
+            for (var occupied : cells) {
+                if (occupied == cell) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package domain;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+// a fixed size hash table of search results keyed by zobrist key, shared without locks by every search thread
+// each entry is stored as the key xor the data next to the data, so a torn write from a racing thread fails the key check
+// the entries live in a direct buffer outside the heap, so a table of millions of entries costs the garbage collector nothing
+public class TranspositionTable {
+
+    public static final long MISS = 0; // a stored entry always has a bound, so its data is never zero
+
+    public static final int EXACT = 1;
+    public static final int LOWER = 2; // the score is at least this, the search failed high
+    public static final int UPPER = 3; // the score is at most this, the search failed low
+
+    public static final int ENTRY_BYTES = 16;
+    public static final int MAX_MEGABYTES = 1024; // a direct buffer is indexed by int, so it must stay under 2gb
+
+    private final LongBuffer entries; // entries[i * 2] is the checked key, entries[i * 2 + 1] the data
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder overwrites = new LongAdder();
+
+    // capacity is the number of entries, rounded up to a power of two
+    public TranspositionTable(int capacity) {
+        var size = Integer.highestOneBit(Math.max(capacity, 1));
+        if (size < capacity) {
+            size <<= 1;
+        }
+        if ((long) size * ENTRY_BYTES > (long) MAX_MEGABYTES << 20) {
+            throw new IllegalStateException("Transposition table can hold at most " + MAX_MEGABYTES + "mb of entries");
+        }
+        entries = ByteBuffer.allocateDirect(size * ENTRY_BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+        mask = size - 1;
+    }
+
+    // the largest power of two entries that fits in the given size
+    public static TranspositionTable ofMegabytes(int megabytes) {
+        if (megabytes < 1 || megabytes > MAX_MEGABYTES) {
+            throw new IllegalStateException("Transposition table size must be between 1 and " + MAX_MEGABYTES + "mb");
+        }
+        return new TranspositionTable(Integer.highestOneBit((megabytes << 20) / ENTRY_BYTES));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    // stores that evicted a different position
+    public long overwrites() {
+        return overwrites.sum();
+    }
+
+    // data is packed as [bound:2][depth:8][score:16][move:16], the move holds only the from and to cells
+    public static long pack(int move, int score, int depth, int bound) {
+        return (move & 0xFFFFL)
+            | ((score & 0xFFFFL) << 16)
+            | ((long) (depth & 0xFF) << 32)
+            | ((long) bound << 40);
+    }
+
+    public static int moveOf(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    public static int scoreOf(long data) {
+        return (short) (data >>> 16);
+    }
+
+    public static int depthOf(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    public static int boundOf(long data) {
+        return (int) ((data >>> 40) & 0x3);
+    }
+
+    public long probe(long key) {
+        var i = index(key);
+        var data = entries.get(i + 1);
+        if (data == MISS || (entries.get(i) ^ data) != key) {
+            misses.increment();
+            return MISS;
+        }
+        hits.increment();
+        return data;
+    }
+
+    // keeps the deeper result for the same position, but a different position always takes the slot
+    public void store(long key, int move, int score, int depth, int bound) {
+        var i = index(key);
+        var prevData = entries.get(i + 1);
+        if (prevData != MISS) {
+            if ((entries.get(i) ^ prevData) == key) {
+                if (depthOf(prevData) > depth && bound != EXACT) {
+                    return;
+                }
+            } else {
+                overwrites.increment();
+            }
+        }
+        var data = pack(move, score, depth, bound);
+        entries.put(i, key ^ data);
+        entries.put(i + 1, data);
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.capacity(); i++) {
+            entries.put(i, 0);
+        }
+        hits.reset();
+        misses.reset();
+        overwrites.reset();
+    }
+
+    private int index(long key) {
+        return ((int) (key ^ (key >>> 32)) & mask) * 2;
+    }
+}
@@ -0,0 +1,23 @@
+package domain;
+
+import java.util.Random;
+
+// zobrist keys for every piece on every cell, seeded so every node computes the same key for the same position
+final class Zobrist {
+
+    static final long[][] PIECES = new long[ChessBoard.BLACK_KING + 1][Hexagon.CELLS]; // the empty piece row stays zero
+    static final long BLACK_TURN;
+
+    static {
+        var random = new Random(0x6865786368657373L);
+        for (int piece = ChessBoard.WHITE_PAWN; piece <= ChessBoard.BLACK_KING; piece++) {
+            for (int i = 0; i < Hexagon.CELLS; i++) {
+                PIECES[piece][i] = random.nextLong();
+            }
+        }
+        BLACK_TURN = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+}
@@ -0,0 +1,19 @@
+package models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalysisEntity {
+    long historyId;
+    int ply;
+    String move; // moves are stored in from-to notation, see Move.toNotation
+    String bestMove; // null if the side to move had no moves
+    int bestScore;
+    int score;
+    int loss;
+    int classification; // one of the GameAnalysis constants
+}
@@ -1,7 +1,6 @@
 package models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import domain.ChessGame;
 import domain.Move;
 import lombok.AllArgsConstructor;
@@ -13,8 +12,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
-import static utils.Globals.JSON_MAPPER;
-
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -53,10 +50,24 @@ public class GameState {
         return new GameState("", null, whitePlayer, blackPlayer, false, null, 0, null);
     }
 
+    // the number of moves played, it only ever grows so a client can tell whether it missed an update
+    public int getVersion() {
+        return moveList != null ? moveList.size() : 0;
+    }
+
     public Player getCurrPlayer() {
         return game.getBoard().turn().isWhite() ? whitePlayer : blackPlayer;
     }
 
+    public boolean isComputerTurn() {
+        var currPlayer = getCurrPlayer();
+        return !isEnded && currPlayer != null && currPlayer.isComputer();
+    }
+
+    public boolean hasComputer() {
+        return (whitePlayer != null && whitePlayer.isComputer()) || (blackPlayer != null && blackPlayer.isComputer());
+    }
+
     public boolean isPlayerTurn(Player player) {
         var currPlayer = getCurrPlayer();
         if (currPlayer == null) {
@@ -69,15 +80,6 @@ public class GameState {
         moveList.add(move);
     }
 
-    public static String randomAsJson() {
-        try {
-            var moveList = applyRandomSequence(10);
-            return JSON_MAPPER.writeValueAsString(moveList);
-        } catch (JsonProcessingException ex) {
-            throw new RuntimeException(ex);
-        }
-    }
-
     public static List<Move> applyRandomSequence(int count) {
         var game = ChessGame.start();
         List<Move> moveList = new ArrayList<>();
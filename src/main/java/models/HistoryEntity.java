@@ -1,14 +1,17 @@
 package models;
 
+import domain.Move;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import org.jsoup.Jsoup;
 import utils.Globals;
+import utils.MoveHistoryFormat;
 
 import java.sql.Timestamp;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 import static utils.Globals.HTML_SAFELIST;
 
@@ -28,13 +31,17 @@ public class HistoryEntity {
     String blackName;
     String whiteCountry;
     String blackCountry;
-    String data; // this is expensive, so for certain views we don't fetch it
+    byte[] data; // the packed moves, see MoveHistoryFormat. this is expensive, so for certain views we don't fetch it
     int result;
     float winElo;
     float loseElo;
     @EqualsAndHashCode.Exclude
     Timestamp playedOn;
 
+    public List<Move> getMoveList() {
+        return data != null ? MoveHistoryFormat.decode(data) : null;
+    }
+
     public String getFormattedResult() {
         return switch (result) {
             case WHITE_WIN -> "White Victory";
@@ -95,8 +102,5 @@ public class HistoryEntity {
         blackName = Jsoup.clean(blackName, HTML_SAFELIST);
         whiteCountry = Jsoup.clean(whiteCountry, HTML_SAFELIST);
         blackCountry = Jsoup.clean(blackCountry, HTML_SAFELIST);
-        if (data != null) {
-            Jsoup.clean(data, HTML_SAFELIST);
-        }
     }
 }
\ No newline at end of file
@@ -9,10 +9,20 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class Player {
+    public static final String COMPUTER_ID = "computer"; // never a user id, those are uuids
+
     String id;
     @EqualsAndHashCode.Exclude
     String name;
 
+    public static Player computer() {
+        return new Player(COMPUTER_ID, "Computer");
+    }
+
+    public boolean isComputer() {
+        return COMPUTER_ID.equals(id);
+    }
+
     public Player deepCopy() {
         return new Player(id, name);
     }
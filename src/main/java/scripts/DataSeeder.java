@@ -109,79 +109,79 @@ public class DataSeeder {
             new UserDao.UserInst("id85", "ZorroBlade", "password85", "us", 1750f, 20, 14));
 
     private static final List<HistoryDao.HistoryInst> HISTORY_INSTS = List.of(
-        new HistoryDao.HistoryInst("id37", "id5", 1, 15d, -15d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id27", 0, 10d, -10d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id4", "id19", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id12", "id32", 1, 20d, -20d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id29", "id8", 0, 30d, -30d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id14", "id23", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id30", "id10", 1, 18d, -18d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id7", "id33", 0, 23d, -23d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id21", "id25", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id9", "id11", 1, 16d, -16d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id18", 0, 28d, -28d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id24", "id6", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id15", "id20", 1, 30d, -30d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id35", "id31", 0, 25d, -25d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id26", "id3", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id28", "id17", 1, 11d, -11d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id13", "id16", 0, 22d, -22d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id3", "id34", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id11", "id22", 1, 13d, -13d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id34", "id38", 0, 27d, -27d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id36", "id1", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id31", "id7", 1, 19d, -19d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id39", "id10", 0, 22d, -22d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id22", "id4", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id20", "id15", 1, 27d, -27d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id8", "id14", 0, 18d, -18d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id18", "id9", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id5", "id13", 1, 24d, -24d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id16", "id30", 0, 25d, -25d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id33", "id19", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id24", "id7", 1, 28d, -28d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id6", "id21", 0, 22d, -22d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id8", "id2", 1, 19d, -19d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 1, 15d, -15d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 0, 10d, -10d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 1, 20d, -20d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 0, 30d, -30d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 1, 18d, -18d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 0, 23d, -23d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 1, 16d, -16d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 0, 28d, -28d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 1, 30d, -30d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 0, 25d, -25d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 1, 11d, -11d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 0, 22d, -22d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 1, 13d, -13d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 0, 27d, -27d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 1, 24d, -24d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 0, 19d, -19d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 1, 26d, -26d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 0, 21d, -21d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 1, 28d, -28d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 0, 15d, -15d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 1, 12d, -12d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 0, 18d, -18d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 1, 23d, -23d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 0, 17d, -17d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 1, 27d, -27d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 0, 20d, -20d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 2, 0d, 0d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id1", "id2", 1, 14d, -14d, GameState.randomAsJson()),
-        new HistoryDao.HistoryInst("id2", "id1", 0, 30d, -30d, GameState.randomAsJson()));
+        new HistoryDao.HistoryInst("id37", "id5", 1, 15d, -15d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id27", 0, 10d, -10d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id4", "id19", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id12", "id32", 1, 20d, -20d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id29", "id8", 0, 30d, -30d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id14", "id23", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id30", "id10", 1, 18d, -18d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id7", "id33", 0, 23d, -23d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id21", "id25", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id9", "id11", 1, 16d, -16d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id18", 0, 28d, -28d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id24", "id6", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id15", "id20", 1, 30d, -30d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id35", "id31", 0, 25d, -25d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id26", "id3", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id28", "id17", 1, 11d, -11d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id13", "id16", 0, 22d, -22d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id3", "id34", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id11", "id22", 1, 13d, -13d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id34", "id38", 0, 27d, -27d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id36", "id1", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id31", "id7", 1, 19d, -19d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id39", "id10", 0, 22d, -22d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id22", "id4", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id20", "id15", 1, 27d, -27d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id8", "id14", 0, 18d, -18d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id18", "id9", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id5", "id13", 1, 24d, -24d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id16", "id30", 0, 25d, -25d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id33", "id19", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id24", "id7", 1, 28d, -28d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id6", "id21", 0, 22d, -22d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id8", "id2", 1, 19d, -19d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 1, 15d, -15d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 0, 10d, -10d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 1, 20d, -20d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 0, 30d, -30d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 1, 18d, -18d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 0, 23d, -23d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 1, 16d, -16d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 0, 28d, -28d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 1, 30d, -30d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 0, 25d, -25d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 1, 11d, -11d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 0, 22d, -22d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 1, 13d, -13d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 0, 27d, -27d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 1, 24d, -24d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 0, 19d, -19d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 1, 26d, -26d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 0, 21d, -21d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 1, 28d, -28d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 0, 15d, -15d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 1, 12d, -12d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 0, 18d, -18d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 1, 23d, -23d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 0, 17d, -17d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 1, 27d, -27d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 0, 20d, -20d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 2, 0d, 0d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id1", "id2", 1, 14d, -14d, GameState.applyRandomSequence(10)),
+        new HistoryDao.HistoryInst("id2", "id1", 0, 30d, -30d, GameState.applyRandomSequence(10)));
 
     private void seedUsersTable(List<UserDao.UserInst> insts) {
         var userDao = new UserDao(ds);
@@ -0,0 +1,83 @@
+package scripts;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import models.GameState;
+import models.Player;
+import web.WsRouter.InputMsg;
+import web.WsRouter.OutputMsg;
+
+import static utils.Globals.JSON_MAPPER;
+import static utils.Globals.LOGGER;
+
+// encodes the move broadcast and decodes a move message, once with the reflective field visibility mapper the server
+// used to have and once with the hand-written serializers the server uses now
+public class JsonBenchmark {
+
+    // undoes the annotations that point the messages at their hand-written serializers
+    @JsonSerialize(using = JsonSerializer.None.class)
+    @JsonDeserialize(using = JsonDeserializer.None.class)
+    private static class ReflectiveMixIn {
+    }
+
+    private static final ObjectMapper REFLECTIVE_MAPPER = new ObjectMapper()
+        .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+        .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+        .addMixIn(OutputMsg.class, ReflectiveMixIn.class)
+        .addMixIn(InputMsg.class, ReflectiveMixIn.class);
+
+    public static void main(String[] args) throws JsonProcessingException {
+        var iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        var state = GameState.startWithGame("benchmark");
+        state.setWhitePlayer(new Player("white", "White"));
+        state.setBlackPlayer(new Player("black", "Black"));
+        var game = state.getGame();
+        game.initPieceMoves();
+        for (var move : GameState.applyRandomSequence(20)) {
+            game.makeMove(move);
+            game.initPieceMoves();
+            state.pushMoveHistory(move);
+        }
+        var lastMove = state.getMoveList().getLast();
+        var output = OutputMsg.ofMove(state, lastMove);
+        var input = REFLECTIVE_MAPPER.writeValueAsString(new InputMsg(InputMsg.MOVE, lastMove));
+
+        if (!REFLECTIVE_MAPPER.writeValueAsString(output).equals(JSON_MAPPER.writeValueAsString(output))) {
+            throw new IllegalStateException("Hand-written serializers don't write the same json as the reflective mapper");
+        }
+
+        // a run of each first so the timed runs aren't measuring class loading and the jit
+        run("Warm up reflective", iterations / 10, REFLECTIVE_MAPPER, output, input);
+        run("Warm up hand-written", iterations / 10, JSON_MAPPER, output, input);
+
+        run("Reflective", iterations, REFLECTIVE_MAPPER, output, input);
+        run("Hand-written", iterations, JSON_MAPPER, output, input);
+    }
+
+    private static void run(String name, int iterations, ObjectMapper mapper, OutputMsg output, String input) throws JsonProcessingException {
+        var chars = 0L;
+        var types = 0L;
+        var startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            chars += mapper.writeValueAsString(output).length();
+        }
+        var writeTime = System.nanoTime() - startTime;
+
+        startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            types += mapper.readValue(input, InputMsg.class).getType();
+        }
+        var readTime = System.nanoTime() - startTime;
+
+        LOGGER.info("{} mapper wrote {} move broadcasts of {} chars in {} ms, {} writes/sec, and read {} move messages in {} ms, {} reads/sec",
+            name, iterations, chars / iterations, writeTime / 1_000_000, iterations * 1_000_000_000L / writeTime,
+            types / InputMsg.MOVE, readTime / 1_000_000, iterations * 1_000_000_000L / readTime);
+    }
+}
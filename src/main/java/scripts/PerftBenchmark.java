@@ -0,0 +1,50 @@
+package scripts;
+
+import domain.BitboardGame;
+import domain.ChessGame;
+import domain.Perft;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static utils.Globals.LOGGER;
+
+public class PerftBenchmark {
+
+    private static final int BATCH_SIZE = 1024;
+
+    public static void main(String[] args) {
+        var depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        var parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        // a shallow run first so the timed run isn't measuring class loading and the jit
+        Perft.perft(ChessGame.start(), 3);
+        Perft.perft(BitboardGame.start(), 3);
+        Perft.batchPerft(BitboardGame.start(), 3, BATCH_SIZE);
+
+        var startTime = System.nanoTime();
+        var serialNodes = Perft.perft(ChessGame.start(), Math.min(depth, 4));
+        var serialTime = System.nanoTime() - startTime;
+        LOGGER.info("Serial perft({}) counted {} nodes in {} ms, {} nodes/sec",
+            Math.min(depth, 4), serialNodes, serialTime / 1_000_000, serialNodes * 1_000_000_000L / serialTime);
+
+        startTime = System.nanoTime();
+        var bitboardNodes = Perft.perft(BitboardGame.start(), Math.min(depth, 4));
+        var bitboardTime = System.nanoTime() - startTime;
+        LOGGER.info("Bitboard perft({}) counted {} nodes in {} ms, {} nodes/sec",
+            Math.min(depth, 4), bitboardNodes, bitboardTime / 1_000_000, bitboardNodes * 1_000_000_000L / bitboardTime);
+
+        startTime = System.nanoTime();
+        var batchNodes = Perft.batchPerft(BitboardGame.start(), Math.min(depth, 4), BATCH_SIZE);
+        var batchTime = System.nanoTime() - startTime;
+        LOGGER.info("Batch perft({}) in batches of {} counted {} nodes in {} ms, {} nodes/sec",
+            Math.min(depth, 4), BATCH_SIZE, batchNodes, batchTime / 1_000_000, batchNodes * 1_000_000_000L / batchTime);
+
+        try (var pool = new ForkJoinPool(parallelism)) {
+            startTime = System.nanoTime();
+            var nodes = Perft.parallelPerft(ChessGame.start(), depth, pool);
+            var endTime = System.nanoTime() - startTime;
+            LOGGER.info("Parallel perft({}) on {} threads counted {} nodes in {} ms, {} nodes/sec",
+                depth, parallelism, nodes, endTime / 1_000_000, nodes * 1_000_000_000L / endTime);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package scripts;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import models.GameState;
+import models.Player;
+import utils.Serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static utils.Globals.LOGGER;
+
+// round trips a game state on many virtual threads, once the way the serializer used to with a kryo per thread and a
+// stream per call, and once through the pooled serializer
+public class SerializerBenchmark {
+
+    private static final ThreadLocal<Kryo> THREAD_KRYO = ThreadLocal.withInitial(Serializer::newKryo);
+
+    public static void main(String[] args) {
+        var tasks = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        var state = GameState.startWithGame("benchmark");
+        state.setWhitePlayer(new Player("white", "White"));
+        state.setBlackPlayer(new Player("black", "Black"));
+        var game = state.getGame();
+        game.initPieceMoves();
+        for (var move : GameState.applyRandomSequence(40)) {
+            game.makeMove(move);
+            game.initPieceMoves();
+            state.pushMoveHistory(move);
+        }
+
+        // a run of each first so the timed runs aren't measuring class loading and the jit
+        run("Warm up thread local", tasks / 10, state, SerializerBenchmark::roundTripThreadLocal);
+        run("Warm up pooled", tasks / 10, state, SerializerBenchmark::roundTripPooled);
+
+        run("Thread local", tasks, state, SerializerBenchmark::roundTripThreadLocal);
+        run("Pooled", tasks, state, SerializerBenchmark::roundTripPooled);
+    }
+
+    private static void run(String name, int tasks, GameState state, Function<GameState, Integer> roundTrip) {
+        var bytes = new AtomicLong();
+        var startTime = System.nanoTime();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(() -> bytes.addAndGet(roundTrip.apply(state)));
+            }
+        }
+        var endTime = System.nanoTime() - startTime;
+        LOGGER.info("{} serializer did {} round trips of {} bytes on virtual threads in {} ms, {} round trips/sec",
+            name, tasks, bytes.get() / tasks, endTime / 1_000_000, tasks * 1_000_000_000L / endTime);
+    }
+
+    private static int roundTripThreadLocal(GameState state) {
+        var rawBytes = new ByteArrayOutputStream();
+        try (var output = new Output(rawBytes)) {
+            THREAD_KRYO.get().writeObject(output, state);
+        }
+        var bytes = rawBytes.toByteArray();
+        try (var input = new Input(new ByteArrayInputStream(bytes))) {
+            THREAD_KRYO.get().readObject(input, GameState.class);
+        }
+        return bytes.length;
+    }
+
+    private static int roundTripPooled(GameState state) {
+        var bytes = Serializer.serialize(state);
+        Serializer.deserialize(bytes, GameState.class);
+        return bytes.length;
+    }
+}
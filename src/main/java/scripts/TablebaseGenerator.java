@@ -0,0 +1,39 @@
+package scripts;
+
+import domain.Tablebase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static utils.Globals.LOGGER;
+
+public class TablebaseGenerator {
+
+    // smaller tables first, each one is used by the ones after it for the positions after a capture
+    private static final String DEFAULT_MATERIALS = "KQvK,KRvK,KRvKB";
+
+    public static void main(String[] args) throws IOException {
+        var directory = Path.of(args.length > 0 ? args[0] : "tablebases");
+        var materials = (args.length > 1 ? args[1] : DEFAULT_MATERIALS).split(",");
+        var parallelism = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Files.createDirectories(directory);
+        List<Tablebase> tables = new ArrayList<>();
+        try (var executor = Executors.newFixedThreadPool(parallelism)) {
+            for (var material : materials) {
+                var startTime = System.nanoTime();
+                var table = Tablebase.generate(directory.resolve(material + Tablebase.FILE_SUFFIX), material, tables, executor);
+                LOGGER.info("Generated {} with {} positions on {} threads in {} ms",
+                    material, table.size(), parallelism, (System.nanoTime() - startTime) / 1_000_000);
+                tables.add(table);
+            }
+        }
+        for (var table : tables) {
+            table.close();
+        }
+    }
+}
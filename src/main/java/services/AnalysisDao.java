@@ -0,0 +1,91 @@
+package services;
+
+import models.AnalysisEntity;
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.ResultSetHandler;
+import org.apache.commons.dbutils.handlers.BeanListHandler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static utils.Globals.LOGGER;
+
+public class AnalysisDao {
+
+    private static final ResultSetHandler<List<AnalysisEntity>> ANALYSIS_LIST_MAPPER = new BeanListHandler<>(AnalysisEntity.class);
+    private static final ResultSetHandler<HistoryDao.Cursor> CURSOR_MAPPER = rs ->
+        rs.next() ? new HistoryDao.Cursor(rs.getTimestamp(1), rs.getLong(2)) : HistoryDao.Cursor.start();
+
+    private final QueryRunner runner;
+
+    public AnalysisDao(DataSource ds) {
+        runner = new QueryRunner(ds);
+    }
+
+    // the last history that was analyzed, everything up to and including it has its results written
+    public HistoryDao.Cursor getCheckpoint() {
+        var sql = "SELECT lastPlayedOn, lastHistoryId FROM analysis_checkpoints WHERE id = 1";
+        try {
+            return runner.query(sql, CURSOR_MAPPER);
+        } catch (SQLException ex) {
+            LOGGER.error("Failed to select analysis checkpoint", ex);
+            throw new RuntimeException(ex);
+        }
+    }
+
+    // writes the analyses and moves the checkpoint in one transaction, so a restart never skips or half writes a page
+    // analyses already written are left alone, which makes it safe to replay a page that was written but not checkpointed
+    public void insertBatch(List<AnalysisEntity> analyses, HistoryDao.Cursor checkpoint) {
+        var insertSql = """
+            INSERT INTO game_analyses (historyId, ply, move, bestMove, bestScore, score, loss, classification)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (historyId, ply) DO NOTHING""";
+        var checkpointSql = """
+            UPDATE analysis_checkpoints SET lastPlayedOn = ?, lastHistoryId = ?
+            WHERE id = 1 AND (lastPlayedOn, lastHistoryId) < (?, ?)""";
+
+        var params = new Object[analyses.size()][];
+        for (int i = 0; i < analyses.size(); i++) {
+            var analysis = analyses.get(i);
+            params[i] = new Object[]{analysis.getHistoryId(), analysis.getPly(), analysis.getMove(), analysis.getBestMove(),
+                analysis.getBestScore(), analysis.getScore(), analysis.getLoss(), analysis.getClassification()};
+        }
+
+        Connection conn = null;
+        try {
+            conn = runner.getDataSource().getConnection();
+            conn.setAutoCommit(false);
+            if (params.length > 0) {
+                runner.batch(conn, insertSql, params);
+            }
+            runner.update(conn, checkpointSql, checkpoint.getPlayedOn(), checkpoint.getId(), checkpoint.getPlayedOn(), checkpoint.getId());
+            conn.commit();
+            LOGGER.info("Inserted {} analyses and moved checkpoint to {}", analyses.size(), checkpoint);
+        } catch (SQLException ex) {
+            LOGGER.error("Failed to insert analyses up to {}", checkpoint, ex);
+            DbUtils.rollbackQuietly(conn);
+            throw new RuntimeException(ex);
+        } finally {
+            DbUtils.closeQuietly(conn);
+        }
+    }
+
+    public List<AnalysisEntity> getAnalyses(long historyId) {
+        var sql = """
+            SELECT historyId, ply, move, bestMove, bestScore, score, loss, classification
+            FROM game_analyses
+            WHERE historyId = ?
+            ORDER BY ply""";
+        try {
+            var results = runner.query(sql, ANALYSIS_LIST_MAPPER, historyId);
+            LOGGER.info("Selected analyses for history id={}", historyId);
+            return results;
+        } catch (SQLException ex) {
+            LOGGER.error("Failed to select analyses for history id={}", historyId, ex);
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package services;
+
+import domain.GameAnalysis;
+import domain.Search;
+import domain.Tablebase;
+import domain.TranspositionTable;
+import models.AnalysisEntity;
+import models.HistoryEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static utils.Globals.LOGGER;
+
+// replays finished games in the background and writes an evaluation of every move, see GameAnalysis
+// it works through game_histories a page at a time from a checkpoint, so it picks up where it left off after a restart
+public class AnalysisService {
+
+    private final HistoryDao historyDao;
+    private final AnalysisDao analysisDao;
+    private final Search search;
+    private final Search.Limits limits;
+    private final ExecutorService workers;
+    private final int pageSize;
+    private final double dutyCycle; // the fraction of time a worker spends analyzing, it rests for the remainder
+    private volatile boolean stopped = false;
+
+    public AnalysisService(HistoryDao historyDao, AnalysisDao analysisDao, int workerCount, int pageSize, double dutyCycle, Search.Limits limits) {
+        this(historyDao, analysisDao, workerCount, pageSize, dutyCycle, limits, List.of());
+    }
+
+    public AnalysisService(HistoryDao historyDao, AnalysisDao analysisDao, int workerCount, int pageSize, double dutyCycle,
+                           Search.Limits limits, List<Tablebase> tablebases) {
+        if (workerCount < 1 || pageSize < 1 || dutyCycle <= 0 || dutyCycle > 1) {
+            throw new IllegalStateException("Analysis needs at least one worker, a positive page size and a duty cycle in (0, 1]");
+        }
+        this.historyDao = historyDao;
+        this.analysisDao = analysisDao;
+        this.search = new Search(TranspositionTable.ofMegabytes(16), 1, null, tablebases);
+        this.limits = limits;
+        this.pageSize = pageSize;
+        this.dutyCycle = dutyCycle;
+        // a bounded pool of low priority threads, so live requests are scheduled ahead of the analysis when the cpu is busy
+        this.workers = Executors.newFixedThreadPool(workerCount, Thread.ofPlatform()
+            .name("analysis-", 0)
+            .daemon()
+            .priority(Thread.MIN_PRIORITY)
+            .factory());
+    }
+
+    public AnalysisService(HistoryDao historyDao, AnalysisDao analysisDao, List<Tablebase> tablebases) {
+        this(historyDao, analysisDao, Math.max(1, Runtime.getRuntime().availableProcessors() / 4), 20, 0.5, Search.Limits.ofNodes(20_000), tablebases);
+    }
+
+    // analyzes every history after the checkpoint, returns how many histories were processed
+    public int runOnce() {
+        var processed = 0;
+        while (!stopped) {
+            var checkpoint = analysisDao.getCheckpoint();
+            var histories = historyDao.getHistoriesAfter(checkpoint, pageSize);
+            if (histories.isEmpty()) {
+                break;
+            }
+
+            List<Future<List<AnalysisEntity>>> futures = new ArrayList<>();
+            for (var history : histories) {
+                futures.add(workers.submit(() -> analyzeThrottled(history)));
+            }
+
+            List<AnalysisEntity> analyses = new ArrayList<>();
+            for (var future : futures) {
+                try {
+                    analyses.addAll(future.get());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    stopped = true;
+                    return processed; // nothing from this page was written, so it will be analyzed again next time
+                } catch (ExecutionException ex) {
+                    throw new IllegalStateException("Analysis worker failed", ex.getCause());
+                }
+            }
+
+            analysisDao.insertBatch(analyses, HistoryDao.Cursor.of(histories.getLast()));
+            processed += histories.size();
+        }
+        return processed;
+    }
+
+    // keeps analyzing as new histories arrive, resting between passes once it has caught up
+    public void runForever(long idleMillis) {
+        while (!stopped) {
+            try {
+                var processed = runOnce();
+                if (processed > 0) {
+                    LOGGER.info("Analyzed {} game histories", processed);
+                }
+                Thread.sleep(idleMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                LOGGER.error("Analysis pass failed, it will resume from the last checkpoint {}", String.valueOf(ex));
+                try {
+                    Thread.sleep(idleMillis);
+                } catch (InterruptedException interruptEx) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    private List<AnalysisEntity> analyzeThrottled(HistoryEntity history) throws InterruptedException {
+        var startTime = System.nanoTime();
+        var analyses = analyze(history);
+        var elapsed = System.nanoTime() - startTime;
+
+        // rest in proportion to the work done, so each worker uses at most its duty cycle of a cpu
+        var restNanos = (long) (elapsed * (1 - dutyCycle) / dutyCycle);
+        Thread.sleep(restNanos / 1_000_000, (int) (restNanos % 1_000_000));
+        return analyses;
+    }
+
+    List<AnalysisEntity> analyze(HistoryEntity history) {
+        List<AnalysisEntity> analyses = new ArrayList<>();
+        try {
+            var moves = history.getMoveList();
+            for (var analysis : GameAnalysis.analyze(moves, search, limits)) {
+                analyses.add(new AnalysisEntity(history.getId(), analysis.getPly(),
+                    analysis.getMove().toNotation(),
+                    analysis.getBestMove() != null ? analysis.getBestMove().toNotation() : null,
+                    analysis.getBestScore(), analysis.getScore(), analysis.getLoss(), analysis.getClassification()));
+            }
+        } catch (Exception ex) {
+            // a history that can't be replayed will never succeed, so it's logged and skipped rather than blocking the checkpoint
+            LOGGER.warn("Skipping analysis of history id={}: {}", history.getId(), String.valueOf(ex));
+        }
+        return analyses;
+    }
+}
@@ -2,10 +2,18 @@ package services;
 
 import io.jooby.WebSocket;
 
+import java.util.List;
+
 public interface Broadcaster {
-    void subscribe(String id, WebSocket ws);
+    // both return whether the socket was added or removed, a socket is subscribed to an id at most once
+    boolean subscribe(String id, WebSocket ws);
 
-    void unsubscribe(String id, WebSocket ws);
+    boolean unsubscribe(String id, WebSocket ws);
 
     void broadcast(String id, String content);
+
+    void broadcast(String id, byte[] content); // sent as a binary frame, the same array goes to every subscriber
+
+    // the ids that have at least one subscriber, so a message nobody would receive isn't encoded or published
+    List<String> subscribedIds(String... ids);
 }
@@ -1,13 +1,25 @@
 package services;
 
+import domain.ChessBoard.Turn;
+import domain.ChessGame;
 import domain.Move;
+import domain.MoveDelta;
+import domain.Search;
+import domain.Tablebase;
+import domain.TranspositionTable;
 import lombok.AllArgsConstructor;
+import lombok.Data;
 import models.GameState;
 import models.HistoryEntity;
 import models.Player;
 
+import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 
 import static utils.Globals.*;
 
@@ -20,19 +32,59 @@ public class GameService {
         }
     }
 
+    // the state after a move, with how each side's move list changed so clients holding the lists can be sent just that
+    @Data
+    @AllArgsConstructor
+    public static class MoveResult {
+        private GameState state;
+        private MoveDelta whiteDelta;
+        private MoveDelta blackDelta;
+    }
+
     private static final Random RANDOM = new Random();
+    private static final Search.Limits COMPUTER_LIMITS = Search.Limits.ofTime(1000);
+    // at most this many computer searches run at once and each one gets an equal share of the search threads, so a search
+    // never waits on threads another game's search is using. the searches past the cap wait for one to finish
+    private static final int MAX_COMPUTER_SEARCHES = Math.max(1, SEARCH_THREADS / 2);
+    private static final Semaphore COMPUTER_SEARCHES = new Semaphore(MAX_COMPUTER_SEARCHES);
 
     private final RemoteDict remoteDict;
     private final UserDao userDao;
     private final HistoryDao historyDao;
+    private final Search engine;
+    private final Set<String> searchingGames = ConcurrentHashMap.newKeySet(); // the games this node is searching a move for
+
+    public GameService(RemoteDict remoteDict, UserDao userDao, HistoryDao historyDao, List<Tablebase> tablebases) {
+        // one table shared by every computer game, a position reached in two games is worth the same in both
+        this(remoteDict, userDao, historyDao, new Search(TranspositionTable.ofMegabytes(16),
+            SEARCH_THREADS / MAX_COMPUTER_SEARCHES, SEARCH_EXECUTOR, tablebases));
+    }
+
+    public GameService(RemoteDict remoteDict, UserDao userDao, HistoryDao historyDao) {
+        this(remoteDict, userDao, historyDao, List.of());
+    }
 
     public String create(Boolean isFirstPlayerWhite) {
+        return create(isFirstPlayerWhite, false);
+    }
+
+    public String create(Boolean isFirstPlayerWhite, boolean isVsComputer) {
         var id = UUID.randomUUID().toString();
         var gameState = GameState.startWithGame(id);
 
         gameState.setIsFirstPlayerWhite(isFirstPlayerWhite);
         gameState.getGame().initPieceMoves();
 
+        if (isVsComputer) {
+            // the computer takes the side the first player won't, so the join logic below seats the player in the other one
+            boolean isComputerWhite = isFirstPlayerWhite == null ? RANDOM.nextInt() % 2 == 0 : !isFirstPlayerWhite;
+            if (isComputerWhite) {
+                gameState.setWhitePlayer(Player.computer());
+            } else {
+                gameState.setBlackPlayer(Player.computer());
+            }
+        }
+
         remoteDict.setGame(id, gameState);
         return id;
     }
@@ -81,6 +133,11 @@ public class GameService {
     }
 
     public GameState makeMove(String gameId, Player player, Move move) {
+        var result = playMove(gameId, player, move);
+        return result != null ? result.getState() : null;
+    }
+
+    public MoveResult playMove(String gameId, Player player, Move move) {
         var state = remoteDict.getGame(gameId);
         if (state == null) {
             return null;
@@ -101,6 +158,8 @@ public class GameService {
             throw new MoveException("Cannot make an invalid move!");
         }
 
+        var whiteBefore = game.getMoveList(Turn.WHITE).copy();
+        var blackBefore = game.getMoveList(Turn.BLACK).copy();
         game.makeMove(move);
         game.initPieceMoves();
 
@@ -113,10 +172,58 @@ public class GameService {
         }
 
         LOGGER.info("{} made move {} on game {}", player, move, gameId);
-        return remoteDict.setGame(gameId, state);
+        return new MoveResult(remoteDict.setGame(gameId, state),
+            MoveDelta.between(whiteBefore, game.getMoveList(Turn.WHITE)),
+            MoveDelta.between(blackBefore, game.getMoveList(Turn.BLACK)));
+    }
+
+    // searches for the computer's move and plays it like any other player's, returns null if it isn't the computer's turn
+    // or if the move for this game is already being searched, a spectator or a reconnect doesn't start a second search
+    public MoveResult playComputerMove(String gameId) {
+        if (!searchingGames.add(gameId)) {
+            return null;
+        }
+        try {
+            var state = remoteDict.getGame(gameId);
+            if (state == null || !state.isComputerTurn()) {
+                return null;
+            }
+
+            var result = searchComputerMove(state.getGame());
+            if (result == null || result.getMove() == null) {
+                return null;
+            }
+            LOGGER.info("Computer found move {} with score {} at depth {} searching {} nodes on game {}",
+                result.getMove(), result.getScore(), result.getDepth(), result.getNodes(), gameId);
+
+            return playMove(gameId, state.getCurrPlayer(), result.getMove());
+        } finally {
+            searchingGames.remove(gameId);
+        }
+    }
+
+    // the whole search runs on the search threads, the calling virtual thread only waits for it
+    private Search.Result searchComputerMove(ChessGame game) {
+        try {
+            COMPUTER_SEARCHES.acquire();
+            try {
+                return SEARCH_EXECUTOR.submit(() -> engine.findBestMove(game, COMPUTER_LIMITS)).get();
+            } finally {
+                COMPUTER_SEARCHES.release();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Computer search failed", ex.getCause());
+        }
     }
 
     public void onFinishGame(GameState state, boolean isWhiteWin) {
+        if (state.hasComputer()) {
+            LOGGER.info("Game {} against the computer is over, no results are recorded", state.getId());
+            return;
+        }
         try {
             var whiteId = state.getWhitePlayer().getId();
             var blackId = state.getBlackPlayer().getId();
@@ -124,13 +231,11 @@ public class GameService {
             var winId = isWhiteWin ? whiteId : blackId;
             var loseId = isWhiteWin ? blackId : whiteId;
 
-            var moveHistoryData = JSON_MAPPER.writeValueAsString(state.getMoveList());
-
             var changeSet = userDao.updateStatsUsingResult(winId, loseId);
             remoteDict.updateLeaderboardUser(
                 new RemoteDict.EloChangeSet(winId, changeSet.winEloDiff),
                 new RemoteDict.EloChangeSet(loseId, changeSet.loseEloDiff));
-            historyDao.insert(whiteId, blackId, result, changeSet.getWinEloDiff(), changeSet.getLoseEloDiff(), moveHistoryData);
+            historyDao.insert(whiteId, blackId, result, changeSet.getWinEloDiff(), changeSet.getLoseEloDiff(), state.getMoveList());
         } catch (Exception ex) {
             LOGGER.info("Failed to persist game results to database in background thread {}", String.valueOf(ex));
         }
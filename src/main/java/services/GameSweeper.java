@@ -0,0 +1,55 @@
+package services;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static utils.Globals.LOGGER;
+
+// removes games that haven't been played in a while, instead of every read checking for expired games
+// every node runs a sweeper but they share a lease in redis, so only one of them sweeps in each interval
+public class GameSweeper {
+
+    private final RemoteDict remoteDict;
+    private final String owner = UUID.randomUUID().toString();
+    private volatile boolean stopped = false;
+
+    public GameSweeper(RemoteDict remoteDict) {
+        this.remoteDict = remoteDict;
+    }
+
+    // returns the number of games removed, or -1 if another node holds the lease for this interval
+    public int sweepOnce(long intervalMillis) {
+        // the lease is never released, it runs out at the end of the interval so the sweeps stay an interval apart
+        if (!remoteDict.tryAcquireSweepLease(owner, Duration.ofMillis(intervalMillis))) {
+            return -1;
+        }
+        return remoteDict.expireGames();
+    }
+
+    public void runForever(long intervalMillis) {
+        while (!stopped) {
+            try {
+                var expired = sweepOnce(intervalMillis);
+                if (expired > 0) {
+                    LOGGER.info("Expired {} games", expired);
+                }
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                LOGGER.error("Game sweep failed, it will be retried next interval {}", String.valueOf(ex));
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException interruptEx) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+}
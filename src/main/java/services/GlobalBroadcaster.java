@@ -3,11 +3,21 @@ package services;
 import io.jooby.WebSocket;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import redis.clients.jedis.BinaryJedisPubSub;
 import redis.clients.jedis.JedisPooled;
-import redis.clients.jedis.JedisPubSub;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static utils.Globals.LOGGER;
 
@@ -15,22 +25,147 @@ public class GlobalBroadcaster implements Broadcaster {
 
     private static final String CHANNEL_NAME = "global-ws-broadcast";
     private static final char FIELD_SPLIT = 0x1e;
+    // binary frames go on a channel of their own, as the id followed by the split byte and then the frame as is
+    private static final byte[] BINARY_CHANNEL_NAME = "global-ws-broadcast-binary".getBytes(StandardCharsets.UTF_8);
+    // each node keeps how many of its sockets are subscribed to each id in a hash of its own, ws-subscribers:<node>
+    // the node rewrites the hash from its sockets and renews its ttl every heartbeat, so a node that dies takes its counts
+    // with it once the ttl runs out. the nodes zset lists the nodes by their last heartbeat so readers can sum the hashes
+    private static final String SUBSCRIBERS_PREFIX = "ws-subscribers:";
+    private static final String SUBSCRIBER_NODES_ZSET = "ws-subscriber-nodes";
+    private static final Duration SUBSCRIBERS_TTL = Duration.ofMinutes(1);
+    // decrements and removes in one step, so a subscribe that lands in between isn't deleted along with the old count
+    private static final String UNSUBSCRIBE_SCRIPT = """
+        local count = redis.call('HINCRBY', KEYS[1], ARGV[1], -1)
+        if count <= 0 then
+            redis.call('HDEL', KEYS[1], ARGV[1])
+        end
+        return count
+        """;
+    // sums each id's count over the hashes of every node, a node whose hash has expired just counts nothing
+    private static final String COUNT_SCRIPT = """
+        local counts = {}
+        for i = 2, #ARGV do
+            counts[i - 1] = 0
+        end
+        for _, node in ipairs(redis.call('ZRANGE', KEYS[1], 0, -1)) do
+            local nodeCounts = redis.call('HMGET', ARGV[1] .. node, unpack(ARGV, 2))
+            for i, count in ipairs(nodeCounts) do
+                if count then
+                    counts[i] = counts[i] + tonumber(count)
+                end
+            end
+        end
+        return counts
+        """;
 
     private final JedisPooled jedis;
     private final LocalBroadcaster localBroadcaster = new LocalBroadcaster();
+    private final String nodeId = UUID.randomUUID().toString();
+    private final String subscribersKey = SUBSCRIBERS_PREFIX + nodeId;
+    // subscribes and unsubscribes share the lock, a heartbeat takes it alone so the counts it writes match the sockets
+    private final ReadWriteLock subscribersLock = new ReentrantReadWriteLock();
+    private volatile boolean stopped = false;
 
     public GlobalBroadcaster(JedisPooled jedis) {
         this.jedis = jedis;
     }
 
     @Override
-    public void subscribe(String id, WebSocket ws) {
-        localBroadcaster.subscribe(id, ws);
+    public boolean subscribe(String id, WebSocket ws) {
+        subscribersLock.readLock().lock();
+        try {
+            if (!localBroadcaster.subscribe(id, ws)) {
+                return false;
+            }
+            // a transaction holds on to its pooled connection until it is closed
+            try (var t = jedis.multi()) {
+                t.hincrBy(subscribersKey, id, 1);
+                t.pexpire(subscribersKey, SUBSCRIBERS_TTL.toMillis());
+                t.zadd(SUBSCRIBER_NODES_ZSET, System.currentTimeMillis(), nodeId);
+                t.exec();
+            }
+            return true;
+        } finally {
+            subscribersLock.readLock().unlock();
+        }
     }
 
+    // only a socket that was subscribed is taken off the count, a socket closing before it subscribed would take another's
     @Override
-    public void unsubscribe(String id, WebSocket ws) {
-        localBroadcaster.unsubscribe(id, ws);
+    public boolean unsubscribe(String id, WebSocket ws) {
+        subscribersLock.readLock().lock();
+        try {
+            if (!localBroadcaster.unsubscribe(id, ws)) {
+                return false;
+            }
+            jedis.eval(UNSUBSCRIBE_SCRIPT, List.of(subscribersKey), List.of(id));
+            return true;
+        } finally {
+            subscribersLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> subscribedIds(String... ids) {
+        List<String> args = new ArrayList<>();
+        args.add(SUBSCRIBERS_PREFIX);
+        args.addAll(List.of(ids));
+        var counts = (List<?>) jedis.eval(COUNT_SCRIPT, List.of(SUBSCRIBER_NODES_ZSET), args);
+
+        List<String> subscribed = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            if ((Long) counts.get(i) > 0) {
+                subscribed.add(ids[i]);
+            }
+        }
+        return subscribed;
+    }
+
+    // rewrites this node's counts from its sockets and renews their ttl, nodes that missed their heartbeats are forgotten
+    public void heartbeat() {
+        subscribersLock.writeLock().lock();
+        try {
+            Map<String, String> counts = new HashMap<>();
+            localBroadcaster.subscriberCounts().forEach((id, count) -> counts.put(id, Integer.toString(count)));
+
+            var now = System.currentTimeMillis();
+            try (var t = jedis.multi()) {
+                t.del(subscribersKey);
+                if (!counts.isEmpty()) {
+                    t.hmset(subscribersKey, counts);
+                    t.pexpire(subscribersKey, SUBSCRIBERS_TTL.toMillis());
+                }
+                t.zadd(SUBSCRIBER_NODES_ZSET, now, nodeId);
+                t.zremrangeByScore(SUBSCRIBER_NODES_ZSET, Double.NEGATIVE_INFINITY, now - SUBSCRIBERS_TTL.toMillis());
+                t.exec();
+            }
+        } finally {
+            subscribersLock.writeLock().unlock();
+        }
+    }
+
+    public void runForever(long intervalMillis) {
+        while (!stopped) {
+            try {
+                heartbeat();
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                LOGGER.error("Subscriber heartbeat failed, it will be retried next interval {}", String.valueOf(ex));
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException interruptEx) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public void stop() {
+        stopped = true;
     }
 
     @Override
@@ -40,37 +175,72 @@ public class GlobalBroadcaster implements Broadcaster {
         LOGGER.info("Broadcast global to id: {}, message: {}", id, message);
     }
 
-    public JedisPubSub startListenSubscribe() throws ExecutionException, InterruptedException {
-        CompletableFuture<JedisPubSub> futureSubscriber = new CompletableFuture<>();
+    @Override
+    public void broadcast(String id, byte[] content) {
+        var idBytes = id.getBytes(StandardCharsets.UTF_8);
+        var message = Arrays.copyOf(idBytes, idBytes.length + 1 + content.length);
+        message[idBytes.length] = FIELD_SPLIT;
+        System.arraycopy(content, 0, message, idBytes.length + 1, content.length);
+        jedis.publish(BINARY_CHANNEL_NAME, message);
+        LOGGER.info("Broadcast global to id: {}, {} bytes", id, content.length);
+    }
+
+    // one binary subscriber listens on both channels, messages on the text channel are decoded back into strings
+    public BinaryJedisPubSub startListenSubscribe() throws ExecutionException, InterruptedException {
+        CompletableFuture<BinaryJedisPubSub> futureSubscriber = new CompletableFuture<>();
         var thread = Thread.ofVirtual().start(() -> {
-            var subscriber = new JedisPubSub() {
+            var subscriber = new BinaryJedisPubSub() {
                 @Override
-                public void onSubscribe(String channel, int subscribedChannels) {
+                public void onSubscribe(byte[] channel, int subscribedChannels) {
                     super.onSubscribe(channel, subscribedChannels);
-                    LOGGER.info("Started the subscriber listener for broadcast instance: {}", this);
-                    futureSubscriber.complete(this);
+                    if (subscribedChannels == 2) {
+                        LOGGER.info("Started the subscriber listener for broadcast instance: {}", this);
+                        futureSubscriber.complete(this);
+                    }
                 }
 
                 @Override
-                public void onMessage(String channel, String message) {
+                public void onMessage(byte[] channel, byte[] message) {
                     try {
                         super.onMessage(channel, message);
-                        var index = message.indexOf(FIELD_SPLIT);
-                        if (index == -1) {
-                            LOGGER.error("Invalid message format: {}", message);
-                            return;
+                        if (Arrays.equals(channel, BINARY_CHANNEL_NAME)) {
+                            onBinaryMessage(message);
+                        } else {
+                            onTextMessage(new String(message, StandardCharsets.UTF_8));
                         }
-                        localBroadcaster.broadcast(message.substring(0, index), message.substring(index + 1));
                     } catch (Exception ex) {
                         LOGGER.error("Error occurred in subscriber thread {}", String.valueOf(ex));
                     }
                 }
             };
-            jedis.subscribe(subscriber, CHANNEL_NAME); // start the subscriber, blocking the current thread until subscriber is stopped
+            // start the subscriber, blocking the current thread until subscriber is stopped
+            jedis.subscribe(subscriber, CHANNEL_NAME.getBytes(StandardCharsets.UTF_8), BINARY_CHANNEL_NAME);
         });
         thread.start();
 
         // don't actually return the jedis subscriber until the thread notifies us that we've created it
         return futureSubscriber.get();
     }
+
+    private void onTextMessage(String message) {
+        var index = message.indexOf(FIELD_SPLIT);
+        if (index == -1) {
+            LOGGER.error("Invalid message format: {}", message);
+            return;
+        }
+        localBroadcaster.broadcast(message.substring(0, index), message.substring(index + 1));
+    }
+
+    private void onBinaryMessage(byte[] message) {
+        var index = 0;
+        while (index < message.length && message[index] != FIELD_SPLIT) {
+            index++;
+        }
+        if (index == message.length) {
+            LOGGER.error("Invalid binary message format of {} bytes", message.length);
+            return;
+        }
+        var id = new String(message, 0, index, StandardCharsets.UTF_8);
+        localBroadcaster.broadcast(id, Arrays.copyOfRange(message, index + 1, message.length));
+    }
 }
@@ -1,5 +1,6 @@
 package services;
 
+import domain.Move;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import models.HistoryEntity;
@@ -7,9 +8,12 @@ import org.apache.commons.dbutils.QueryRunner;
 import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.dbutils.handlers.BeanHandler;
 import org.apache.commons.dbutils.handlers.BeanListHandler;
+import utils.MoveHistoryFormat;
 
 import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,10 +24,42 @@ public class HistoryDao {
     private static final ResultSetHandler<HistoryEntity> HIST_MAPPER = new BeanHandler<>(HistoryEntity.class);
     private static final ResultSetHandler<List<HistoryEntity>> HIST_LIST_MAPPER = new BeanListHandler<>(HistoryEntity.class);
 
+    // a history is only read by a cursor once it's older than this, by then every insert that started before it has committed
+    // ids come from a sequence when the insert runs, so two nodes finishing games at once can commit them out of id order
+    private static final Duration COMMIT_LAG = Duration.ofSeconds(10);
+
     private final QueryRunner runner;
+    private final Duration commitLag;
 
     public HistoryDao(DataSource ds) {
+        this(ds, COMMIT_LAG);
+    }
+
+    public HistoryDao(DataSource ds, Duration commitLag) {
         runner = new QueryRunner(ds);
+        this.commitLag = commitLag;
+    }
+
+    // a position in game_histories ordered by when each game was played, used to read every history exactly once
+    @Data
+    @AllArgsConstructor
+    public static class Cursor implements Comparable<Cursor> {
+        Timestamp playedOn;
+        long id;
+
+        public static Cursor start() {
+            return new Cursor(new Timestamp(0), 0);
+        }
+
+        public static Cursor of(HistoryEntity history) {
+            return new Cursor(history.getPlayedOn(), history.getId());
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            var cmp = playedOn.compareTo(other.playedOn);
+            return cmp != 0 ? cmp : Long.compare(id, other.id);
+        }
     }
 
     @Data
@@ -34,21 +70,22 @@ public class HistoryDao {
         int result;
         Double winEloDiff;
         Double loseEloDiff;
-        String data;
+        List<Move> moves;
     }
 
-    public void insert(String whiteId, String blackId, int result, double winEloDiff, double loseEloDiff, String data) {
-        insert(new HistoryInst(whiteId, blackId, result, winEloDiff, loseEloDiff, data));
+    public void insert(String whiteId, String blackId, int result, double winEloDiff, double loseEloDiff, List<Move> moves) {
+        insert(new HistoryInst(whiteId, blackId, result, winEloDiff, loseEloDiff, moves));
     }
 
     public void insert(HistoryInst historyInst) {
         var sql = """
             BEGIN;
-            INSERT INTO game_histories (whiteId, blackId, result, data, winElo, loseElo) VALUES (?, ?, ?, ? ::json, ?, ?);
+            INSERT INTO game_histories (whiteId, blackId, result, data, winElo, loseElo) VALUES (?, ?, ?, ?, ?, ?);
             END""";
         try {
+            // the moves are stored packed, see MoveHistoryFormat, entities decode them with HistoryEntity.getMoveList
             runner.execute(sql, historyInst.whiteId, historyInst.blackId,
-                historyInst.result, historyInst.data, historyInst.winEloDiff, historyInst.loseEloDiff);
+                historyInst.result, MoveHistoryFormat.encode(historyInst.moves), historyInst.winEloDiff, historyInst.loseEloDiff);
             LOGGER.info("Inserted a history={}", historyInst);
         } catch (SQLException ex) {
             LOGGER.error("Failed to insert a history={}", historyInst);
@@ -128,4 +165,23 @@ public class HistoryDao {
             throw new RuntimeException(ex);
         }
     }
-}
\ No newline at end of file
+
+    // a page of the histories after the cursor that are older than the commit lag, with only their id, result, move data and
+    // when they were played. a history that commits late was played before the ones after it, so it is never behind the cursor
+    public List<HistoryEntity> getHistoriesAfter(Cursor after, int limit) {
+        var sql = """
+            SELECT id, result, data, playedOn
+            FROM game_histories
+            WHERE (playedOn, id) > (?, ?) AND playedOn <= LOCALTIMESTAMP - make_interval(secs => ?)
+            ORDER BY playedOn, id
+            LIMIT ?""";
+        try {
+            var results = runner.query(sql, HIST_LIST_MAPPER, after.getPlayedOn(), after.getId(), commitLag.toMillis() / 1000.0, limit);
+            LOGGER.info("Selected {} histories after cursor={}", results.size(), after);
+            return results;
+        } catch (SQLException ex) {
+            LOGGER.error("Failed to select histories after cursor={}", after);
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -1,40 +1,75 @@
 package services;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.github.benmanes.caffeine.cache.Scheduler;
 import io.jooby.WebSocket;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import static utils.Globals.LOGGER;
 
 public class LocalBroadcaster implements Broadcaster {
 
-    private final LoadingCache<String, List<WebSocket>> socketsMap = Caffeine.newBuilder()
+    private final Cache<String, CopyOnWriteArrayList<WebSocket>> socketsMap = Caffeine.newBuilder()
         .scheduler(Scheduler.systemScheduler())
-        .build(key -> new CopyOnWriteArrayList<>());
+        .build();
 
     @Override
-    public void subscribe(String id, WebSocket ws) {
-        var socketList = socketsMap.get(id);
-        socketList.add(ws);
-        socketsMap.put(id, socketList);
+    public boolean subscribe(String id, WebSocket ws) {
+        var added = new boolean[1];
+        socketsMap.asMap().compute(id, (key, socketList) -> {
+            socketList = socketList != null ? socketList : new CopyOnWriteArrayList<>();
+            added[0] = socketList.addIfAbsent(ws);
+            return socketList;
+        });
         LOGGER.info("Ws {} subscribed to id: {}, ref: {}", ws.toString(), id, this);
+        return added[0];
     }
 
+    // a socket that closes before it subscribed, or that was never let in, has nothing to remove
     @Override
-    public void unsubscribe(String id, WebSocket ws) {
-        var socketList = socketsMap.get(id);
-        socketList.remove(ws);
-        socketsMap.put(id, socketList);
+    public boolean unsubscribe(String id, WebSocket ws) {
+        var removed = new boolean[1];
+        // the list is dropped once it's empty, atomically so a socket subscribing at the same time isn't dropped with it
+        socketsMap.asMap().computeIfPresent(id, (key, socketList) -> {
+            removed[0] = socketList.remove(ws);
+            return socketList.isEmpty() ? null : socketList;
+        });
         LOGGER.info("Ws {} unsubscribed from id: {}, ref: {}", ws.toString(), id, this);
+        return removed[0];
+    }
+
+    // how many sockets on this node are subscribed to each id that has any
+    public Map<String, Integer> subscriberCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        socketsMap.asMap().forEach((id, socketList) -> {
+            if (!socketList.isEmpty()) {
+                counts.put(id, socketList.size());
+            }
+        });
+        return counts;
+    }
+
+    @Override
+    public List<String> subscribedIds(String... ids) {
+        List<String> subscribed = new ArrayList<>();
+        for (var id : ids) {
+            var socketList = socketsMap.getIfPresent(id);
+            if (socketList != null && !socketList.isEmpty()) {
+                subscribed.add(id);
+            }
+        }
+        return subscribed;
     }
 
     @Override
     public void broadcast(String id, String content) {
-        var socketList = socketsMap.get(id);
+        var socketList = socketsMap.getIfPresent(id);
         if (socketList == null) {
             LOGGER.info("Broadcast local to id: {}, but there where no subscribers", id);
             return;
@@ -42,4 +77,15 @@ public class LocalBroadcaster implements Broadcaster {
         socketList.forEach((socket) -> socket.send(content));
         LOGGER.info("Broadcast local to id: {}, content: {}, ref: {}", id, content, this);
     }
+
+    @Override
+    public void broadcast(String id, byte[] content) {
+        var socketList = socketsMap.getIfPresent(id);
+        if (socketList == null) {
+            LOGGER.info("Broadcast local to id: {}, but there where no subscribers", id);
+            return;
+        }
+        socketList.forEach((socket) -> socket.sendBinary(content));
+        LOGGER.info("Broadcast local to id: {}, {} bytes, ref: {}", id, content.length, this);
+    }
 }
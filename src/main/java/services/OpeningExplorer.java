@@ -0,0 +1,321 @@
+package services;
+
+import domain.Hexagon;
+import domain.Move;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import models.HistoryEntity;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static utils.Globals.LOGGER;
+
+// a trie over the opening moves of every finished game, with the results of the games that passed through each node
+// the trie lives in a memory mapped file, so it survives restarts and a lookup is a few pointer hops with no parsing
+public class OpeningExplorer implements AutoCloseable {
+
+    // header: [magic:4][version:4][nodeCount:4][maxPlies:4][lastHistoryId:8][lastPlayedOn:8]
+    // the last history is the cursor the trie reads from, see HistoryDao.Cursor, with its played on time in epoch micros
+    // version 1 files only had the history id, they're started over and caught up again from the histories
+    private static final int MAGIC = 0x4858_4f42; // HXOB
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+    private static final int NODE_COUNT_OFFSET = 8;
+    private static final int MAX_PLIES_OFFSET = 12;
+    private static final int LAST_HISTORY_ID_OFFSET = 16;
+    private static final int LAST_PLAYED_ON_OFFSET = 24;
+
+    // node: [move:4][white:4][black:4][draws:4][firstChild:4][nextSibling:4], a link of zero means none since node zero is the root
+    private static final int NODE_BYTES = 24;
+    private static final int WHITE_OFFSET = 4;
+    private static final int BLACK_OFFSET = 8;
+    private static final int DRAWS_OFFSET = 12;
+    private static final int FIRST_CHILD_OFFSET = 16;
+    private static final int NEXT_SIBLING_OFFSET = 20;
+    private static final int ROOT_MOVE = -1;
+
+    private static final int INITIAL_NODES = 4096;
+    private static final int PAGE_SIZE = 500;
+
+    private final FileChannel channel;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private MappedByteBuffer buffer;
+    private volatile boolean stopped = false;
+
+    @Data
+    @AllArgsConstructor
+    public static class Continuation {
+        private String move; // in from-to notation
+        private int white;
+        private int black;
+        private int draws;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Position {
+        private int white;
+        private int black;
+        private int draws;
+        private List<Continuation> continuations; // ordered by how many games played them
+    }
+
+    // maps the trie file, creating it or starting it over if it was built for a different number of plies
+    public OpeningExplorer(Path path, int maxPlies) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        var size = Math.max(channel.size(), HEADER_BYTES + (long) INITIAL_NODES * NODE_BYTES);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(MAX_PLIES_OFFSET) != maxPlies) {
+            LOGGER.info("Starting a new opening trie at {} for {} plies", path, maxPlies);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(MAX_PLIES_OFFSET, maxPlies);
+            putCursor(HistoryDao.Cursor.start());
+            buffer.putInt(NODE_COUNT_OFFSET, 0);
+            newNode(ROOT_MOVE);
+        }
+    }
+
+    public int getMaxPlies() {
+        return buffer.getInt(MAX_PLIES_OFFSET);
+    }
+
+    // the last history added to the trie, everything up to it has been counted
+    public HistoryDao.Cursor getCursor() {
+        lock.readLock().lock();
+        try {
+            return readCursor();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getNodeCount() {
+        lock.readLock().lock();
+        try {
+            return buffer.getInt(NODE_COUNT_OFFSET);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // adds every history after the cursor in the trie, returns how many were added
+    // reading from the cursor means a game is never counted twice, the trie is only written to its file by flush
+    public int catchUp(HistoryDao historyDao) {
+        var added = 0;
+        while (true) {
+            var histories = historyDao.getHistoriesAfter(getCursor(), PAGE_SIZE);
+            if (histories.isEmpty()) {
+                break;
+            }
+            lock.writeLock().lock();
+            try {
+                for (var history : histories) {
+                    // another catch up may have raced us to the same page
+                    var cursor = HistoryDao.Cursor.of(history);
+                    if (cursor.compareTo(readCursor()) <= 0) {
+                        continue;
+                    }
+                    addHistory(history);
+                    putCursor(cursor);
+                    added++;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return added;
+    }
+
+    // writes the trie back to its file, it syncs the whole mapping so it's done on a timer rather than for every game
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            buffer.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // keeps the trie caught up with the finished games, flushing it after every pass that added some
+    public void runForever(HistoryDao historyDao, long intervalMillis) {
+        while (!stopped) {
+            try {
+                var added = catchUp(historyDao);
+                if (added > 0) {
+                    flush();
+                    LOGGER.info("Opening trie caught up with {} game histories", added);
+                }
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                LOGGER.error("Failed to catch up the opening trie {}", String.valueOf(ex));
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException interruptEx) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    // the results of the games that began with the given moves, null if no game did
+    public Position explore(List<Move> moves) {
+        lock.readLock().lock();
+        try {
+            var node = 0;
+            for (var move : moves) {
+                if (!isOnBoard(move)) {
+                    return null;
+                }
+                node = findChild(node, encode(move));
+                if (node == 0) {
+                    return null;
+                }
+            }
+
+            List<Continuation> continuations = new ArrayList<>();
+            for (var child = field(node, FIRST_CHILD_OFFSET); child != 0; child = field(child, NEXT_SIBLING_OFFSET)) {
+                continuations.add(new Continuation(decode(buffer.getInt(offset(child))).toNotation(),
+                    field(child, WHITE_OFFSET), field(child, BLACK_OFFSET), field(child, DRAWS_OFFSET)));
+            }
+            continuations.sort((c1, c2) -> Integer.compare(
+                c2.getWhite() + c2.getBlack() + c2.getDraws(),
+                c1.getWhite() + c1.getBlack() + c1.getDraws()));
+
+            return new Position(field(node, WHITE_OFFSET), field(node, BLACK_OFFSET), field(node, DRAWS_OFFSET), continuations);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        stop();
+        flush();
+        channel.close();
+    }
+
+    private HistoryDao.Cursor readCursor() {
+        var micros = buffer.getLong(LAST_PLAYED_ON_OFFSET);
+        var playedOn = new Timestamp(Math.floorDiv(micros, 1_000_000) * 1000);
+        playedOn.setNanos((int) Math.floorMod(micros, 1_000_000) * 1000);
+        return new HistoryDao.Cursor(playedOn, buffer.getLong(LAST_HISTORY_ID_OFFSET));
+    }
+
+    // postgres keeps timestamps to the microsecond, so micros hold a played on time exactly
+    private void putCursor(HistoryDao.Cursor cursor) {
+        var playedOn = cursor.getPlayedOn();
+        var micros = Math.floorDiv(playedOn.getTime(), 1000) * 1_000_000 + playedOn.getNanos() / 1000;
+        buffer.putLong(LAST_PLAYED_ON_OFFSET, micros);
+        buffer.putLong(LAST_HISTORY_ID_OFFSET, cursor.getId());
+    }
+
+    private void addHistory(HistoryEntity history) {
+        List<Move> moves;
+        try {
+            moves = history.getMoveList();
+        } catch (Exception ex) {
+            LOGGER.warn("Skipping history id={} in the opening trie: {}", history.getId(), String.valueOf(ex));
+            return;
+        }
+        var resultOffset = switch (history.getResult()) {
+            case HistoryEntity.WHITE_WIN -> WHITE_OFFSET;
+            case HistoryEntity.BLACK_WIN -> BLACK_OFFSET;
+            default -> DRAWS_OFFSET;
+        };
+
+        var node = 0;
+        increment(node, resultOffset);
+        for (int i = 0; i < Math.min(moves.size(), getMaxPlies()); i++) {
+            if (!isOnBoard(moves.get(i))) {
+                LOGGER.warn("History id={} has a move off the board at ply {}, only the plies before it are counted", history.getId(), i);
+                break;
+            }
+            var move = encode(moves.get(i));
+            var child = findChild(node, move);
+            if (child == 0) {
+                child = newNode(move);
+                // new children go to the front of the sibling list, the whole node is written before it's linked in
+                buffer.putInt(offset(child) + NEXT_SIBLING_OFFSET, field(node, FIRST_CHILD_OFFSET));
+                buffer.putInt(offset(node) + FIRST_CHILD_OFFSET, child);
+            }
+            node = child;
+            increment(node, resultOffset);
+        }
+    }
+
+    private int newNode(int move) {
+        var node = buffer.getInt(NODE_COUNT_OFFSET);
+        if (offset(node + 1) > buffer.capacity()) {
+            remap((long) buffer.capacity() * 2);
+        }
+        var offset = offset(node);
+        buffer.putInt(offset, move);
+        for (int i = 4; i < NODE_BYTES; i += 4) {
+            buffer.putInt(offset + i, 0);
+        }
+        buffer.putInt(NODE_COUNT_OFFSET, node + 1);
+        return node;
+    }
+
+    private void remap(long size) {
+        try {
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to grow the opening trie file to " + size + " bytes", ex);
+        }
+    }
+
+    private int findChild(int node, int move) {
+        for (var child = field(node, FIRST_CHILD_OFFSET); child != 0; child = field(child, NEXT_SIBLING_OFFSET)) {
+            if (buffer.getInt(offset(child)) == move) {
+                return child;
+            }
+        }
+        return 0;
+    }
+
+    private int field(int node, int field) {
+        return buffer.getInt(offset(node) + field);
+    }
+
+    private void increment(int node, int field) {
+        var offset = offset(node) + field;
+        buffer.putInt(offset, buffer.getInt(offset) + 1);
+    }
+
+    private static int offset(int node) {
+        return HEADER_BYTES + node * NODE_BYTES;
+    }
+
+    private static boolean isOnBoard(Move move) {
+        return move.getFrom() != null && move.getTo() != null && !move.getFrom().isOffBoard() && !move.getTo().isOffBoard();
+    }
+
+    private static int encode(Move move) {
+        return move.getFrom().index() | (move.getTo().index() << 8);
+    }
+
+    private static Move decode(int move) {
+        return new Move(Hexagon.ofIndex(move & 0xFF), Hexagon.ofIndex(move >>> 8));
+    }
+}
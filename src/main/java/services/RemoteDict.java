@@ -8,14 +8,17 @@ import models.GameState;
 import models.Player;
 import models.RankedUser;
 import redis.clients.jedis.JedisPooled;
-import utils.Serializer;
+import redis.clients.jedis.params.SetParams;
+import utils.GameStateFormat;
 
 import java.io.IOException;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static utils.Globals.JSON_MAPPER;
 import static utils.Globals.LOGGER;
@@ -23,12 +26,19 @@ import static utils.Globals.LOGGER;
 public class RemoteDict {
 
     private static final Random RANDOM = new Random();
+    private static final AtomicLong LAST_TOUCH_MICROS = new AtomicLong();
     private final JedisPooled jedis;
     private final ObjectReader playerReader;
 
     private static final String GAMES_ZSET = "games";
     private static final String LEADERBOARD_ZSET = "leaderboard";
+    private static final String SWEEP_LEASE = "games:sweep-lease";
     private static final Duration GAME_EXPIRE_FINISHED = Duration.ofHours(1);
+    // every game key also gets a native ttl, so games still go away if no node is sweeping. it's longer than the sweep
+    // expiry so the sweeper normally gets there first and removes the game from the zset in the same transaction
+    private static final Duration GAME_KEY_TTL = GAME_EXPIRE_FINISHED.multipliedBy(2);
+    // scores further ahead than this were written with the old System.nanoTime clock
+    private static final Duration LEGACY_SCORE_SLACK = Duration.ofDays(1);
 
     public RemoteDict(JedisPooled jedis) {
         this.jedis = jedis;
@@ -36,46 +46,80 @@ public class RemoteDict {
     }
 
     public GameState getGame(String id) {
-        expireGames();
-
         var fullId = "game:" + id;
         var bytes = jedis.get(fullId.getBytes());
         if (bytes == null) {
             return null;
         }
-        return Serializer.deserialize(bytes, GameState.class);
+        return GameStateFormat.deserialize(bytes);
     }
 
     public GameState setGame(String id, GameState gameState) {
-        double timeNanos = System.nanoTime();
-        gameState.setTouch(timeNanos);
+        double timeMillis = nextTouchMillis();
+        gameState.setTouch(timeMillis);
 
-        var bytes = Serializer.serialize(gameState);
+        var bytes = GameStateFormat.serialize(gameState);
         var fullId = "game:" + id;
 
-        var t = jedis.multi();
-        t.set(fullId.getBytes(), bytes);
-        t.zadd(GAMES_ZSET, timeNanos, fullId);
-        t.exec();
+        // a transaction holds on to its pooled connection until it is closed
+        try (var t = jedis.multi()) {
+            t.set(fullId.getBytes(), bytes, SetParams.setParams().px(GAME_KEY_TTL.toMillis()));
+            t.zadd(GAMES_ZSET, timeMillis, fullId);
+            t.exec();
+        }
 
         return gameState;
     }
 
-    public void expireGames() {
-        expireGames(GAME_EXPIRE_FINISHED.toNanos());
+    // wall clock millis so every node scores games on the same clock, with a microsecond fraction that always increases
+    // so no two games written by this node share a score, getGames pages by score and would repeat games that tie
+    private static double nextTouchMillis() {
+        var nowMicros = System.currentTimeMillis() * 1000;
+        var micros = LAST_TOUCH_MICROS.accumulateAndGet(nowMicros, (last, now) -> Math.max(last + 1, now));
+        return micros / 1000.0;
+    }
+
+    // takes the sweep lease for the given time if no node holds it, only the node that gets it should sweep
+    public boolean tryAcquireSweepLease(String owner, Duration leaseTime) {
+        var result = jedis.set(SWEEP_LEASE, owner, SetParams.setParams().nx().px(leaseTime.toMillis()));
+        return "OK".equals(result);
+    }
+
+    public int expireGames() {
+        return expireGames(GAME_EXPIRE_FINISHED.toMillis());
     }
 
-    public void expireGames(long expireTimeNanos) {
-        long timeNanos = System.nanoTime();
-        long unixTimeExpireNanos = timeNanos - expireTimeNanos;
-        var results = jedis.zrangeByScore(GAMES_ZSET, Double.NEGATIVE_INFINITY, unixTimeExpireNanos);
+    // removes the games that haven't been written for expireTimeMillis, returns how many were removed
+    public int expireGames(long expireTimeMillis) {
+        long timeMillis = System.currentTimeMillis();
+        rescoreLegacyGames(timeMillis);
+
+        long unixTimeExpireMillis = timeMillis - expireTimeMillis;
+        var results = jedis.zrangeByScore(GAMES_ZSET, Double.NEGATIVE_INFINITY, unixTimeExpireMillis);
         var gameKeys = results.toArray(String[]::new);
 
         if (gameKeys.length > 0) {
-            var t = jedis.multi();
-            t.del(gameKeys);
-            t.zrem(GAMES_ZSET, gameKeys);
-            t.exec();
+            try (var t = jedis.multi()) {
+                t.del(gameKeys);
+                t.zrem(GAMES_ZSET, gameKeys);
+                t.exec();
+            }
+        }
+        return gameKeys.length;
+    }
+
+    // games written before scores were millis have nanoTime scores far in the future, which would never expire
+    // they're moved to now instead of being deleted, so a game still being played isn't lost, and expire an hour later
+    private void rescoreLegacyGames(long timeMillis) {
+        var legacyKeys = jedis.zrangeByScore(GAMES_ZSET, timeMillis + LEGACY_SCORE_SLACK.toMillis(), Double.POSITIVE_INFINITY);
+        if (!legacyKeys.isEmpty()) {
+            try (var t = jedis.multi()) {
+                for (var key : legacyKeys) {
+                    t.zadd(GAMES_ZSET, timeMillis, key);
+                }
+                t.exec();
+            }
+            LOGGER.info("Rescored {} games that were written with nanoTime scores", legacyKeys.size());
         }
     }
 
@@ -87,8 +131,6 @@ public class RemoteDict {
     }
 
     public GetGamesResult getGames(Double cursor, int count) {
-        expireGames();
-
         cursor = cursor != null ? cursor : 0;
         var tuples = jedis.zrangeByScoreWithScores(GAMES_ZSET, cursor, Double.POSITIVE_INFINITY, 0, count + 1);
 
@@ -108,7 +150,13 @@ public class RemoteDict {
             return null;
         }
 
-        var gameStates = bytesList.stream().map((bytes) -> Serializer.deserialize(bytes, GameState.class)).toList();
+        // a game whose key hit its ttl may still be in the zset until the next sweep
+        // and a game written in a format this node can't read is left out like a missing one
+        var gameStates = bytesList.stream()
+            .filter(Objects::nonNull)
+            .map(GameStateFormat::deserialize)
+            .filter(Objects::nonNull)
+            .toList();
         return new GetGamesResult(nextCursor, gameStates);
     }
 
@@ -196,11 +244,12 @@ public class RemoteDict {
     }
 
     public void incrLeaderboardUser(EloChangeSet... changeSets) {
-        var t = jedis.multi();
-        for (var cs : changeSets) {
-            t.zincrby(LEADERBOARD_ZSET, cs.elo, cs.id);
+        try (var t = jedis.multi()) {
+            for (var cs : changeSets) {
+                t.zincrby(LEADERBOARD_ZSET, cs.elo, cs.id);
+            }
+            t.exec();
         }
-        t.exec();
     }
 
     public void incrLeaderboardUser(String id, double elo) {
@@ -208,10 +257,11 @@ public class RemoteDict {
     }
 
     public void updateLeaderboardUser(EloChangeSet... changeSets) {
-        var t = jedis.multi();
-        for (var cs : changeSets) {
-            t.zadd(LEADERBOARD_ZSET, cs.elo, cs.id);
+        try (var t = jedis.multi()) {
+            for (var cs : changeSets) {
+                t.zadd(LEADERBOARD_ZSET, cs.elo, cs.id);
+            }
+            t.exec();
         }
-        t.exec();
     }
 }
@@ -0,0 +1,141 @@
+package utils;
+
+import com.esotericsoftware.kryo.io.Output;
+import domain.ChessGame;
+import domain.Hexagon;
+import domain.Move;
+import domain.MoveList;
+import models.GameState;
+import models.Player;
+
+import java.nio.charset.StandardCharsets;
+
+// the binary websocket frames sent to clients that connect with ?protocol=binary, decoded by decodeFrame in chess-view.js
+// a frame holds the same fields as the json output message, with every cell written as its one byte index
+//
+// [type:1][fields:1]
+// [message:string] if MESSAGE, [player] if PLAYER, [from:1][to:1] if MOVE, [version:2] if VERSION, [state] if GAME_STATE
+// state: [stateFlags:1][id:string][whitePlayer] if HAS_WHITE, [blackPlayer] if HAS_BLACK
+//        [turn:1][pieces:91] if HAS_GAME, one byte per cell in hexagon index order
+//        [whiteMoves][blackMoves] if HAS_MOVES
+// moves: [sourceCount:1]([from:1][count:1][to:1]*)* grouped by source, like the piece moves in the json
+// player: [id:string][name:string]
+// string: [length:2][utf8 bytes], numbers are big endian and an off board cell is 255
+public class FrameFormat {
+
+    public static final int MESSAGE = 1;
+    public static final int PLAYER = 1 << 1;
+    public static final int MOVE = 1 << 2;
+    public static final int VERSION = 1 << 3;
+    public static final int GAME_STATE = 1 << 4;
+
+    public static final int ENDED = 1;
+    public static final int HAS_WHITE = 1 << 1;
+    public static final int HAS_BLACK = 1 << 2;
+    public static final int HAS_GAME = 1 << 3;
+    public static final int HAS_MOVES = 1 << 4;
+
+    public static final int OFF_BOARD = 0xFF;
+
+    private FrameFormat() {
+    }
+
+    public static byte[] encode(int type, String message, Player player, Move move, Integer version, GameState state) {
+        var output = Serializer.borrowOutput();
+        try {
+            var fields = 0;
+            fields |= message != null ? MESSAGE : 0;
+            fields |= player != null ? PLAYER : 0;
+            fields |= move != null ? MOVE : 0;
+            fields |= version != null ? VERSION : 0;
+            fields |= state != null ? GAME_STATE : 0;
+
+            output.writeByte(type);
+            output.writeByte(fields);
+            if (message != null) {
+                writeString(output, message);
+            }
+            if (player != null) {
+                writePlayer(output, player);
+            }
+            if (move != null) {
+                writeHexagon(output, move.getFrom());
+                writeHexagon(output, move.getTo());
+            }
+            if (version != null) {
+                output.writeShort(version);
+            }
+            if (state != null) {
+                writeState(output, state);
+            }
+            return output.toBytes();
+        } finally {
+            Serializer.releaseOutput(output);
+        }
+    }
+
+    private static void writeState(Output output, GameState state) {
+        var game = state.getGame();
+        var hasGame = game != null && game.getBoard() != null;
+        var flags = 0;
+        flags |= state.isEnded() ? ENDED : 0;
+        flags |= state.getWhitePlayer() != null ? HAS_WHITE : 0;
+        flags |= state.getBlackPlayer() != null ? HAS_BLACK : 0;
+        flags |= hasGame ? HAS_GAME : 0;
+        flags |= hasGame && hasMoves(game) ? HAS_MOVES : 0;
+
+        output.writeByte(flags);
+        writeString(output, state.getId());
+        if (state.getWhitePlayer() != null) {
+            writePlayer(output, state.getWhitePlayer());
+        }
+        if (state.getBlackPlayer() != null) {
+            writePlayer(output, state.getBlackPlayer());
+        }
+        if ((flags & HAS_GAME) != 0) {
+            var board = game.getBoard();
+            output.writeByte(board.turn().toInt());
+            for (int i = 0; i < Hexagon.CELLS; i++) {
+                output.writeByte(board.getPiece(i));
+            }
+        }
+        if ((flags & HAS_MOVES) != 0) {
+            writeMoveList(output, game.getWhiteMoveList());
+            writeMoveList(output, game.getBlackMoveList());
+        }
+    }
+
+    private static boolean hasMoves(ChessGame game) {
+        return game.getWhiteMoveList() != null && game.getBlackMoveList() != null;
+    }
+
+    private static void writeMoveList(Output output, MoveList moves) {
+        var targets = new int[moves.size()];
+        var offsets = moves.groupTargets(targets);
+
+        output.writeByte(moves.sourcesSize());
+        for (int i = 0; i < moves.sourcesSize(); i++) {
+            var from = moves.getSource(i);
+            output.writeByte(from);
+            output.writeByte(offsets[from + 1] - offsets[from]);
+            for (int j = offsets[from]; j < offsets[from + 1]; j++) {
+                output.writeByte(targets[j]);
+            }
+        }
+    }
+
+    private static void writePlayer(Output output, Player player) {
+        writeString(output, player.getId());
+        writeString(output, player.getName());
+    }
+
+    private static void writeHexagon(Output output, Hexagon hex) {
+        output.writeByte(hex == null || hex.isOffBoard() ? OFF_BOARD : hex.index());
+    }
+
+    private static void writeString(Output output, String value) {
+        var bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        output.writeShort(bytes.length);
+        output.writeBytes(bytes);
+    }
+}
@@ -0,0 +1,168 @@
+package utils;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import domain.ChessBoard;
+import domain.ChessGame;
+import domain.Hexagon;
+import domain.Move;
+import models.GameState;
+import models.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static utils.Globals.LOGGER;
+
+// the binary format games are kept in redis with, written by hand so it doesn't depend on kryo's registrations, references or field order
+// every version only adds fields at the end: a reader fills in defaults for the fields an older writer didn't know about,
+// and stops reading before the fields a newer writer added, so nodes on either side of a deploy can read each other's games
+//
+// every version starts with the magic, so a blob written by something else (like the kryo format games were kept with
+// before this one, which starts with kryo's not null marker) is told apart from a version instead of misread as one
+//
+// version 1:
+// [magic:2][version:1][flags:1][id:string]
+// [whiteId:string][whiteName:string] if HAS_WHITE, [blackId:string][blackName:string] if HAS_BLACK
+// [touch:8]
+// [turn:1][pieces:91] if HAS_GAME, one byte per cell in hexagon index order
+// [moveCount:varint][move:varint]* if HAS_MOVE_LIST, each move as (from + 1) | (to + 1) << 7 so off board cells stay non negative
+public class GameStateFormat {
+
+    public static final int VERSION = 1;
+    public static final byte[] MAGIC = {'H', 'X'};
+
+    private static final int ENDED = 1;
+    private static final int HAS_FIRST_PLAYER_WHITE = 1 << 1;
+    private static final int FIRST_PLAYER_WHITE = 1 << 2;
+    private static final int HAS_WHITE = 1 << 3;
+    private static final int HAS_BLACK = 1 << 4;
+    private static final int HAS_GAME = 1 << 5;
+    private static final int HAS_PIECE_MOVES = 1 << 6; // the game had move lists, they're regenerated from the board when needed
+    private static final int HAS_MOVE_LIST = 1 << 7;
+
+    private GameStateFormat() {
+    }
+
+    public static byte[] serialize(GameState state) {
+        var output = Serializer.borrowOutput();
+        try {
+            write(state, output);
+            return output.toBytes();
+        } finally {
+            Serializer.releaseOutput(output);
+        }
+    }
+
+    // returns null for a blob that isn't in this format, it's treated as a game that isn't there anymore
+    public static GameState deserialize(byte[] bytes) {
+        if (!hasMagic(bytes)) {
+            LOGGER.warn("Ignoring a game state that isn't in the game state format, it may have been written before it");
+            return null;
+        }
+        var input = Serializer.borrowInput(bytes);
+        try {
+            return read(input);
+        } finally {
+            Serializer.releaseInput(input);
+        }
+    }
+
+    public static boolean hasMagic(byte[] bytes) {
+        return bytes.length > MAGIC.length && bytes[0] == MAGIC[0] && bytes[1] == MAGIC[1];
+    }
+
+    public static void write(GameState state, Output output) {
+        var game = state.getGame();
+        var flags = 0;
+        flags |= state.isEnded() ? ENDED : 0;
+        if (state.getIsFirstPlayerWhite() != null) {
+            flags |= HAS_FIRST_PLAYER_WHITE | (state.getIsFirstPlayerWhite() ? FIRST_PLAYER_WHITE : 0);
+        }
+        flags |= state.getWhitePlayer() != null ? HAS_WHITE : 0;
+        flags |= state.getBlackPlayer() != null ? HAS_BLACK : 0;
+        flags |= game != null && game.getBoard() != null ? HAS_GAME : 0;
+        flags |= game != null && game.hasPieceMoves() ? HAS_PIECE_MOVES : 0;
+        flags |= state.getMoveList() != null ? HAS_MOVE_LIST : 0;
+
+        output.writeBytes(MAGIC);
+        output.writeByte(VERSION);
+        output.writeByte(flags);
+        output.writeString(state.getId());
+        writePlayer(output, state.getWhitePlayer());
+        writePlayer(output, state.getBlackPlayer());
+        output.writeDouble(state.getTouch());
+
+        if ((flags & HAS_GAME) != 0) {
+            var board = game.getBoard();
+            output.writeByte(board.turn().toInt());
+            for (int i = 0; i < Hexagon.CELLS; i++) {
+                output.writeByte(board.getPiece(i));
+            }
+        }
+
+        if ((flags & HAS_MOVE_LIST) != 0) {
+            var moves = state.getMoveList();
+            output.writeVarInt(moves.size(), true);
+            for (var move : moves) {
+                output.writeVarInt((move.getFrom().index() + 1) | (move.getTo().index() + 1) << 7, true);
+            }
+        }
+    }
+
+    public static GameState read(Input input) {
+        var magic = input.readBytes(MAGIC.length);
+        if (magic[0] != MAGIC[0] || magic[1] != MAGIC[1]) {
+            throw new IllegalStateException("Game state doesn't start with the game state format magic");
+        }
+        var version = input.readByte() & 0xFF;
+        if (version < 1) {
+            throw new IllegalStateException("Game state has an unknown format version " + version);
+        }
+        var flags = input.readByte() & 0xFF;
+        var id = input.readString();
+        var whitePlayer = (flags & HAS_WHITE) != 0 ? readPlayer(input) : null;
+        var blackPlayer = (flags & HAS_BLACK) != 0 ? readPlayer(input) : null;
+        var touch = input.readDouble();
+
+        ChessGame game = null;
+        if ((flags & HAS_GAME) != 0) {
+            var board = new ChessBoard(input.readByte() == 0 ? ChessBoard.Turn.WHITE : ChessBoard.Turn.BLACK);
+            var pieces = input.readBytes(Hexagon.CELLS);
+            for (int i = 0; i < Hexagon.CELLS; i++) {
+                if (pieces[i] != ChessBoard.EMPTY) {
+                    board.setPiece(i, pieces[i]);
+                }
+            }
+            game = (flags & HAS_PIECE_MOVES) != 0 ? ChessGame.withPendingMoves(board) : new ChessGame(board);
+        }
+
+        List<Move> moves = null;
+        if ((flags & HAS_MOVE_LIST) != 0) {
+            var size = input.readVarInt(true);
+            moves = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                var move = input.readVarInt(true);
+                moves.add(new Move(toHexagon(move & 0x7F), toHexagon(move >>> 7)));
+            }
+        }
+
+        var isFirstPlayerWhite = (flags & HAS_FIRST_PLAYER_WHITE) != 0 ? (Boolean) ((flags & FIRST_PLAYER_WHITE) != 0) : null;
+        return new GameState(id, game, whitePlayer, blackPlayer, (flags & ENDED) != 0, isFirstPlayerWhite, touch, moves);
+    }
+
+    private static void writePlayer(Output output, Player player) {
+        if (player != null) {
+            output.writeString(player.getId());
+            output.writeString(player.getName());
+        }
+    }
+
+    private static Player readPlayer(Input input) {
+        return new Player(input.readString(), input.readString());
+    }
+
+    private static Hexagon toHexagon(int shiftedIndex) {
+        return shiftedIndex == 0 ? Hexagon.OFF_BOARD : Hexagon.ofIndex(shiftedIndex - 1);
+    }
+}
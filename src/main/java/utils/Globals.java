@@ -19,7 +19,13 @@ public class Globals {
     public static final String YELLOW_COLOR = "yellow-color";
     public static final List<Object> EMPTY_lIST = List.of();
     public static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+    // the search is cpu bound, so it runs on platform threads of its own instead of pinning virtual thread carriers
+    // it only gets half of the cores, the other half are left to serve the human games
+    public static final int SEARCH_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    public static final ExecutorService SEARCH_EXECUTOR = Executors.newFixedThreadPool(
+        SEARCH_THREADS, Thread.ofPlatform().name("search-", 0).daemon().factory());
     public static final ObjectMapper JSON_MAPPER = new ObjectMapper()
         .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
-        .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+        .registerModule(JsonSerializers.module());
 }
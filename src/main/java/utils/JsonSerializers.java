@@ -0,0 +1,295 @@
+package utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import domain.BoardSerializer;
+import domain.ChessGame;
+import domain.Hexagon;
+import domain.Move;
+import domain.MoveDelta;
+import domain.MoveList;
+import domain.PieceMoves;
+import models.GameState;
+import models.Player;
+
+import java.io.IOException;
+import java.util.List;
+
+// streaming serializers for the types sent on every broadcast, so a move doesn't go through reflective bean serialization
+// the output is exactly what the field visibility mapper wrote, so stored move histories and clients don't see a difference
+public class JsonSerializers {
+
+    public static final SerializableString ID = new SerializedString("id");
+    public static final SerializableString NAME = new SerializedString("name");
+    public static final SerializableString FROM = new SerializedString("from");
+    public static final SerializableString TO = new SerializedString("to");
+    public static final SerializableString HEX = new SerializedString("hex");
+    public static final SerializableString MOVES = new SerializedString("moves");
+    public static final SerializableString BOARD = new SerializedString("board");
+    public static final SerializableString WHITE_MOVES = new SerializedString("whiteMoves");
+    public static final SerializableString BLACK_MOVES = new SerializedString("blackMoves");
+    public static final SerializableString GAME = new SerializedString("game");
+    public static final SerializableString WHITE_PLAYER = new SerializedString("whitePlayer");
+    public static final SerializableString BLACK_PLAYER = new SerializedString("blackPlayer");
+    public static final SerializableString IS_ENDED = new SerializedString("isEnded");
+    public static final SerializableString ADDED = new SerializedString("added");
+    public static final SerializableString REMOVED = new SerializedString("removed");
+
+    // every hexagon is one of a fixed set, so each one's whole object is encoded once up front
+    private static final SerializableString[] HEXAGONS = getEncodedHexagons();
+    private static final SerializableString OFF_BOARD = encodeHexagon(Hexagon.OFF_BOARD);
+
+    private static final BoardSerializer BOARD_SERIALIZER = new BoardSerializer();
+
+    private JsonSerializers() {
+    }
+
+    public static SimpleModule module() {
+        var module = new SimpleModule("HexChessSerializers");
+        module.addSerializer(Hexagon.class, new HexagonSerializer());
+        module.addSerializer(Move.class, new MoveSerializer());
+        module.addSerializer(PieceMoves.class, new PieceMovesSerializer());
+        module.addSerializer(MoveDelta.class, new MoveDeltaSerializer());
+        module.addSerializer(ChessGame.class, new ChessGameSerializer());
+        module.addSerializer(Player.class, new PlayerSerializer());
+        module.addSerializer(GameState.class, new GameStateSerializer());
+        return module;
+    }
+
+    private static SerializableString[] getEncodedHexagons() {
+        var hexagons = new SerializableString[Hexagon.CELLS];
+        for (int i = 0; i < Hexagon.CELLS; i++) {
+            hexagons[i] = encodeHexagon(Hexagon.ofIndex(i));
+        }
+        return hexagons;
+    }
+
+    private static SerializableString encodeHexagon(Hexagon hex) {
+        return new SerializedString("{\"file\":" + hex.getFile() + ",\"rank\":" + hex.getRank() + "}");
+    }
+
+    public static void writeHexagon(JsonGenerator json, Hexagon hex) throws IOException {
+        if (hex == null) {
+            json.writeNull();
+        } else {
+            json.writeRawValue(hex.isOffBoard() ? OFF_BOARD : HEXAGONS[hex.index()]);
+        }
+    }
+
+    public static void writeMove(JsonGenerator json, Move move) throws IOException {
+        if (move == null) {
+            json.writeNull();
+            return;
+        }
+        json.writeStartObject();
+        json.writeFieldName(FROM);
+        writeHexagon(json, move.getFrom());
+        json.writeFieldName(TO);
+        writeHexagon(json, move.getTo());
+        json.writeEndObject();
+    }
+
+    public static void writePlayer(JsonGenerator json, Player player) throws IOException {
+        if (player == null) {
+            json.writeNull();
+            return;
+        }
+        json.writeStartObject();
+        json.writeFieldName(ID);
+        json.writeString(player.getId());
+        json.writeFieldName(NAME);
+        json.writeString(player.getName());
+        json.writeEndObject();
+    }
+
+    public static void writeMoveDelta(JsonGenerator json, MoveDelta delta) throws IOException {
+        if (delta == null) {
+            json.writeNull();
+            return;
+        }
+        json.writeStartObject();
+        json.writeFieldName(ADDED);
+        writeInts(json, delta.getAdded());
+        json.writeFieldName(REMOVED);
+        writeInts(json, delta.getRemoved());
+        json.writeEndObject();
+    }
+
+    private static void writeInts(JsonGenerator json, int[] values) throws IOException {
+        if (values == null) {
+            json.writeNull();
+        } else {
+            json.writeArray(values, 0, values.length);
+        }
+    }
+
+    public static void writeGame(JsonGenerator json, ChessGame game) throws IOException {
+        if (game == null) {
+            json.writeNull();
+            return;
+        }
+        json.writeStartObject();
+        json.writeFieldName(BOARD);
+        if (game.getBoard() == null) {
+            json.writeNull();
+        } else {
+            BOARD_SERIALIZER.serialize(game.getBoard(), json, null);
+        }
+        json.writeFieldName(WHITE_MOVES);
+        writeMoveList(json, game.getWhiteMoveList());
+        json.writeFieldName(BLACK_MOVES);
+        writeMoveList(json, game.getBlackMoveList());
+        json.writeEndObject();
+    }
+
+    // writes a move list the way its piece moves view would be written, without building the view
+    private static void writeMoveList(JsonGenerator json, MoveList moves) throws IOException {
+        if (moves == null) {
+            json.writeNull();
+            return;
+        }
+        var targets = new int[moves.size()];
+        var offsets = moves.groupTargets(targets);
+
+        json.writeStartArray();
+        for (int i = 0; i < moves.sourcesSize(); i++) {
+            var from = moves.getSource(i);
+            json.writeStartObject();
+            json.writeFieldName(HEX);
+            json.writeRawValue(HEXAGONS[from]);
+            json.writeFieldName(MOVES);
+            json.writeStartArray();
+            for (int j = offsets[from]; j < offsets[from + 1]; j++) {
+                json.writeRawValue(HEXAGONS[targets[j]]);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+
+    public static void writePieceMoves(JsonGenerator json, PieceMoves pieceMoves) throws IOException {
+        if (pieceMoves == null) {
+            json.writeNull();
+            return;
+        }
+        json.writeStartObject();
+        json.writeFieldName(HEX);
+        writeHexagon(json, pieceMoves.getHex());
+        json.writeFieldName(MOVES);
+        writeHexagons(json, pieceMoves.getMoves());
+        json.writeEndObject();
+    }
+
+    private static void writeHexagons(JsonGenerator json, List<Hexagon> hexagons) throws IOException {
+        if (hexagons == null) {
+            json.writeNull();
+            return;
+        }
+        json.writeStartArray();
+        for (var hex : hexagons) {
+            writeHexagon(json, hex);
+        }
+        json.writeEndArray();
+    }
+
+    public static void writeGameState(JsonGenerator json, GameState state) throws IOException {
+        if (state == null) {
+            json.writeNull();
+            return;
+        }
+        json.writeStartObject();
+        json.writeFieldName(ID);
+        json.writeString(state.getId());
+        json.writeFieldName(GAME);
+        writeGame(json, state.getGame());
+        json.writeFieldName(WHITE_PLAYER);
+        writePlayer(json, state.getWhitePlayer());
+        json.writeFieldName(BLACK_PLAYER);
+        writePlayer(json, state.getBlackPlayer());
+        json.writeFieldName(IS_ENDED);
+        json.writeBoolean(state.isEnded());
+        json.writeEndObject();
+    }
+
+    static class HexagonSerializer extends StdSerializer<Hexagon> {
+        public HexagonSerializer() {
+            super(Hexagon.class);
+        }
+
+        @Override
+        public void serialize(Hexagon hex, JsonGenerator json, SerializerProvider provider) throws IOException {
+            writeHexagon(json, hex);
+        }
+    }
+
+    static class MoveSerializer extends StdSerializer<Move> {
+        public MoveSerializer() {
+            super(Move.class);
+        }
+
+        @Override
+        public void serialize(Move move, JsonGenerator json, SerializerProvider provider) throws IOException {
+            writeMove(json, move);
+        }
+    }
+
+    static class PieceMovesSerializer extends StdSerializer<PieceMoves> {
+        public PieceMovesSerializer() {
+            super(PieceMoves.class);
+        }
+
+        @Override
+        public void serialize(PieceMoves pieceMoves, JsonGenerator json, SerializerProvider provider) throws IOException {
+            writePieceMoves(json, pieceMoves);
+        }
+    }
+
+    static class MoveDeltaSerializer extends StdSerializer<MoveDelta> {
+        public MoveDeltaSerializer() {
+            super(MoveDelta.class);
+        }
+
+        @Override
+        public void serialize(MoveDelta delta, JsonGenerator json, SerializerProvider provider) throws IOException {
+            writeMoveDelta(json, delta);
+        }
+    }
+
+    static class ChessGameSerializer extends StdSerializer<ChessGame> {
+        public ChessGameSerializer() {
+            super(ChessGame.class);
+        }
+
+        @Override
+        public void serialize(ChessGame game, JsonGenerator json, SerializerProvider provider) throws IOException {
+            writeGame(json, game);
+        }
+    }
+
+    static class PlayerSerializer extends StdSerializer<Player> {
+        public PlayerSerializer() {
+            super(Player.class);
+        }
+
+        @Override
+        public void serialize(Player player, JsonGenerator json, SerializerProvider provider) throws IOException {
+            writePlayer(json, player);
+        }
+    }
+
+    static class GameStateSerializer extends StdSerializer<GameState> {
+        public GameStateSerializer() {
+            super(GameState.class);
+        }
+
+        @Override
+        public void serialize(GameState state, JsonGenerator json, SerializerProvider provider) throws IOException {
+            writeGameState(json, state);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package utils;
+
+import domain.Hexagon;
+import domain.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// the packed move list finished games are stored with in game_histories.data, two bytes per ply: [from:1][to:1]
+// each cell is its hexagon index and an off board cell is 255, database/pack_move_history.sql converts the old json rows
+public class MoveHistoryFormat {
+
+    public static final int OFF_BOARD = 0xFF;
+
+    private MoveHistoryFormat() {
+    }
+
+    public static byte[] encode(List<Move> moves) {
+        var bytes = new byte[moves.size() * 2];
+        for (int i = 0; i < moves.size(); i++) {
+            var move = moves.get(i);
+            bytes[i * 2] = toByte(move.getFrom());
+            bytes[i * 2 + 1] = toByte(move.getTo());
+        }
+        return bytes;
+    }
+
+    public static List<Move> decode(byte[] bytes) {
+        if (bytes.length % 2 != 0) {
+            throw new IllegalStateException("Move history has an odd length " + bytes.length);
+        }
+        List<Move> moves = new ArrayList<>(bytes.length / 2);
+        for (int i = 0; i < bytes.length; i += 2) {
+            moves.add(new Move(toHexagon(bytes[i]), toHexagon(bytes[i + 1])));
+        }
+        return moves;
+    }
+
+    private static byte toByte(Hexagon hex) {
+        return (byte) (hex.isOffBoard() ? OFF_BOARD : hex.index());
+    }
+
+    private static Hexagon toHexagon(byte b) {
+        var index = b & 0xFF;
+        if (index == OFF_BOARD) {
+            return Hexagon.OFF_BOARD;
+        }
+        if (index >= Hexagon.CELLS) {
+            throw new IllegalStateException("Move history has an invalid cell " + index);
+        }
+        return Hexagon.ofIndex(index);
+    }
+}
@@ -3,58 +3,213 @@ package utils;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoCallback;
+import com.esotericsoftware.kryo.pool.KryoPool;
 import domain.ChessBoard;
 import domain.ChessGame;
 import domain.Hexagon;
+import domain.MoveList;
 import domain.PieceMoves;
 import models.GameState;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
 
 import static utils.Globals.LOGGER;
 
 public class Serializer {
 
-    private static final ThreadLocal<Kryo> KRYO = ThreadLocal.withInitial(() -> {
+    // the work runs on virtual threads, so a thread local would build a new kryo for nearly every call
+    // instead the kryos and buffers are shared through bounded pools, anything borrowed past the bound is just dropped on release
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 4;
+    private static final int BUFFER_SIZE = 1024;
+    private static final int MAX_POOLED_BUFFER_SIZE = 64 * 1024; // a buffer that grew past this isn't kept, so a big object doesn't pin memory
+
+    private static final KryoPool KRYO_POOL = new KryoPool.Builder(Serializer::newKryo)
+        .queue(new ArrayBlockingQueue<>(POOL_SIZE))
+        .build();
+    private static final Queue<Output> OUTPUT_POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final Queue<Input> INPUT_POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final byte[] EMPTY_BYTES = new byte[0];
+
+    public static Kryo newKryo() {
         var kryo = new Kryo();
-        kryo.register(Hexagon.class);
+        kryo.register(Hexagon.class, new HexagonSerializer());
         kryo.register(PieceMoves.class);
-        kryo.register(ChessBoard.class);
-        kryo.register(ChessGame.class);
-        kryo.register(GameState.class);
+        kryo.register(MoveList.class, new MoveListSerializer());
+        kryo.register(ChessBoard.class, new ChessBoardSerializer());
+        kryo.register(ChessGame.class, new ChessGameSerializer());
+        kryo.register(GameState.class, new GameStateSerializer());
         return kryo;
-    });
+    }
+
+    // hexagons are written as their cell index so reads can hand back the interned instance
+    static class HexagonSerializer extends com.esotericsoftware.kryo.Serializer<Hexagon> {
+        public HexagonSerializer() {
+            setImmutable(true);
+        }
+
+        @Override
+        public void write(Kryo kryo, Output output, Hexagon hex) {
+            output.writeVarInt(hex.index() + 1, true); // shifted by one so the off board sentinel stays non negative
+        }
+
+        @Override
+        public Hexagon read(Kryo kryo, Input input, Class<Hexagon> type) {
+            var index = input.readVarInt(true) - 1;
+            return index < 0 ? Hexagon.OFF_BOARD : Hexagon.ofIndex(index);
+        }
+    }
+
+    // move lists are written as their sources and packed moves, the destination bitsets are rebuilt on read
+    static class MoveListSerializer extends com.esotericsoftware.kryo.Serializer<MoveList> {
+        @Override
+        public void write(Kryo kryo, Output output, MoveList moves) {
+            output.writeVarInt(moves.sourcesSize(), true);
+            for (int i = 0; i < moves.sourcesSize(); i++) {
+                output.writeByte(moves.getSource(i));
+            }
+            output.writeVarInt(moves.size(), true);
+            for (int i = 0; i < moves.size(); i++) {
+                output.writeVarInt(moves.get(i), true);
+            }
+        }
+
+        @Override
+        public MoveList read(Kryo kryo, Input input, Class<MoveList> type) {
+            var sourcesSize = input.readVarInt(true);
+            var moves = new MoveList();
+            for (int i = 0; i < sourcesSize; i++) {
+                moves.addSource(input.readByte() & 0xFF);
+            }
+            var size = input.readVarInt(true);
+            for (int i = 0; i < size; i++) {
+                moves.add(input.readVarInt(true));
+            }
+            return moves;
+        }
+    }
+
+    // boards are written as the turn and one byte per cell, the zobrist key and piece lists are rebuilt as the pieces are placed
+    static class ChessBoardSerializer extends com.esotericsoftware.kryo.Serializer<ChessBoard> {
+        @Override
+        public void write(Kryo kryo, Output output, ChessBoard board) {
+            output.writeByte(board.turn().toInt());
+            for (int i = 0; i < Hexagon.CELLS; i++) {
+                output.writeByte(board.getPiece(i));
+            }
+        }
+
+        @Override
+        public ChessBoard read(Kryo kryo, Input input, Class<ChessBoard> type) {
+            var board = new ChessBoard(input.readByte() == 0 ? ChessBoard.Turn.WHITE : ChessBoard.Turn.BLACK);
+            var pieces = input.readBytes(Hexagon.CELLS);
+            for (int i = 0; i < Hexagon.CELLS; i++) {
+                if (pieces[i] != ChessBoard.EMPTY) {
+                    board.setPiece(i, pieces[i]);
+                }
+            }
+            return board;
+        }
+    }
 
-    public static Kryo get() {
-        return KRYO.get();
+    // games are written as the board and whether they had move lists, the lists are derived from the board so they're
+    // regenerated the first time they're asked for instead of being stored
+    static class ChessGameSerializer extends com.esotericsoftware.kryo.Serializer<ChessGame> {
+        @Override
+        public void write(Kryo kryo, Output output, ChessGame game) {
+            kryo.writeObjectOrNull(output, game.getBoard(), ChessBoard.class);
+            output.writeBoolean(game.hasPieceMoves());
+        }
+
+        @Override
+        public ChessGame read(Kryo kryo, Input input, Class<ChessGame> type) {
+            var board = kryo.readObjectOrNull(input, ChessBoard.class);
+            return input.readBoolean() ? ChessGame.withPendingMoves(board) : new ChessGame(board);
+        }
+    }
+
+    // game states are kept in redis with GameStateFormat directly, kryo only delegates to it for anything else that writes them
+    static class GameStateSerializer extends com.esotericsoftware.kryo.Serializer<GameState> {
+        @Override
+        public void write(Kryo kryo, Output output, GameState state) {
+            GameStateFormat.write(state, output);
+        }
+
+        @Override
+        public GameState read(Kryo kryo, Input input, Class<GameState> type) {
+            return GameStateFormat.read(input);
+        }
+    }
+
+    // runs the callback with a kryo borrowed from the pool, for callers that drive the input and output themselves
+    public static <T> T run(KryoCallback<T> callback) {
+        return KRYO_POOL.run(callback);
+    }
+
+    // writes the object into the output's buffer, so a caller that keeps its own output never copies the bytes
+    public static <T> void serialize(T obj, Output output) {
+        var kryo = KRYO_POOL.borrow();
+        try {
+            kryo.writeObject(output, obj);
+        } finally {
+            KRYO_POOL.release(kryo);
+        }
     }
 
+    // the bytes are copied once out of a pooled buffer, into an array of exactly their length that can be handed to jedis
     public static <T> byte[] serialize(T obj) {
+        var output = borrowOutput();
         try {
-            var rawBytes = new ByteArrayOutputStream();
-            try (var output = new Output(rawBytes)) {
-                var kryo = Serializer.get();
-                kryo.writeObject(output, obj);
-            }
-            return rawBytes.toByteArray();
+            serialize(obj, output);
+            return output.toBytes();
         } catch (Exception ex) {
             LOGGER.error("Error occurred while serializing: {}", String.valueOf(ex));
             throw new RuntimeException(ex);
+        } finally {
+            releaseOutput(output);
         }
     }
 
     public static <T> T deserialize(byte[] bytes, Class<T> clazz) {
+        var input = borrowInput(bytes);
+        var kryo = KRYO_POOL.borrow();
         try {
-            var rawBytes = new ByteArrayInputStream(bytes);
-            try (var input = new Input(rawBytes)) {
-                var kryo = Serializer.get();
-                return kryo.readObject(input, clazz);
-            }
+            return kryo.readObject(input, clazz);
         } catch (Exception ex) {
             LOGGER.error("Error occurred while deserializing: {}", String.valueOf(ex));
             throw new RuntimeException(ex);
+        } finally {
+            KRYO_POOL.release(kryo);
+            releaseInput(input);
+        }
+    }
+
+    // an input that reads straight out of the array, no stream in between
+    public static Input borrowInput(byte[] bytes) {
+        var input = INPUT_POOL.poll();
+        if (input == null) {
+            input = new Input();
+        }
+        input.setBuffer(bytes);
+        return input;
+    }
+
+    public static void releaseInput(Input input) {
+        input.setBuffer(EMPTY_BYTES); // so the pool doesn't hold on to the caller's array
+        INPUT_POOL.offer(input);
+    }
+
+    public static Output borrowOutput() {
+        var output = OUTPUT_POOL.poll();
+        return output != null ? output : new Output(BUFFER_SIZE, -1);
+    }
+
+    public static void releaseOutput(Output output) {
+        if (output.getBuffer().length <= MAX_POOLED_BUFFER_SIZE) {
+            output.clear();
+            OUTPUT_POOL.offer(output);
         }
     }
 
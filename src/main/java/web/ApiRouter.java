@@ -0,0 +1,40 @@
+package web;
+
+import domain.Move;
+import io.jooby.Jooby;
+import io.jooby.StatusCode;
+import io.jooby.exception.StatusCodeException;
+import services.OpeningExplorer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ApiRouter extends Jooby {
+
+    public ApiRouter(State state) {
+        var openingExplorer = state.getOpeningExplorer();
+
+        // moves is a comma separated list in from-to notation, e.g. ?moves=f5-f6,b7-b6, leave it out for the starting position
+        // a lookup only reads the memory mapped trie, so it's answered on the io thread without touching the database
+        get("/api/openings", ctx -> {
+            var movesParam = ctx.query("moves").value("");
+
+            List<Move> moves = new ArrayList<>();
+            try {
+                for (var token : movesParam.split(",")) {
+                    if (!token.isBlank()) {
+                        moves.add(Move.fromNotation(token.trim()));
+                    }
+                }
+            } catch (IllegalArgumentException ex) {
+                throw new StatusCodeException(StatusCode.BAD_REQUEST, "Invalid moves: " + ex.getMessage());
+            }
+
+            var position = openingExplorer.explore(moves);
+            if (position == null) {
+                return new OpeningExplorer.Position(0, 0, 0, List.of());
+            }
+            return position;
+        });
+    }
+}
@@ -197,6 +197,7 @@ public class FormRouter extends Jooby {
 
         post("/forms/create-game", ctx -> {
             var colorParam = ctx.query("color").toOptional().orElse(null);
+            var opponentParam = ctx.query("opponent").toOptional().orElse(null);
 
             Boolean isFirstPlayerWhite = null;
             if (colorParam != null && colorParam.equals("white")) {
@@ -205,6 +206,9 @@ public class FormRouter extends Jooby {
                 isFirstPlayerWhite = false;
             }
 
+            if (opponentParam != null && opponentParam.equals("computer")) {
+                return gameService.create(isFirstPlayerWhite, true);
+            }
             return gameService.create(isFirstPlayerWhite);
         });
     }
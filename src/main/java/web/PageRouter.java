@@ -45,6 +45,7 @@ public class PageRouter extends Jooby {
     @AllArgsConstructor
     public static class ReplayView {
         String initialBoard;
+        String moveHistory; // the history's packed moves decoded to the json the replay script reads
         HistoryEntity history;
     }
 
@@ -255,9 +256,10 @@ public class PageRouter extends Jooby {
             var history = historyDao.getHistory(historyId);
 
             history.sanitize();
+            var moveHistoryJson = JSON_MAPPER.writeValueAsString(history.getMoveList());
 
             var template = templates.getGameStateoryTemplate();
-            return template.apply(new ReplayView(initialBoardJson, history));
+            return template.apply(new ReplayView(initialBoardJson, moveHistoryJson, history));
         });
     }
 }
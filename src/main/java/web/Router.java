@@ -6,8 +6,12 @@ import io.jooby.Jooby;
 import io.jooby.exception.NotFoundException;
 import io.jooby.jackson.JacksonModule;
 import redis.clients.jedis.JedisPooled;
+import services.GlobalBroadcaster;
 import utils.Config;
 
+import java.nio.file.Path;
+
+import static utils.Globals.EXECUTOR;
 import static utils.Globals.LOGGER;
 
 public class Router extends Jooby {
@@ -28,7 +32,23 @@ public class Router extends Jooby {
 
             var files = Config.createFilesMap();
 
-            var state = new State(jedis, ds, handlebars, files);
+            var openingsPath = Path.of(envMap.getOrDefault("OPENINGS_PATH", "openings.bin"));
+            var tablebasesPath = Path.of(envMap.getOrDefault("TABLEBASES_PATH", "tablebases"));
+
+            var state = new State(jedis, ds, handlebars, files, openingsPath, tablebasesPath);
+            // the trie is caught up with the finished games on a timer, the first pass also covers the games that finished
+            // while the server was down, or every game on a first run
+            EXECUTOR.execute(() -> state.getOpeningExplorer().runForever(state.getHistoryDao(), 10_000));
+            if (state.getBroadcaster() instanceof GlobalBroadcaster globalBroadcaster) {
+                // the subscriber counts of a node expire a minute after its last heartbeat, see GlobalBroadcaster
+                EXECUTOR.execute(() -> globalBroadcaster.runForever(20_000));
+            }
+            // every node runs the sweeper, a lease in redis makes sure only one of them sweeps each minute
+            EXECUTOR.execute(() -> state.getGameSweeper().runForever(60_000));
+            if ("true".equals(envMap.get("ANALYSIS_ENABLED"))) {
+                // post game analysis shares the machine with the server, it is throttled so it only takes idle cpu
+                EXECUTOR.execute(() -> state.getAnalysisService().runForever(60_000));
+            }
 //            var state = new State(null, null, null);
             return new Router(state);
         } catch (Exception ex) {
@@ -78,5 +98,6 @@ public class Router extends Jooby {
         mount(new PartialsRouter(state));
         mount(new FormRouter(state));
         mount(new WsRouter(state));
+        mount(new ApiRouter(state));
     }
 }
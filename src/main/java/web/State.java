@@ -2,6 +2,7 @@ package web;
 
 import com.github.jknack.handlebars.Handlebars;
 import com.zaxxer.hikari.HikariDataSource;
+import domain.Tablebase;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,6 +10,7 @@ import redis.clients.jedis.JedisPooled;
 import services.*;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
 
 @Data
@@ -18,17 +20,26 @@ public class State {
     UserDao userDao;
     HistoryDao historyDao;
     RemoteDict remoteDict;
+    GameSweeper gameSweeper;
     GameService gameService;
+    AnalysisService analysisService;
+    OpeningExplorer openingExplorer;
     SessionService sessionService;
     Broadcaster broadcaster;
     Templates templates;
     Map<String, byte[]> files;
 
-    public State(JedisPooled jedis, HikariDataSource ds, Handlebars handlebars, Map<String, byte[]> filesMap) throws IOException {
+    public State(JedisPooled jedis, HikariDataSource ds, Handlebars handlebars, Map<String, byte[]> filesMap,
+                 Path openingsPath, Path tablebasesPath) throws IOException {
         userDao = new UserDao(ds);
         historyDao = new HistoryDao(ds);
         remoteDict = new RemoteDict(jedis);
-        gameService = new GameService(remoteDict, userDao, historyDao);
+        gameSweeper = new GameSweeper(remoteDict);
+        openingExplorer = new OpeningExplorer(openingsPath, 12);
+        // the tables are generated ahead of time by scripts.TablebaseGenerator, a server without them just searches endgames
+        var tablebases = Tablebase.openAll(tablebasesPath);
+        gameService = new GameService(remoteDict, userDao, historyDao, tablebases);
+        analysisService = new AnalysisService(historyDao, new AnalysisDao(ds), tablebases);
         sessionService = new SessionService();
         broadcaster = new GlobalBroadcaster(jedis);
         templates = new Templates(handlebars);
@@ -1,7 +1,21 @@
 package web;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import domain.Hexagon;
 import domain.Move;
+import domain.MoveDelta;
 import io.jooby.Jooby;
 import io.jooby.StatusCode;
 import io.jooby.WebSocket;
@@ -13,12 +27,33 @@ import lombok.NoArgsConstructor;
 import models.GameState;
 import models.Player;
 import org.apache.commons.lang3.exception.ExceptionUtils;
+import services.Broadcaster;
 import services.GameService;
+import utils.FrameFormat;
+import utils.JsonSerializers;
+
+import java.io.IOException;
 
 import static utils.Globals.*;
 
 public class WsRouter extends Jooby {
 
+    public static final String JSON_PROTOCOL = "json";
+    // clients that connect with ?protocol=delta are sent each move as the move, the state version and how the move lists
+    // changed, instead of the whole game state. they get a full snapshot on join and whenever they ask for one after a gap
+    public static final String DELTA_PROTOCOL = "delta";
+    // clients that connect with ?protocol=binary are sent the same messages as json clients, as binary frames, see FrameFormat
+    public static final String BINARY_PROTOCOL = "binary";
+
+    public static String protocolOf(String protocol) {
+        return DELTA_PROTOCOL.equals(protocol) || BINARY_PROTOCOL.equals(protocol) ? protocol : JSON_PROTOCOL;
+    }
+
+    // each protocol subscribes to a topic of its own, so every broadcast is encoded once per protocol, not once per socket
+    public static String topicOf(String gameId, String protocol) {
+        return JSON_PROTOCOL.equals(protocol) ? gameId : gameId + ":" + protocol;
+    }
+
     @Getter
     @AllArgsConstructor
     static class ErrorResp {
@@ -46,25 +81,28 @@ public class WsRouter extends Jooby {
 
             var gameId = gameIdSlug.toString();
             var player = remoteDict.getSessionOrDefault(sessionId);
+            var protocol = protocolOf(ctx.query("protocol").valueOrNull());
 
             if (player == null) {
                 throw new RuntimeException("Expected player to be non null");
             }
 
-            configurer.onConnect(handleGameConnect(state, gameId, player));
+            configurer.onConnect(handleGameConnect(state, gameId, player, protocol));
 
-            configurer.onMessage(handleGameMessage(state, gameId, player));
+            configurer.onMessage(handleGameMessage(state, gameId, player, protocol));
 
-            configurer.onClose((ws, statusCode) -> broadcastService.unsubscribe(gameId, ws));
+            configurer.onClose((ws, statusCode) -> broadcastService.unsubscribe(topicOf(gameId, protocol), ws));
         });
     }
 
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
+    @JsonDeserialize(using = InputMsgDeserializer.class)
     public static class InputMsg {
         public static final int FORFEIT = 0;
         public static final int MOVE = 1;
+        public static final int RESYNC = 2; // a delta client missed a version and wants a snapshot
 
         private int type;
         private Move move; // unused for forfeit...
@@ -73,36 +111,163 @@ public class WsRouter extends Jooby {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
+    @JsonSerialize(using = OutputMsgSerializer.class)
     public static class OutputMsg {
         public static final int ERROR = 0;
         public static final int FORFEIT = 1;
         public static final int JOIN = 2;
         public static final int MOVE = 3;
+        public static final int MOVE_DELTA = 4;
+        public static final int SNAPSHOT = 5;
 
         private int type;
         private String message; // only used for error
         private Player player; // only used for join, says who the joining player is
-        private Move move; // only used for move
-        private GameState gameState; // the current state of the game being played
+        private Move move; // only used for move and move delta
+        private GameState gameState; // the current state of the game being played, not sent with move deltas
+        private Integer version; // the version of the game state, see GameState.getVersion
+        private MoveDelta whiteDelta; // only used for move delta, how each side's moves changed as packed moves, see MoveList
+        private MoveDelta blackDelta;
 
         public static OutputMsg ofError(String message) {
-            return new OutputMsg(ERROR, message, null, null, null);
+            return new OutputMsg(ERROR, message, null, null, null, null, null, null);
         }
 
         public static OutputMsg ofForfeit(GameState gameState) {
-            return new OutputMsg(FORFEIT, null, null, null, gameState);
+            return new OutputMsg(FORFEIT, null, null, null, gameState, gameState != null ? gameState.getVersion() : null, null, null);
         }
 
         public static OutputMsg ofJoin(Player player, GameState gameState) {
-            return new OutputMsg(JOIN, null, player, null, gameState);
+            return new OutputMsg(JOIN, null, player, null, gameState, gameState.getVersion(), null, null);
         }
 
         public static OutputMsg ofMove(GameState gameState, Move move) {
-            return new OutputMsg(MOVE, null, null, move, gameState);
+            return new OutputMsg(MOVE, null, null, move, gameState, gameState.getVersion(), null, null);
+        }
+
+        public static OutputMsg ofMoveDelta(GameService.MoveResult result, Move move) {
+            return new OutputMsg(MOVE_DELTA, null, null, move, null, result.getState().getVersion(), result.getWhiteDelta(), result.getBlackDelta());
+        }
+
+        public static OutputMsg ofSnapshot(GameState gameState) {
+            return new OutputMsg(SNAPSHOT, null, null, null, gameState, gameState.getVersion(), null, null);
+        }
+
+        // deltas aren't part of the binary protocol, binary clients are always sent the whole state
+        public byte[] toFrame() {
+            return FrameFormat.encode(type, message, player, move, version, gameState);
+        }
+    }
+
+    // messages are read field by field off the parser, fields the server doesn't know about are skipped
+    static class InputMsgDeserializer extends StdDeserializer<InputMsg> {
+        public InputMsgDeserializer() {
+            super(InputMsg.class);
+        }
+
+        @Override
+        public InputMsg deserialize(JsonParser parser, DeserializationContext ctx) throws IOException {
+            var msg = new InputMsg();
+            expectObject(parser);
+            for (var name = parser.nextFieldName(); name != null; name = parser.nextFieldName()) {
+                var token = parser.nextToken();
+                switch (name) {
+                    case "type" -> msg.setType(readInt(parser));
+                    case "move" -> msg.setMove(token == JsonToken.VALUE_NULL ? null : readMove(parser));
+                    default -> parser.skipChildren();
+                }
+            }
+            return msg;
+        }
+
+        private static Move readMove(JsonParser parser) throws IOException {
+            expectObject(parser);
+            Hexagon from = null;
+            Hexagon to = null;
+            for (var name = parser.nextFieldName(); name != null; name = parser.nextFieldName()) {
+                var token = parser.nextToken();
+                switch (name) {
+                    case "from" -> from = token == JsonToken.VALUE_NULL ? null : readHexagon(parser);
+                    case "to" -> to = token == JsonToken.VALUE_NULL ? null : readHexagon(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            return new Move(from, to);
+        }
+
+        private static Hexagon readHexagon(JsonParser parser) throws IOException {
+            expectObject(parser);
+            int file = 0;
+            int rank = 0;
+            for (var name = parser.nextFieldName(); name != null; name = parser.nextFieldName()) {
+                parser.nextToken();
+                switch (name) {
+                    case "file" -> file = readInt(parser);
+                    case "rank" -> rank = readInt(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            return Hexagon.of(file, rank);
+        }
+
+        // only a json integer is a number here, coercing a string, a boolean or null would make up a message type or a cell
+        private static int readInt(JsonParser parser) throws IOException {
+            if (parser.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+                throw new JsonParseException(parser, "Expected an integer but was " + parser.currentToken());
+            }
+            return parser.getIntValue();
+        }
+
+        private static void expectObject(JsonParser parser) throws IOException {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Expected an object but was " + parser.currentToken());
+            }
+        }
+    }
+
+    // writes the same fields in the same order the reflective mapper did, nulls included
+    static class OutputMsgSerializer extends StdSerializer<OutputMsg> {
+        private static final SerializableString TYPE = new SerializedString("type");
+        private static final SerializableString MESSAGE = new SerializedString("message");
+        private static final SerializableString PLAYER = new SerializedString("player");
+        private static final SerializableString MOVE = new SerializedString("move");
+        private static final SerializableString GAME_STATE = new SerializedString("gameState");
+        private static final SerializableString VERSION = new SerializedString("version");
+        private static final SerializableString WHITE_DELTA = new SerializedString("whiteDelta");
+        private static final SerializableString BLACK_DELTA = new SerializedString("blackDelta");
+
+        public OutputMsgSerializer() {
+            super(OutputMsg.class);
+        }
+
+        @Override
+        public void serialize(OutputMsg msg, JsonGenerator json, SerializerProvider provider) throws IOException {
+            json.writeStartObject();
+            json.writeFieldName(TYPE);
+            json.writeNumber(msg.getType());
+            json.writeFieldName(MESSAGE);
+            json.writeString(msg.getMessage());
+            json.writeFieldName(PLAYER);
+            JsonSerializers.writePlayer(json, msg.getPlayer());
+            json.writeFieldName(MOVE);
+            JsonSerializers.writeMove(json, msg.getMove());
+            json.writeFieldName(GAME_STATE);
+            JsonSerializers.writeGameState(json, msg.getGameState());
+            json.writeFieldName(VERSION);
+            if (msg.getVersion() == null) {
+                json.writeNull();
+            } else {
+                json.writeNumber(msg.getVersion());
+            }
+            json.writeFieldName(WHITE_DELTA);
+            JsonSerializers.writeMoveDelta(json, msg.getWhiteDelta());
+            json.writeFieldName(BLACK_DELTA);
+            JsonSerializers.writeMoveDelta(json, msg.getBlackDelta());
+            json.writeEndObject();
         }
     }
 
-    public WebSocket.OnConnect handleGameConnect(State state, String gameId, Player player) {
+    public WebSocket.OnConnect handleGameConnect(State state, String gameId, Player player, String protocol) {
         var gameService = state.getGameService();
         var socketExchange = state.getBroadcaster();
 
@@ -111,16 +276,16 @@ public class WsRouter extends Jooby {
                 var game = gameService.join(gameId, player);
                 if (game == null) {
                     // we can't join... so just send an error and then disconnect
-                    var jsonOutput = JSON_MAPPER.writeValueAsString(OutputMsg.ofError("Invalid message type"));
-                    ws.send(jsonOutput);
+                    send(ws, protocol, OutputMsg.ofError("Invalid message type"));
                     ws.close();
                     return;
                 }
-                socketExchange.subscribe(gameId, ws);
+                socketExchange.subscribe(topicOf(gameId, protocol), ws);
                 // the joiner needs a snapshot of what the game actually looks like when joining!
-                var jsonResult = JSON_MAPPER.writeValueAsString(OutputMsg.ofJoin(player, game));
-                ws.send(jsonResult);
+                send(ws, protocol, OutputMsg.ofJoin(player, game));
                 LOGGER.info("Player {} connected to game {}", player.getId(), gameId);
+                // the computer may be white, in which case it moves as soon as its opponent arrives
+                playComputerMove(state, gameId, game);
             } catch (Exception e) {
                 // if we encounter some unknown error or maybe json failure, we can't really do anything so just log and close the connection
                 LOGGER.error("Fatal exception occurred: {}", e.getMessage());
@@ -129,7 +294,31 @@ public class WsRouter extends Jooby {
         });
     }
 
-    public WebSocket.OnMessage handleGameMessage(State state, String gameId, Player player) {
+    // the computer's reply is searched in the background and broadcast like a move from any other player
+    public void playComputerMove(State state, String gameId, GameState game) {
+        if (game == null || !game.isComputerTurn()) {
+            return;
+        }
+        var gameService = state.getGameService();
+        var broadcastService = state.getBroadcaster();
+
+        EXECUTOR.execute(() -> {
+            try {
+                var result = gameService.playComputerMove(gameId);
+                if (result == null) {
+                    return;
+                }
+                broadcastMove(broadcastService, gameId, result, result.getState().getMoveList().getLast());
+            } catch (GameService.MoveException e) {
+                // the game ended while the computer was thinking, there is nobody left to tell
+                LOGGER.info("Computer move on game {} was rejected: {}", gameId, e.getMessage());
+            } catch (Exception e) {
+                LOGGER.error("Unexpected error occurred while playing the computer move {}", ExceptionUtils.getStackTrace(e));
+            }
+        });
+    }
+
+    public WebSocket.OnMessage handleGameMessage(State state, String gameId, Player player, String protocol) {
         var gameService = state.getGameService();
         var broadcastService = state.getBroadcaster();
 
@@ -143,30 +332,30 @@ public class WsRouter extends Jooby {
                         // handle the message cases by serializing the json and broadcasting to all listening clients
                         case InputMsg.FORFEIT -> {
                             var game = gameService.forfeit(gameId, player);
-                            var jsonOutput = JSON_MAPPER.writeValueAsString(OutputMsg.ofForfeit(game));
-                            broadcastService.broadcast(gameId, jsonOutput);
+                            // the game is over, so delta clients get the whole state too
+                            broadcastOutput(broadcastService, gameId, OutputMsg.ofForfeit(game), null);
                         }
                         case InputMsg.MOVE -> {
                             var move = input.getMove();
-                            var game = gameService.makeMove(gameId, player, move);
-                            var jsonOutput = JSON_MAPPER.writeValueAsString(OutputMsg.ofMove(game, move));
-                            broadcastService.broadcast(gameId, jsonOutput);
+                            var result = gameService.playMove(gameId, player, move);
+                            broadcastMove(broadcastService, gameId, result, move);
+                            playComputerMove(state, gameId, result != null ? result.getState() : null);
+                        }
+                        case InputMsg.RESYNC -> {
+                            var game = state.getRemoteDict().getGame(gameId);
+                            send(ws, protocol, game != null ? OutputMsg.ofSnapshot(game) : OutputMsg.ofError("Game does not exist"));
                         }
                         // unknown messages involve sending an error back to the og sender
                         default -> {
-                            var resp = OutputMsg.ofError("Invalid message type: %d" + type);
-                            var jsonOutput = JSON_MAPPER.writeValueAsString(resp);
-                            ws.send(jsonOutput);
+                            send(ws, protocol, OutputMsg.ofError("Invalid message type: %d" + type));
                         }
                     }
                 } catch (GameService.MoveException e) {
                     // handle an exceptional case that happens while attempting to make a move by sending an error back to og sender
-                    var jsonOutput = JSON_MAPPER.writeValueAsString(OutputMsg.ofError(e.getMessage()));
-                    ws.send(jsonOutput);
+                    send(ws, protocol, OutputMsg.ofError(e.getMessage()));
                 } catch (Exception e) {
                     // handle any unknown error that happens during message processing by sending an error back to og sender
-                    var jsonOutput = JSON_MAPPER.writeValueAsString(OutputMsg.ofError("An unexpected error has occurred"));
-                    ws.send(jsonOutput);
+                    send(ws, protocol, OutputMsg.ofError("An unexpected error has occurred"));
                     LOGGER.error("Unexpected error occurred in websocket message handler {}", ExceptionUtils.getStackTrace(e));
                 }
             } catch (JsonProcessingException e) {
@@ -176,4 +365,38 @@ public class WsRouter extends Jooby {
             }
         });
     }
+
+    // sends the whole state to the clients on the json and binary protocols and only what changed to the ones on the delta protocol
+    private static void broadcastMove(Broadcaster broadcastService, String gameId, GameService.MoveResult result, Move move) throws JsonProcessingException {
+        if (result == null) {
+            return;
+        }
+        broadcastOutput(broadcastService, gameId, OutputMsg.ofMove(result.getState(), move), OutputMsg.ofMoveDelta(result, move));
+    }
+
+    // json clients are almost always watching, the other protocols are only encoded and published when someone uses them
+    // delta clients are sent the delta output if there is one and the whole output otherwise
+    private static void broadcastOutput(Broadcaster broadcastService, String gameId, OutputMsg output, OutputMsg deltaOutput) throws JsonProcessingException {
+        var jsonOutput = JSON_MAPPER.writeValueAsString(output);
+        broadcastService.broadcast(gameId, jsonOutput);
+
+        var deltaTopic = topicOf(gameId, DELTA_PROTOCOL);
+        var binaryTopic = topicOf(gameId, BINARY_PROTOCOL);
+        var subscribed = broadcastService.subscribedIds(deltaTopic, binaryTopic);
+        if (subscribed.contains(deltaTopic)) {
+            broadcastService.broadcast(deltaTopic, deltaOutput != null ? JSON_MAPPER.writeValueAsString(deltaOutput) : jsonOutput);
+        }
+        if (subscribed.contains(binaryTopic)) {
+            broadcastService.broadcast(binaryTopic, output.toFrame());
+        }
+    }
+
+    // messages meant for one socket only are written in the protocol that socket asked for, delta clients read json
+    private static void send(WebSocket ws, String protocol, OutputMsg output) throws JsonProcessingException {
+        if (BINARY_PROTOCOL.equals(protocol)) {
+            ws.sendBinary(output.toFrame());
+        } else {
+            ws.send(JSON_MAPPER.writeValueAsString(output));
+        }
+    }
 }
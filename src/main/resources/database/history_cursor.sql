@@ -0,0 +1,11 @@
+-- Readers of every finished game page through game_histories by (playedOn, id), see services.HistoryDao.Cursor.
+-- Run once against a database created before the change, new databases get the column and index from schema.sql.
+BEGIN;
+UPDATE game_histories SET playedOn = 'epoch' WHERE playedOn IS NULL;
+ALTER TABLE game_histories ALTER COLUMN playedOn SET NOT NULL;
+CREATE INDEX IF NOT EXISTS idxPlayedOn ON game_histories(playedOn, id);
+
+-- The analysis checkpoint continues from the played on time of the last history it analyzed.
+ALTER TABLE analysis_checkpoints ADD COLUMN IF NOT EXISTS lastPlayedOn TIMESTAMP NOT NULL DEFAULT 'epoch';
+UPDATE analysis_checkpoints AS c SET lastPlayedOn = h.playedOn FROM game_histories AS h WHERE h.id = c.lastHistoryId;
+END;
@@ -0,0 +1,26 @@
+-- Converts game_histories.data from a json move list to the packed moves of utils.MoveHistoryFormat.
+-- Run once against a database created before the change, new databases get the bytea column from schema.sql.
+BEGIN;
+-- The flat index of a {"file": .., "rank": ..} hexagon, 255 for anything off the board.
+CREATE FUNCTION pg_temp.packedCell(IN hex JSON)
+    RETURNS TEXT
+    LANGUAGE sql
+    IMMUTABLE
+AS $$
+SELECT lpad(to_hex(CASE
+    WHEN (hex ->> 'file')::INTEGER BETWEEN 0 AND 10
+        AND (hex ->> 'rank')::INTEGER BETWEEN 0 AND 10 - abs((hex ->> 'file')::INTEGER - 5)
+    THEN (ARRAY[0, 6, 13, 21, 30, 40, 51, 61, 70, 78, 85])[(hex ->> 'file')::INTEGER + 1] + (hex ->> 'rank')::INTEGER
+    ELSE 255 END), 2, '0');
+$$;
+
+ALTER TABLE game_histories ADD COLUMN packedData BYTEA;
+
+UPDATE game_histories AS h SET packedData = decode(COALESCE((
+    SELECT string_agg(pg_temp.packedCell(m.value -> 'from') || pg_temp.packedCell(m.value -> 'to'), '' ORDER BY m.ordinality)
+    FROM json_array_elements(CASE WHEN json_typeof(h.data) = 'array' THEN h.data ELSE '[]'::JSON END) WITH ORDINALITY AS m), ''), 'hex');
+
+ALTER TABLE game_histories DROP COLUMN data;
+ALTER TABLE game_histories RENAME COLUMN packedData TO data;
+ALTER TABLE game_histories ALTER COLUMN data SET NOT NULL;
+END;
@@ -28,11 +28,28 @@ CREATE TABLE IF NOT EXISTS game_histories (
     whiteId VARCHAR NOT NULL,
     blackId VARCHAR NOT NULL,
     result INTEGER NOT NULL,
-    data JSON NOT NULL,
-    playedOn TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    data BYTEA NOT NULL, -- packed moves, two bytes per ply, see utils.MoveHistoryFormat
+    playedOn TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     winElo NUMERIC,
     loseElo NUMERIC);
 
+CREATE TABLE IF NOT EXISTS game_analyses (
+    historyId INTEGER NOT NULL REFERENCES game_histories(id),
+    ply INTEGER NOT NULL,
+    move VARCHAR NOT NULL,
+    bestMove VARCHAR,
+    bestScore INTEGER NOT NULL,
+    score INTEGER NOT NULL,
+    loss INTEGER NOT NULL,
+    classification INTEGER NOT NULL,
+    PRIMARY KEY (historyId, ply));
+
+CREATE TABLE IF NOT EXISTS analysis_checkpoints (
+    id NUMERIC,
+    lastHistoryId INTEGER NOT NULL,
+    lastPlayedOn TIMESTAMP NOT NULL DEFAULT 'epoch',
+    PRIMARY KEY (id));
+
 -- Create indices.
 CREATE INDEX IF NOT EXISTS idxTrgmUsername ON users USING GIST (username gist_trgm_ops);
 CREATE INDEX IF NOT EXISTS idxUsername ON users(username);
@@ -41,6 +58,7 @@ CREATE INDEX IF NOT EXISTS idxElo ON users(elo);
 CREATE INDEX IF NOT EXISTS idxWhiteId ON game_histories(whiteId, id);
 CREATE INDEX IF NOT EXISTS idxBlackId ON game_histories(blackId, id);
 CREATE INDEX IF NOT EXISTS idxBothIds ON game_histories(whiteId, blackId, id);
+CREATE INDEX IF NOT EXISTS idxPlayedOn ON game_histories(playedOn, id);
 
 -- Create functions and procedures.
 CREATE FUNCTION probabilityWins(IN elo1 NUMERIC, IN elo2 NUMERIC)
@@ -76,4 +94,5 @@ BEGIN
 END $$;
 END;
 
-BEGIN; INSERT INTO users_metadata (id, count) VALUES (1, 0); END;
\ No newline at end of file
+BEGIN; INSERT INTO users_metadata (id, count) VALUES (1, 0); END;
+BEGIN; INSERT INTO analysis_checkpoints (id, lastHistoryId) VALUES (1, 0); END;
\ No newline at end of file
@@ -83,6 +83,122 @@ function renderBoard(element, board) {
     }
 }
 
+const FILE_SIZES = [6, 7, 8, 9, 10, 11, 10, 9, 8, 7, 6];
+const OFF_BOARD = 0xFF;
+
+// HEXAGONS[i] is the {file, rank} of the cell at flat index i, files are laid out one after the other
+const HEXAGONS = FILE_SIZES.flatMap((size, file) => Array.from({length: size}, (_, rank) => ({file, rank})));
+
+// field and state flags of a binary frame, see utils.FrameFormat
+const FRAME_MESSAGE = 1;
+const FRAME_PLAYER = 1 << 1;
+const FRAME_MOVE = 1 << 2;
+const FRAME_VERSION = 1 << 3;
+const FRAME_GAME_STATE = 1 << 4;
+
+const STATE_ENDED = 1;
+const STATE_HAS_WHITE = 1 << 1;
+const STATE_HAS_BLACK = 1 << 2;
+const STATE_HAS_GAME = 1 << 3;
+const STATE_HAS_MOVES = 1 << 4;
+
+const UTF8_DECODER = new TextDecoder();
+
+// decodes a binary frame into the same shape as the json messages, so the rest of the client doesn't care which it got
+function decodeFrame(buffer) {
+    const view = new DataView(buffer);
+    let offset = 0;
+
+    const readByte = () => view.getUint8(offset++);
+    const readShort = () => {
+        const value = view.getUint16(offset);
+        offset += 2;
+        return value;
+    };
+    const readString = () => {
+        const length = readShort();
+        const value = UTF8_DECODER.decode(new Uint8Array(buffer, offset, length));
+        offset += length;
+        return value;
+    };
+    const readHexagon = () => {
+        const index = readByte();
+        return index === OFF_BOARD ? {file: -1, rank: -1} : HEXAGONS[index];
+    };
+    const readPlayer = () => ({id: readString(), name: readString()});
+    const readPieceMoves = () => {
+        const pieceMoves = [];
+        const sources = readByte();
+        for (let i = 0; i < sources; i++) {
+            const hex = readHexagon();
+            const moves = [];
+            const count = readByte();
+            for (let j = 0; j < count; j++) {
+                moves.push(readHexagon());
+            }
+            pieceMoves.push({hex, moves});
+        }
+        return pieceMoves;
+    };
+    const readState = () => {
+        const flags = readByte();
+        const state = {
+            id: readString(),
+            game: null,
+            whitePlayer: flags & STATE_HAS_WHITE ? readPlayer() : null,
+            blackPlayer: flags & STATE_HAS_BLACK ? readPlayer() : null,
+            isEnded: (flags & STATE_ENDED) !== 0
+        };
+        if (flags & STATE_HAS_GAME) {
+            const turn = readByte();
+            const pieces = FILE_SIZES.map((size) => {
+                const file = Array.from(new Uint8Array(buffer, offset, size));
+                offset += size;
+                return file;
+            });
+            state.game = {board: {turn, pieces}, whiteMoves: null, blackMoves: null};
+        }
+        if (flags & STATE_HAS_MOVES) {
+            state.game.whiteMoves = readPieceMoves();
+            state.game.blackMoves = readPieceMoves();
+        }
+        return state;
+    };
+
+    const type = readByte();
+    const fields = readByte();
+    const msg = {type, message: null, player: null, move: null, gameState: null, version: null};
+    if (fields & FRAME_MESSAGE) {
+        msg.message = readString();
+    }
+    if (fields & FRAME_PLAYER) {
+        msg.player = readPlayer();
+    }
+    if (fields & FRAME_MOVE) {
+        msg.move = {from: readHexagon(), to: readHexagon()};
+    }
+    if (fields & FRAME_VERSION) {
+        msg.version = readShort();
+    }
+    if (fields & FRAME_GAME_STATE) {
+        msg.gameState = readState();
+    }
+    return msg;
+}
+
+// joins a game over the binary protocol, onMessage is called with each message decoded like the json ones
+function connectGame(gameId, sessionId, onMessage) {
+    const scheme = location.protocol === "https:" ? "wss" : "ws";
+    const ws = new WebSocket(`${scheme}://${location.host}/games/join/${encodeURIComponent(gameId)}?sessionId=${encodeURIComponent(sessionId)}&protocol=binary`);
+    ws.binaryType = "arraybuffer";
+    ws.onmessage = (event) => {
+        // text frames are still json, binary frames are decoded
+        const msg = typeof event.data === "string" ? JSON.parse(event.data) : decodeFrame(event.data);
+        onMessage(msg);
+    };
+    return ws;
+}
+
 function renderPieces() {
 
 }
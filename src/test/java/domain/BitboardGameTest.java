@@ -0,0 +1,113 @@
+package domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static domain.ChessBoard.*;
+
+public class BitboardGameTest {
+
+    private static int[] sortedMoves(MoveList moves) {
+        var packed = moves.toArray();
+        Arrays.sort(packed);
+        return packed;
+    }
+
+    @Test
+    public void testBitLayout() {
+        for (int cell = 0; cell < Hexagon.CELLS; cell++) {
+            Assertions.assertEquals(cell, Bitboards.BIT_TO_CELL[Bitboards.CELL_TO_BIT[cell]]);
+        }
+        var board = ChessBoard.initial();
+        Assertions.assertEquals(board, new BitboardGame(board).toBoard());
+    }
+
+    @Test
+    public void testPerftMatchesChessGame() {
+        Assertions.assertEquals(Perft.perft(ChessGame.start(), 3), Perft.perft(BitboardGame.start(), 3));
+
+        var board = ChessGame.empty()
+            .setPiece("g1", WHITE_KING)
+            .setPiece("e1", WHITE_QUEEN)
+            .setPiece("c1", WHITE_ROOK)
+            .setPiece("f3", WHITE_BISHOP)
+            .setPiece("g4", WHITE_PAWN)
+            .setPiece("g10", BLACK_KING)
+            .setPiece("e10", BLACK_QUEEN)
+            .setPiece("h9", BLACK_KNIGHT)
+            .setPiece("f7", BLACK_PAWN)
+            .getBoard();
+        Assertions.assertEquals(Perft.perft(new ChessGame(board.deepCopy()), 3), Perft.perft(new BitboardGame(board), 3));
+    }
+
+    @Test
+    public void testIsCheckmate() {
+        var board = ChessGame.empty()
+            .setPiece("f6", WHITE_KING)
+            .setPiece("f4", BLACK_QUEEN)
+            .setPiece("f8", BLACK_QUEEN)
+            .setPiece("b4", BLACK_BISHOP)
+            .setPiece("j4", BLACK_BISHOP)
+            .setPiece("f9", BLACK_KING)
+            .getBoard();
+
+        var game = new BitboardGame(board);
+
+        Assertions.assertTrue(game.isCheck());
+        Assertions.assertTrue(game.isCheckmate());
+    }
+
+    @Test
+    public void testRandomGamesMatchChessGame() {
+        var random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            var game = ChessGame.start();
+            var bitboardGame = BitboardGame.start();
+            var legalMoves = new MoveList();
+
+            for (int ply = 0; ply < 200; ply++) {
+                game.initPieceMoves();
+                var turn = game.getBoard().turn();
+                var moves = game.getMoveList(turn);
+                bitboardGame.findLegalMoves(legalMoves);
+
+                Assertions.assertEquals(game.getBoard(), bitboardGame.toBoard());
+                Assertions.assertArrayEquals(sortedMoves(moves), sortedMoves(legalMoves));
+                Assertions.assertArrayEquals(sortedMoves(game.findPieceMoves(turn)), sortedMoves(bitboardGame.findPieceMoves(turn)));
+                Assertions.assertEquals(game.isCheck(), bitboardGame.isCheck());
+                Assertions.assertEquals(game.isCheckmate(), bitboardGame.isCheckmate());
+
+                var from = random.nextInt(Hexagon.CELLS);
+                var to = random.nextInt(Hexagon.CELLS);
+                Assertions.assertEquals(moves.contains(from, to), bitboardGame.isValidMove(from, to));
+
+                if (moves.isEmpty()) {
+                    break;
+                }
+                var move = moves.get(random.nextInt(moves.size()));
+                game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+                bitboardGame.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+            }
+        }
+    }
+
+    @Test
+    public void testMakeUnmakeMove() {
+        var game = BitboardGame.start();
+        var before = game.toBoard();
+
+        var undo1 = game.makeMove(new Move(Hexagon.fromNotation("h1"), Hexagon.fromNotation("i3")));
+        var undo2 = game.makeMove(new Move(Hexagon.fromNotation("h9"), Hexagon.fromNotation("i6")));
+        Assertions.assertEquals(WHITE_KNIGHT, game.getPiece(Hexagon.fromNotation("i3").index()));
+        Assertions.assertEquals(BLACK_KNIGHT, game.getPiece(Hexagon.fromNotation("i6").index()));
+        Assertions.assertEquals(EMPTY, undo2.getCaptured());
+        Assertions.assertEquals(Turn.WHITE, game.turn());
+
+        game.unmakeMove(undo2);
+        game.unmakeMove(undo1);
+        Assertions.assertEquals(before, game.toBoard());
+    }
+}
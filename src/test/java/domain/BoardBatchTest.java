@@ -0,0 +1,123 @@
+package domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static domain.ChessBoard.*;
+
+public class BoardBatchTest {
+
+    @Test
+    public void testMatchesBitboardGame() {
+        var random = new Random(7);
+        var batch = new BoardBatch(64);
+        var expected = new MoveList();
+        for (int i = 0; i < 20; i++) {
+            // given
+            List<ChessBoard> boards = new ArrayList<>();
+            var game = BitboardGame.start();
+            var moves = new MoveList();
+            for (int ply = 0; ply < 200 && boards.size() < batch.capacity(); ply++) {
+                game.findLegalMoves(moves);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                boards.add(game.toBoard());
+                var move = moves.get(random.nextInt(moves.size()));
+                game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+            }
+
+            // when
+            batch.clear();
+            for (var board : boards) {
+                if (random.nextBoolean()) {
+                    batch.add(board);
+                } else {
+                    batch.add(new BitboardGame(board));
+                }
+            }
+            batch.generate();
+
+            // then
+            Assertions.assertEquals(boards.size(), batch.size());
+            for (int b = 0; b < boards.size(); b++) {
+                new BitboardGame(boards.get(b)).findLegalMoves(expected);
+                var start = batch.moveStart(b);
+                var actual = Arrays.copyOfRange(batch.moves(), start, start + batch.moveCount(b));
+                Assertions.assertArrayEquals(expected.toArray(), actual, boards.get(b).toString());
+                for (int cell = 0; cell < Hexagon.CELLS; cell++) {
+                    Assertions.assertEquals(boards.get(b).getPiece(cell), batch.getPiece(b, cell));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testChecksAndPins() {
+        var batch = new BoardBatch(4);
+        var boards = List.of(
+            // double check, only the king can move
+            ChessGame.empty()
+                .setPiece("f6", WHITE_KING)
+                .setPiece("f4", BLACK_QUEEN)
+                .setPiece("h5", BLACK_KNIGHT)
+                .setPiece("c3", WHITE_ROOK)
+                .setPiece("f11", BLACK_KING)
+                .getBoard(),
+            // the bishop is pinned to its king by the rook
+            ChessGame.empty()
+                .setPiece("f1", WHITE_KING)
+                .setPiece("f3", WHITE_BISHOP)
+                .setPiece("f8", BLACK_ROOK)
+                .setPiece("g4", WHITE_PAWN)
+                .setPiece("f11", BLACK_KING)
+                .getBoard(),
+            // black to move, in check from a pawn
+            ChessGame.empty()
+                .setPiece("f10", BLACK_KING)
+                .setPiece("e9", WHITE_PAWN)
+                .setPiece("c7", BLACK_ROOK)
+                .setPiece("f1", WHITE_KING)
+                .getBoard());
+        boards.get(2).setTurn(Turn.BLACK);
+
+        for (var board : boards) {
+            batch.add(board);
+        }
+        batch.generate();
+
+        var expected = new MoveList();
+        for (int b = 0; b < boards.size(); b++) {
+            new BitboardGame(boards.get(b)).findLegalMoves(expected);
+            var start = batch.moveStart(b);
+            Assertions.assertArrayEquals(expected.toArray(), Arrays.copyOfRange(batch.moves(), start, start + batch.moveCount(b)));
+        }
+        Assertions.assertThrows(IllegalStateException.class, () -> {
+            batch.add(ChessBoard.initial());
+            batch.add(ChessBoard.initial());
+        });
+    }
+
+    @Test
+    public void testBatchPerft() {
+        Assertions.assertEquals(Perft.perft(BitboardGame.start(), 3), Perft.batchPerft(BitboardGame.start(), 3, 100));
+
+        var board = ChessGame.empty()
+            .setPiece("g1", WHITE_KING)
+            .setPiece("e1", WHITE_QUEEN)
+            .setPiece("c1", WHITE_ROOK)
+            .setPiece("f3", WHITE_BISHOP)
+            .setPiece("g4", WHITE_PAWN)
+            .setPiece("g10", BLACK_KING)
+            .setPiece("e10", BLACK_QUEEN)
+            .setPiece("h9", BLACK_KNIGHT)
+            .setPiece("f7", BLACK_PAWN)
+            .getBoard();
+        Assertions.assertEquals(Perft.perft(new BitboardGame(board), 3), Perft.batchPerft(new BitboardGame(board), 3, 7));
+    }
+}
@@ -7,9 +7,11 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Stream;
 
 import static domain.ChessBoard.*;
+import static domain.Hexagon.Direction;
 import static utils.Globals.LOGGER;
 
 public class ChessGameTest {
@@ -18,16 +20,16 @@ public class ChessGameTest {
     public void testHexagonToString() {
         String str;
 
-        str = new Hexagon(5, 8).toString();
+        str = Hexagon.of(5, 8).toString();
         Assertions.assertEquals("f9", str);
 
-        str = new Hexagon(6, 9).toString();
+        str = Hexagon.of(6, 9).toString();
         Assertions.assertEquals("g10", str);
 
-        str = new Hexagon(4, 4).toString();
+        str = Hexagon.of(4, 4).toString();
         Assertions.assertEquals("e5", str);
 
-        str = new Hexagon(6, 0).toString();
+        str = Hexagon.of(6, 0).toString();
         Assertions.assertEquals("g1", str);
     }
 
@@ -36,13 +38,77 @@ public class ChessGameTest {
         Hexagon hex;
 
         hex = Hexagon.fromNotation("f9");
-        Assertions.assertEquals(new Hexagon(5, 8), hex);
+        Assertions.assertEquals(Hexagon.of(5, 8), hex);
 
         hex = Hexagon.fromNotation("g10");
-        Assertions.assertEquals(new Hexagon(6, 9), hex);
+        Assertions.assertEquals(Hexagon.of(6, 9), hex);
 
         hex = Hexagon.fromNotation("e5");
-        Assertions.assertEquals(new Hexagon(4, 4), hex);
+        Assertions.assertEquals(Hexagon.of(4, 4), hex);
+    }
+
+    @Test
+    public void testMalformedNotation() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Hexagon.fromNotation(""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Hexagon.fromNotation("f"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Hexagon.fromNotation("fx"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Move.fromNotation("-f6"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Move.fromNotation("f5-"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Move.fromNotation("f5-f"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Hexagon.fromNotation("z1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Hexagon.fromNotation("a99"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Hexagon.fromNotation("a7"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Hexagon.fromNotation("f0"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Hexagon.fromNotation("f+5"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Hexagon.fromNotation("f99999999999"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Move.fromNotation("f5-f6-"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Move.fromNotation("f5--f6"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Move.fromNotation("f5-z6"));
+        Assertions.assertSame(Hexagon.fromNotation("f11"), Hexagon.of(5, 10));
+        Assertions.assertEquals(new Move(Hexagon.fromNotation("f5"), Hexagon.fromNotation("f6")), Move.fromNotation("f5-f6"));
+    }
+
+    @Test
+    public void testHexagonInterned() {
+        Assertions.assertSame(Hexagon.of(4, 4), Hexagon.fromNotation("e5"));
+        Assertions.assertSame(Hexagon.of(4, 4), Hexagon.of(4, 3).walk(new Direction[]{Direction.UP}));
+        Assertions.assertSame(Hexagon.OFF_BOARD, Hexagon.of(0, 6));
+        Assertions.assertSame(Hexagon.OFF_BOARD, Hexagon.fromNotation("a1").walk(new Direction[]{Direction.DOWN}));
+        Assertions.assertFalse(ChessBoard.initial().inBounds(Hexagon.OFF_BOARD));
+    }
+
+    @Test
+    public void testHexagonIndex() {
+        Assertions.assertEquals(91, Hexagon.CELLS);
+        for (int i = 0; i < Hexagon.CELLS; i++) {
+            var hex = Hexagon.ofIndex(i);
+            Assertions.assertEquals(i, hex.index());
+            Assertions.assertEquals(i, Hexagon.indexOf(hex.getFile(), hex.getRank()));
+        }
+        Assertions.assertEquals(0, Hexagon.fromNotation("a1").index());
+        Assertions.assertEquals(90, Hexagon.fromNotation("k6").index());
+    }
+
+    @Test
+    public void testNeighborTablesMatchWalk() {
+        for (var hex : Hexagon.ORDERED) {
+            for (var direction : Direction.values()) {
+                var walked = hex.walk(new Direction[]{direction});
+                var expected = Hexagon.inBounds(walked.getFile(), walked.getRank()) ? walked.index() : MoveTables.NONE;
+                Assertions.assertEquals(expected, MoveTables.NEIGHBORS[direction.ordinal()][hex.index()]);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidMoveWithMissingCells() {
+        var game = ChessGame.start();
+        game.initPieceMoves();
+
+        Assertions.assertFalse(game.isValidMove(new Move(null, Hexagon.fromNotation("f6"))));
+        Assertions.assertFalse(game.isValidMove(new Move(Hexagon.fromNotation("f5"), null)));
+        Assertions.assertFalse(game.isValidMove(new Move(Hexagon.fromNotation("f5"), Hexagon.OFF_BOARD)));
+        Assertions.assertTrue(game.isValidMove(new Move(Hexagon.fromNotation("f5"), Hexagon.fromNotation("f6"))));
     }
 
     @Test
@@ -55,6 +121,48 @@ public class ChessGameTest {
         Assertions.assertEquals(WHITE_BISHOP, piece);
     }
 
+    @Test
+    public void testPieceLists() {
+        var board = ChessBoard.initial();
+
+        Assertions.assertEquals(9, board.pieceCount(WHITE_PAWN));
+        Assertions.assertEquals(3, board.pieceCount(BLACK_BISHOP));
+        Assertions.assertEquals(Hexagon.fromNotation("g1").index(), board.kingCell(Turn.WHITE));
+        Assertions.assertEquals(Hexagon.fromNotation("g10").index(), board.kingCell(Turn.BLACK));
+
+        // move the king, take a knight and promote a pawn into a second queen
+        board.setPiece("g1", EMPTY);
+        board.setPiece("g2", WHITE_KING);
+        board.setPiece("h9", WHITE_BISHOP);
+        board.setPiece("b1", EMPTY);
+        board.setPiece("a6", WHITE_QUEEN);
+
+        Assertions.assertEquals(Hexagon.fromNotation("g2").index(), board.kingCell(Turn.WHITE));
+        Assertions.assertEquals(1, board.pieceCount(BLACK_KNIGHT));
+        Assertions.assertEquals(8, board.pieceCount(WHITE_PAWN));
+        Assertions.assertEquals(4, board.pieceCount(WHITE_BISHOP));
+        Assertions.assertEquals(2, board.pieceCount(WHITE_QUEEN));
+
+        // the lists are kept in cell order, so they match lists built from scratch
+        var rebuilt = new ChessBoard(Turn.WHITE);
+        for (int i = 0; i < Hexagon.CELLS; i++) {
+            rebuilt.setPiece(i, board.getPiece(i));
+        }
+        var copy = board.deepCopy();
+        for (byte piece = WHITE_PAWN; piece <= BLACK_KING; piece++) {
+            Assertions.assertEquals(rebuilt.pieceCount(piece), board.pieceCount(piece));
+            for (int j = 0; j < board.pieceCount(piece); j++) {
+                Assertions.assertEquals(piece, board.getPiece(board.pieceCell(piece, j)));
+                Assertions.assertEquals(rebuilt.pieceCell(piece, j), board.pieceCell(piece, j));
+                Assertions.assertEquals(board.pieceCell(piece, j), copy.pieceCell(piece, j));
+            }
+        }
+
+        board.setPiece("g10", EMPTY);
+        Assertions.assertEquals(-1, board.kingCell(Turn.BLACK));
+        Assertions.assertThrows(IllegalStateException.class, () -> board.findKing(Turn.BLACK));
+    }
+
     private void assertPieceMoves(List<Hexagon> actualMoves, String... expMoves) {
         var expectedMoves = Stream.of(expMoves).map(Hexagon::fromNotation).toList();
         Assertions.assertTrue(CollectionUtils.isEqualCollection(expectedMoves, actualMoves));
@@ -209,6 +317,99 @@ public class ChessGameTest {
         Assertions.assertTrue(isCheckmate);
     }
 
+    @Test
+    public void testCheckmateDefendedAttacker() {
+        var game = ChessGame.empty()
+            .setPiece("f1", WHITE_KING)
+            .setPiece("f2", BLACK_ROOK)
+            .setPiece("f3", BLACK_KING);
+
+        game.initPieceMoves();
+
+        // the king can't take the rook, since the other king defends it
+        Assertions.assertTrue(game.getMoveList(Turn.WHITE).isEmpty());
+        Assertions.assertTrue(game.isCheck());
+        Assertions.assertTrue(game.isCheckmate());
+    }
+
+    @Test
+    public void testBlockCheck() {
+        var game = ChessGame.empty()
+            .setPiece("f1", WHITE_KING)
+            .setPiece("f9", BLACK_ROOK)
+            .setPiece("k1", BLACK_KING)
+            .setPiece("c4", WHITE_ROOK)
+            .setPiece("d1", WHITE_KNIGHT);
+
+        game.initPieceMoves();
+
+        List<PieceMoves> expectedMoves = List.of(
+            new PieceMoves(Hexagon.fromNotation("d1"), Stream.of("f4").map(Hexagon::fromNotation).toList()),
+            new PieceMoves(Hexagon.fromNotation("c4"), Stream.of("f4", "f7").map(Hexagon::fromNotation).toList()),
+            new PieceMoves(Hexagon.fromNotation("f1"), Stream.of("e1", "g1", "g2", "e2").map(Hexagon::fromNotation).toList()));
+        Assertions.assertEquals(expectedMoves, game.getCurrMoves());
+        Assertions.assertTrue(game.isCheck());
+        Assertions.assertFalse(game.isCheckmate());
+    }
+
+    @Test
+    public void testDoubleCheck() {
+        var game = ChessGame.empty()
+            .setPiece("f1", WHITE_KING)
+            .setPiece("f9", BLACK_ROOK)
+            .setPiece("d2", BLACK_KNIGHT)
+            .setPiece("k1", BLACK_KING)
+            .setPiece("c4", WHITE_ROOK)
+            .setPiece("e4", WHITE_KNIGHT);
+
+        game.initPieceMoves();
+
+        // nothing can block two checks at once, so only the king may move
+        var moves = game.getMoveList(Turn.WHITE);
+        for (int i = 0; i < moves.size(); i++) {
+            Assertions.assertEquals(Hexagon.fromNotation("f1").index(), MoveList.fromOf(moves.get(i)));
+        }
+        Assertions.assertEquals(3, moves.size());
+        Assertions.assertFalse(game.isCheckmate());
+    }
+
+    @Test
+    public void testPinnedPieces() {
+        var game = ChessGame.empty()
+            .setPiece("f1", WHITE_KING)
+            .setPiece("f3", WHITE_ROOK)
+            .setPiece("f9", BLACK_ROOK)
+            .setPiece("k1", BLACK_KING)
+            .setPiece("f2", WHITE_PAWN);
+
+        game.initPieceMoves();
+
+        // the rook is shielded by the pawn so it moves freely, while the pawn can't leave the file
+        Assertions.assertFalse(game.isCheck());
+        Assertions.assertTrue(game.isValidMove(new Move(Hexagon.fromNotation("f3"), Hexagon.fromNotation("c3"))));
+        Assertions.assertFalse(game.isValidMove(new Move(Hexagon.fromNotation("f2"), Hexagon.fromNotation("f3"))));
+
+        game.setPiece("f2", EMPTY);
+        game.initPieceMoves();
+
+        // without the pawn the rook is pinned, but it can still slide along the file and take the pinning rook
+        Assertions.assertFalse(game.isValidMove(new Move(Hexagon.fromNotation("f3"), Hexagon.fromNotation("c3"))));
+        Assertions.assertTrue(game.isValidMove(new Move(Hexagon.fromNotation("f3"), Hexagon.fromNotation("f6"))));
+        Assertions.assertTrue(game.isValidMove(new Move(Hexagon.fromNotation("f3"), Hexagon.fromNotation("f9"))));
+        Assertions.assertTrue(game.isValidMove(new Move(Hexagon.fromNotation("f3"), Hexagon.fromNotation("f2"))));
+    }
+
+    @Test
+    public void testPawnDoubleStepBlocked() {
+        var game = ChessGame.start().setPiece("e5", BLACK_KNIGHT);
+
+        game.initPieceMoves();
+
+        // the pawn on e4 can't jump over a piece that blocks its first step
+        Assertions.assertFalse(game.isValidMove(new Move(Hexagon.fromNotation("e4"), Hexagon.fromNotation("e6"))));
+        Assertions.assertFalse(game.isValidMove(new Move(Hexagon.fromNotation("e4"), Hexagon.fromNotation("e5"))));
+    }
+
     @Test
     public void testInitPieceMoves() {
         // given
@@ -226,6 +427,175 @@ public class ChessGameTest {
         Assertions.assertEquals(expectedOppMoves, oppMoves);
     }
 
+    @Test
+    public void testMoveListPacking() {
+        var moves = new MoveList(1);
+        moves.addSource(10);
+        moves.add(10, 90);
+        moves.add(MoveList.encode(10, 64, WHITE_QUEEN));
+
+        Assertions.assertEquals(2, moves.size());
+        Assertions.assertEquals(10, MoveList.fromOf(moves.get(1)));
+        Assertions.assertEquals(64, MoveList.toOf(moves.get(1)));
+        Assertions.assertEquals(WHITE_QUEEN, MoveList.promotionOf(moves.get(1)));
+        Assertions.assertTrue(moves.contains(10, 90));
+        Assertions.assertTrue(moves.contains(10, 64));
+        Assertions.assertFalse(moves.contains(10, 63));
+        Assertions.assertFalse(moves.contains(90, 10));
+
+        moves.clear();
+        Assertions.assertTrue(moves.isEmpty());
+        Assertions.assertFalse(moves.contains(10, 90));
+    }
+
+    @Test
+    public void testIsValidMove() {
+        var game = ChessGame.start();
+        game.initPieceMoves();
+
+        Assertions.assertTrue(game.isValidMove(new Move(Hexagon.fromNotation("f5"), Hexagon.fromNotation("f6"))));
+        Assertions.assertTrue(game.isValidMove(new Move(Hexagon.fromNotation("h1"), Hexagon.fromNotation("i3"))));
+        Assertions.assertFalse(game.isValidMove(new Move(Hexagon.fromNotation("f5"), Hexagon.fromNotation("f7"))));
+        Assertions.assertFalse(game.isValidMove(new Move(Hexagon.fromNotation("f7"), Hexagon.fromNotation("f6"))));
+        Assertions.assertFalse(game.isValidMove(new Move(Hexagon.fromNotation("f5"), Hexagon.OFF_BOARD)));
+    }
+
+    @Test
+    public void testMakeUnmakeMove() {
+        // given
+        var game = ChessGame.start().setPiece("f6", BLACK_ROOK);
+        game.initPieceMoves();
+        var before = game.deepCopy();
+
+        // when
+        var undo = game.makeMove(Hexagon.fromNotation("f5"), Hexagon.fromNotation("f6"));
+        game.initPieceMoves();
+        var afterMove = game.deepCopy();
+        game.unmakeMove(undo);
+
+        // then
+        Assertions.assertEquals(BLACK_ROOK, undo.getCaptured());
+        Assertions.assertEquals(Turn.WHITE, undo.getTurn());
+        Assertions.assertEquals(before, game);
+        Assertions.assertEquals(WHITE_PAWN, afterMove.getBoard().getPiece("f6"));
+        Assertions.assertEquals(EMPTY, afterMove.getBoard().getPiece("f5"));
+    }
+
+    @Test
+    public void testIncrementalMovesMatchFullGeneration() {
+        var game = ChessGame.start();
+        game.initPieceMoves();
+
+        for (int i = 0; i < 12; i++) {
+            var moves = game.getMoveList(game.getBoard().turn());
+            var move = moves.get(i % moves.size());
+            game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+            game.initPieceMoves();
+
+            var fresh = new ChessGame(game.getBoard().deepCopy());
+            fresh.initPieceMoves();
+            Assertions.assertEquals(fresh.getWhiteMoves(), game.getWhiteMoves());
+            Assertions.assertEquals(fresh.getBlackMoves(), game.getBlackMoves());
+        }
+    }
+
+    @Test
+    public void testZobristIncremental() {
+        var game = ChessGame.start();
+        var startKey = game.getBoard().getZobrist();
+        Assertions.assertEquals(game.getBoard().computeZobrist(), startKey);
+
+        var undo1 = game.makeMove(Hexagon.fromNotation("h1"), Hexagon.fromNotation("i3"));
+        var undo2 = game.makeMove(Hexagon.fromNotation("h9"), Hexagon.fromNotation("i7"));
+        Assertions.assertEquals(game.getBoard().computeZobrist(), game.getBoard().getZobrist());
+        Assertions.assertNotEquals(startKey, game.getBoard().getZobrist());
+
+        // the same position reached in a different order has the same key
+        var other = ChessGame.start();
+        other.makeMove(Hexagon.fromNotation("h1"), Hexagon.fromNotation("i3"));
+        other.makeMove(Hexagon.fromNotation("h9"), Hexagon.fromNotation("i7"));
+        Assertions.assertEquals(other.getBoard().getZobrist(), game.getBoard().getZobrist());
+        Assertions.assertEquals(game.getBoard().getZobrist(), game.getBoard().deepCopy().getZobrist());
+
+        game.unmakeMove(undo2);
+        game.unmakeMove(undo1);
+        Assertions.assertEquals(startKey, game.getBoard().getZobrist());
+    }
+
+    @Test
+    public void testEvaluateIncremental() {
+        var game = ChessGame.start();
+        game.initPieceMoves();
+        // black's pieces mirror white's, so neither side starts ahead on material or placement
+        Assertions.assertEquals(0, game.getBoard().squaresScore());
+        var mobility = game.getMoveList(Turn.WHITE).size() - game.getMoveList(Turn.BLACK).size();
+        Assertions.assertEquals(Evaluation.MOBILITY_WEIGHT * mobility, game.evaluate());
+
+        var random = new Random(3);
+        List<ChessGame.Undo> undos = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            game.initPieceMoves();
+            var moves = game.getMoveList(game.getBoard().turn());
+            if (moves.isEmpty()) {
+                break;
+            }
+            var move = moves.get(random.nextInt(moves.size()));
+            if (isKing(game.getBoard().getPiece(MoveList.toOf(move)))) {
+                break;
+            }
+            undos.add(game.makeMove(MoveList.fromOf(move), MoveList.toOf(move)));
+
+            var expected = 0;
+            for (int cell = 0; cell < Hexagon.CELLS; cell++) {
+                expected += Evaluation.SQUARES[game.getBoard().getPiece(cell)][cell];
+            }
+            Assertions.assertEquals(expected, game.getBoard().squaresScore());
+            Assertions.assertEquals(expected, game.getBoard().deepCopy().squaresScore());
+        }
+
+        for (int i = undos.size() - 1; i >= 0; i--) {
+            game.unmakeMove(undos.get(i));
+        }
+        Assertions.assertEquals(0, game.getBoard().squaresScore());
+    }
+
+    @Test
+    public void testIncrementalAttacks() {
+        var game = ChessGame.empty()
+            .setPiece("f1", WHITE_KING)
+            .setPiece("k1", BLACK_KING)
+            .setPiece("c4", BLACK_ROOK);
+        game.getBoard().setTurn(Turn.BLACK);
+        game.initPieceMoves();
+        Assertions.assertFalse(game.isCheck());
+
+        // the rook moves onto the king's file, which only the rook's cached attacks know about
+        var undo = game.makeMove(Hexagon.fromNotation("c4"), Hexagon.fromNotation("f4"));
+        game.initPieceMoves();
+        Assertions.assertTrue(game.isCheck());
+        Assertions.assertFalse(game.isValidMove(new Move(Hexagon.fromNotation("f1"), Hexagon.fromNotation("f2"))));
+        Assertions.assertTrue(game.isValidMove(new Move(Hexagon.fromNotation("f1"), Hexagon.fromNotation("e1"))));
+
+        game.unmakeMove(undo);
+        Assertions.assertFalse(game.isCheck());
+
+        // the attack sets must agree with walking the rays from the king on a fresh copy
+        game = ChessGame.start();
+        game.initPieceMoves();
+        for (int i = 0; i < 40; i++) {
+            var moves = game.getMoveList(game.getBoard().turn());
+            if (moves.isEmpty()) {
+                break;
+            }
+            var move = moves.get(i * 7 % moves.size());
+            game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+            game.initPieceMoves();
+
+            var fresh = new ChessGame(game.getBoard().deepCopy());
+            Assertions.assertEquals(fresh.isCheck(), game.isCheck());
+        }
+    }
+
     @Test
     public void testCopy() {
         var gameState = GameState.startWithGame("id");
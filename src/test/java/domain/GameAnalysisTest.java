@@ -0,0 +1,51 @@
+package domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class GameAnalysisTest {
+
+    private static Move move(String from, String to) {
+        return new Move(Hexagon.fromNotation(from), Hexagon.fromNotation(to));
+    }
+
+    @Test
+    public void testClassify() {
+        Assertions.assertEquals(GameAnalysis.BEST, GameAnalysis.classify(0));
+        Assertions.assertEquals(GameAnalysis.GOOD, GameAnalysis.classify(49));
+        Assertions.assertEquals(GameAnalysis.INACCURACY, GameAnalysis.classify(50));
+        Assertions.assertEquals(GameAnalysis.MISTAKE, GameAnalysis.classify(100));
+        Assertions.assertEquals(GameAnalysis.BLUNDER, GameAnalysis.classify(300));
+    }
+
+    @Test
+    public void testAnalyzeBlunder() {
+        // black's queen steps onto a cell that white's queen can take it on
+        var moves = List.of(move("e4", "e6"), move("e10", "b4"));
+
+        var analyses = GameAnalysis.analyze(moves, new Search(new TranspositionTable(1 << 16)), Search.Limits.ofDepth(3));
+
+        Assertions.assertEquals(moves.size(), analyses.size());
+        for (int i = 0; i < moves.size(); i++) {
+            Assertions.assertEquals(i, analyses.get(i).getPly());
+            Assertions.assertEquals(moves.get(i), analyses.get(i).getMove());
+        }
+        Assertions.assertEquals(GameAnalysis.BLUNDER, analyses.getLast().getClassification());
+    }
+
+    @Test
+    public void testAnalyzeInvalidMove() {
+        var moves = List.of(move("f5", "f8"));
+        Assertions.assertThrows(IllegalStateException.class,
+            () -> GameAnalysis.analyze(moves, new Search(new TranspositionTable(1 << 16)), Search.Limits.ofDepth(1)));
+    }
+
+    @Test
+    public void testMoveNotation() {
+        var move = move("f10", "e9");
+        Assertions.assertEquals("f10-e9", move.toNotation());
+        Assertions.assertEquals(move, Move.fromNotation("f10-e9"));
+    }
+}
@@ -0,0 +1,65 @@
+package domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static domain.ChessBoard.*;
+
+public class MoveDeltaTest {
+
+    private static int[] sorted(MoveList moves) {
+        var packed = moves.toArray();
+        Arrays.sort(packed);
+        return packed;
+    }
+
+    @Test
+    public void testBetween() {
+        var before = new MoveList();
+        before.add(MoveList.encode(1, 2));
+        before.add(MoveList.encode(1, 3));
+        before.add(MoveList.encode(4, 5));
+        var after = new MoveList();
+        after.add(MoveList.encode(4, 5));
+        after.add(MoveList.encode(1, 2));
+        after.add(MoveList.encode(6, 7));
+
+        var delta = MoveDelta.between(before, after);
+
+        Assertions.assertArrayEquals(new int[]{MoveList.encode(6, 7)}, delta.getAdded());
+        Assertions.assertArrayEquals(new int[]{MoveList.encode(1, 3)}, delta.getRemoved());
+        Assertions.assertArrayEquals(sorted(after), delta.applyTo(before.toArray()));
+    }
+
+    @Test
+    public void testRandomGames() {
+        var random = new Random(3);
+        for (int i = 0; i < 10; i++) {
+            var game = ChessGame.start();
+            game.initPieceMoves();
+            var white = sorted(game.getMoveList(Turn.WHITE));
+            var black = sorted(game.getMoveList(Turn.BLACK));
+
+            for (int ply = 0; ply < 100; ply++) {
+                var moves = game.getMoveList(game.getBoard().turn());
+                if (moves.isEmpty()) {
+                    break;
+                }
+                var whiteBefore = game.getMoveList(Turn.WHITE).copy();
+                var blackBefore = game.getMoveList(Turn.BLACK).copy();
+                var move = moves.get(random.nextInt(moves.size()));
+                game.makeMove(MoveList.fromOf(move), MoveList.toOf(move));
+                game.initPieceMoves();
+
+                // a client holding the lists from the last snapshot keeps them up to date with nothing but the deltas
+                white = MoveDelta.between(whiteBefore, game.getMoveList(Turn.WHITE)).applyTo(white);
+                black = MoveDelta.between(blackBefore, game.getMoveList(Turn.BLACK)).applyTo(black);
+                Assertions.assertArrayEquals(sorted(game.getMoveList(Turn.WHITE)), white);
+                Assertions.assertArrayEquals(sorted(game.getMoveList(Turn.BLACK)), black);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static domain.ChessBoard.*;
+
+public class PerftTest {
+
+    private static ChessGame middleGame() {
+        return ChessGame.empty()
+            .setPiece("g1", WHITE_KING)
+            .setPiece("e1", WHITE_QUEEN)
+            .setPiece("c1", WHITE_ROOK)
+            .setPiece("f3", WHITE_BISHOP)
+            .setPiece("d1", WHITE_KNIGHT)
+            .setPiece("e4", WHITE_PAWN)
+            .setPiece("f5", WHITE_PAWN)
+            .setPiece("g4", WHITE_PAWN)
+            .setPiece("g10", BLACK_KING)
+            .setPiece("e10", BLACK_QUEEN)
+            .setPiece("i8", BLACK_ROOK)
+            .setPiece("f9", BLACK_BISHOP)
+            .setPiece("h9", BLACK_KNIGHT)
+            .setPiece("e7", BLACK_PAWN)
+            .setPiece("f7", BLACK_PAWN)
+            .setPiece("g7", BLACK_PAWN);
+    }
+
+    private static ChessGame endGame() {
+        return ChessGame.empty()
+            .setPiece("f6", WHITE_KING)
+            .setPiece("c3", WHITE_QUEEN)
+            .setPiece("f11", BLACK_KING);
+    }
+
+    @Test
+    public void testPerftStart() {
+        long[] expected = {1, 51, 2188, 116828};
+        for (int depth = 0; depth < expected.length; depth++) {
+            Assertions.assertEquals(expected[depth], Perft.perft(ChessGame.start(), depth), "Failed at depth " + depth);
+        }
+    }
+
+    @Test
+    public void testPerftPositions() {
+        long[] middleExpected = {1, 43, 1775, 77695};
+        for (int depth = 0; depth < middleExpected.length; depth++) {
+            Assertions.assertEquals(middleExpected[depth], Perft.perft(middleGame(), depth), "Failed at depth " + depth);
+        }
+
+        long[] endExpected = {1, 44, 162, 7288, 48064};
+        for (int depth = 0; depth < endExpected.length; depth++) {
+            Assertions.assertEquals(endExpected[depth], Perft.perft(endGame(), depth), "Failed at depth " + depth);
+        }
+    }
+
+    @Test
+    public void testPerftRestoresGame() {
+        var game = middleGame();
+        game.initPieceMoves();
+        var expected = game.deepCopy();
+
+        Perft.perft(game, 3);
+
+        Assertions.assertEquals(expected, game);
+        Assertions.assertEquals(expected.getBoard().getZobrist(), game.getBoard().getZobrist());
+    }
+
+    @Test
+    public void testDivide() {
+        var counts = Perft.divide(ChessGame.start(), 2);
+
+        Assertions.assertEquals(51, counts.size());
+        Assertions.assertEquals(Long.valueOf(42), counts.get(new Move(Hexagon.fromNotation("f5"), Hexagon.fromNotation("f6"))));
+        Assertions.assertEquals(2188L, counts.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    public void testParallelPerft() {
+        try (var pool = new ForkJoinPool(4)) {
+            Assertions.assertEquals(116828L, Perft.parallelPerft(ChessGame.start(), 3, pool));
+            Assertions.assertEquals(77695L, Perft.parallelPerft(middleGame(), 3, pool));
+            Assertions.assertEquals(Perft.perft(endGame(), 4), Perft.parallelPerft(endGame(), 4, pool));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static domain.ChessBoard.*;
+
+public class SearchTest {
+
+    @Test
+    public void testFindsMateInOne() {
+        var game = ChessGame.empty()
+            .setPiece("f1", WHITE_KING)
+            .setPiece("f3", BLACK_KING)
+            .setPiece("a1", BLACK_ROOK);
+        game.getBoard().setTurn(Turn.BLACK);
+
+        var result = new Search(new TranspositionTable(1 << 16)).findBestMove(game, Search.Limits.ofDepth(4));
+
+        Assertions.assertEquals(Search.MATE - 1, result.getScore());
+        game.makeMove(result.getMove());
+        game.initPieceMoves();
+        Assertions.assertTrue(game.isCheckmate());
+    }
+
+    @Test
+    public void testTakesHangingQueen() {
+        var game = ChessGame.empty()
+            .setPiece("b1", WHITE_KING)
+            .setPiece("f4", WHITE_ROOK)
+            .setPiece("f8", BLACK_QUEEN)
+            .setPiece("k1", BLACK_KING)
+            .setPiece("k2", BLACK_PAWN);
+
+        var result = new Search(new TranspositionTable(1 << 16)).findBestMove(game, Search.Limits.ofDepth(3));
+
+        Assertions.assertEquals(new Move(Hexagon.fromNotation("f4"), Hexagon.fromNotation("f8")), result.getMove());
+        // up a rook for a pawn, give or take where the pieces stand
+        Assertions.assertTrue(result.getScore() > Evaluation.PIECE_VALUES[WHITE_ROOK] - Evaluation.PIECE_VALUES[WHITE_PAWN] - 100);
+    }
+
+    @Test
+    public void testNodeBudget() {
+        var game = ChessGame.start();
+
+        var result = new Search(new TranspositionTable(1 << 16)).findBestMove(game, Search.Limits.ofNodes(5000));
+
+        // the budget is checked in batches, so the search may run over by at most one batch
+        Assertions.assertTrue(result.getNodes() >= 5000 && result.getNodes() < 5000 + 1024);
+        Assertions.assertNotNull(result.getMove());
+        game.initPieceMoves();
+        Assertions.assertTrue(game.isValidMove(result.getMove()));
+        Assertions.assertEquals(ChessGame.start().getBoard(), game.getBoard());
+    }
+
+    @Test
+    public void testLazySmp() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            var game = ChessGame.start();
+
+            var search = new Search(new TranspositionTable(1 << 18), 4, executor);
+            var result = search.findBestMove(game, Search.Limits.ofDepth(4));
+
+            Assertions.assertEquals(4, result.getDepth());
+            game.initPieceMoves();
+            Assertions.assertTrue(game.isValidMove(result.getMove()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testTableEntries() {
+        var table = new TranspositionTable(1000);
+        Assertions.assertEquals(1024, table.capacity());
+
+        var move = MoveList.encode(12, 40);
+        table.store(0x1234L, move, -Search.MATE + 3, 7, TranspositionTable.UPPER);
+
+        var entry = table.probe(0x1234L);
+        Assertions.assertEquals(move, TranspositionTable.moveOf(entry));
+        Assertions.assertEquals(-Search.MATE + 3, TranspositionTable.scoreOf(entry));
+        Assertions.assertEquals(7, TranspositionTable.depthOf(entry));
+        Assertions.assertEquals(TranspositionTable.UPPER, TranspositionTable.boundOf(entry));
+        // a different key in the same slot misses
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(0x1234L + 1024));
+    }
+
+    @Test
+    public void testTableCounters() {
+        var table = TranspositionTable.ofMegabytes(1);
+        Assertions.assertEquals((1 << 20) / TranspositionTable.ENTRY_BYTES, table.capacity());
+
+        var slots = table.capacity();
+        table.store(7L, MoveList.encode(1, 2), 10, 3, TranspositionTable.EXACT);
+        table.store(7L, MoveList.encode(1, 3), 20, 2, TranspositionTable.LOWER); // shallower bound, the deeper entry stays
+        Assertions.assertEquals(10, TranspositionTable.scoreOf(table.probe(7L)));
+
+        table.store(7L + slots, MoveList.encode(4, 5), 30, 1, TranspositionTable.EXACT); // another position in the same slot
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(7L));
+        Assertions.assertEquals(30, TranspositionTable.scoreOf(table.probe(7L + slots)));
+
+        Assertions.assertEquals(2, table.hits());
+        Assertions.assertEquals(1, table.misses());
+        Assertions.assertEquals(1, table.overwrites());
+
+        table.clear();
+        Assertions.assertEquals(TranspositionTable.MISS, table.probe(7L + slots));
+    }
+}
@@ -0,0 +1,138 @@
+package domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+import static domain.ChessBoard.*;
+
+public class TablebaseTest {
+
+    private static Tablebase generate(Path path, String material) throws IOException {
+        try (var executor = Executors.newFixedThreadPool(2)) {
+            return Tablebase.generate(path, material, List.of(), executor);
+        }
+    }
+
+    @Test
+    public void testSymmetriesKeepMoves() {
+        byte[] pieces = {WHITE_KNIGHT, WHITE_BISHOP, WHITE_ROOK, WHITE_QUEEN, WHITE_KING};
+        for (var transform : Tablebase.TRANSFORMS) {
+            Assertions.assertEquals(Hexagon.CELLS, Arrays.stream(transform).distinct().count());
+            for (var piece : pieces) {
+                for (int from = 0; from < Hexagon.CELLS; from++) {
+                    for (int to = 0; to < Hexagon.CELLS; to++) {
+                        Assertions.assertEquals(MoveTables.reaches(piece, from, to), MoveTables.reaches(piece, transform[from], transform[to]));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesOneMoveAhead() throws IOException {
+        var path = Files.createTempFile("krk", Tablebase.FILE_SUFFIX);
+        try (var table = generate(path, "KRvK")) {
+            var rand = new Random(1);
+            var checked = 0;
+            while (checked < 2000) {
+                // given
+                var board = new ChessBoard(rand.nextBoolean() ? Turn.WHITE : Turn.BLACK);
+                var used = new HashSet<Integer>();
+                for (var piece : new byte[]{WHITE_KING, WHITE_ROOK, BLACK_KING}) {
+                    int cell;
+                    do {
+                        cell = rand.nextInt(Hexagon.CELLS);
+                    } while (!used.add(cell));
+                    board.setPiece(cell, piece);
+                }
+                var game = new BitboardGame(board);
+                game.setTurn(board.turn().opposite());
+                if (game.isCheck()) {
+                    continue;
+                }
+                game.setTurn(board.turn());
+
+                // when
+                var score = table.probe(board);
+
+                // then
+                var moves = new MoveList();
+                game.findLegalMoves(moves);
+                var best = moves.isEmpty() ? (game.isCheck() ? -Search.MATE : 0) : Integer.MIN_VALUE;
+                for (int i = 0; i < moves.size(); i++) {
+                    var undo = game.makeMove(MoveList.fromOf(moves.get(i)), MoveList.toOf(moves.get(i)));
+                    var childScore = table.probe(game.toBoard());
+                    game.unmakeMove(undo);
+                    // taking the rook leaves bare kings, which no table has
+                    childScore = childScore == Tablebase.NOT_FOUND ? 0 : childScore;
+                    best = Math.max(best, childScore > 0 ? -childScore + 1 : childScore < 0 ? -childScore - 1 : 0);
+                }
+                Assertions.assertEquals(best, score, board.toString());
+                checked++;
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testProbeSwappedColors() throws IOException {
+        var path = Files.createTempFile("kqk", Tablebase.FILE_SUFFIX);
+        try (var table = generate(path, "KQvK")) {
+            var white = ChessGame.empty()
+                .setPiece("f1", WHITE_KING)
+                .setPiece("f3", BLACK_KING)
+                .setPiece("a1", WHITE_QUEEN)
+                .getBoard();
+            var black = ChessGame.empty()
+                .setPiece("f11", BLACK_KING)
+                .setPiece("f9", WHITE_KING)
+                .setPiece("a6", BLACK_QUEEN)
+                .getBoard();
+            black.setTurn(Turn.BLACK);
+
+            Assertions.assertTrue(table.probe(white) > Search.MATE - 64);
+            Assertions.assertEquals(table.probe(white), table.probe(black));
+            Assertions.assertEquals(Tablebase.NOT_FOUND, table.probe(ChessBoard.initial()));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testSearchReadsTable() throws IOException {
+        var path = Files.createTempFile("kqk", Tablebase.FILE_SUFFIX);
+        try {
+            generate(path, "KQvK").close();
+            try (var table = Tablebase.open(path)) {
+                var game = ChessGame.empty()
+                    .setPiece("f1", WHITE_KING)
+                    .setPiece("f6", BLACK_KING)
+                    .setPiece("c1", WHITE_QUEEN);
+                var search = new Search(new TranspositionTable(1 << 16), 1, null, List.of(table));
+
+                var score = table.probe(game.getBoard());
+                var result = search.findBestMove(game, Search.Limits.ofDepth(1));
+
+                Assertions.assertEquals("KQvK", table.getMaterial());
+                Assertions.assertEquals(score, result.getScore());
+                game.initPieceMoves();
+                Assertions.assertTrue(game.isValidMove(result.getMove()));
+                game.makeMove(result.getMove());
+                // the side that is winning gets one ply closer to mate with every move
+                Assertions.assertEquals(-(score + 1), table.probe(game.getBoard()));
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
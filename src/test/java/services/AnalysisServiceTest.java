@@ -0,0 +1,76 @@
+package services;
+
+import domain.GameAnalysis;
+import domain.Hexagon;
+import domain.Move;
+import domain.Search;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import models.GameState;
+import models.HistoryEntity;
+import org.junit.jupiter.api.*;
+import utils.Config;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AnalysisServiceTest {
+
+    public EmbeddedPostgres pg;
+    private DataSource ds;
+    private UserDao userDao;
+    private HistoryDao historyDao;
+    private AnalysisDao analysisDao;
+
+    @BeforeAll
+    public void beforeAll() throws IOException {
+        pg = EmbeddedPostgres.builder().start();
+        ds = pg.getPostgresDatabase();
+
+        userDao = new UserDao(ds);
+        historyDao = new HistoryDao(ds, Duration.ZERO); // the histories are read as soon as they are inserted
+        analysisDao = new AnalysisDao(ds);
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        Config.createSchema(ds);
+    }
+
+    @Test
+    public void testAnalyzeFromCheckpoint() {
+        // given
+        HistoryDaoTest.createTestUserData(userDao);
+        historyDao.insert("id1", "id2", HistoryEntity.WHITE_WIN, 30, -30, GameState.applyRandomSequence(10));
+        historyDao.insert("id2", "id3", HistoryEntity.BLACK_WIN, 30, -30, GameState.applyRandomSequence(10));
+        historyDao.insert("id3", "id1", HistoryEntity.DRAW, 30, -30, List.of(new Move(Hexagon.of(0, 0), Hexagon.OFF_BOARD))); // can't be replayed
+
+        var analysisService = new AnalysisService(historyDao, analysisDao, 2, 2, 1, Search.Limits.ofDepth(2));
+
+        // when
+        var processed = analysisService.runOnce();
+
+        // then
+        Assertions.assertEquals(3, processed);
+        Assertions.assertEquals(3, analysisDao.getCheckpoint().getId());
+
+        var analyses = analysisDao.getAnalyses(1);
+        Assertions.assertEquals(10, analyses.size());
+        for (int i = 0; i < analyses.size(); i++) {
+            var analysis = analyses.get(i);
+            Assertions.assertEquals(i, analysis.getPly());
+            Assertions.assertTrue(analysis.getLoss() >= 0);
+            Assertions.assertEquals(GameAnalysis.classify(analysis.getLoss()), analysis.getClassification());
+        }
+        Assertions.assertEquals(10, analysisDao.getAnalyses(2).size());
+        Assertions.assertTrue(analysisDao.getAnalyses(3).isEmpty());
+
+        // a second pass starts from the checkpoint and finds nothing left to do
+        historyDao.insert("id1", "id3", HistoryEntity.WHITE_WIN, 30, -30, GameState.applyRandomSequence(10));
+        Assertions.assertEquals(1, analysisService.runOnce());
+        Assertions.assertEquals(4, analysisDao.getCheckpoint().getId());
+        Assertions.assertEquals(0, analysisService.runOnce());
+    }
+}
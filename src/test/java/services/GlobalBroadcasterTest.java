@@ -5,6 +5,7 @@ import org.junit.jupiter.api.*;
 import redis.clients.jedis.JedisPooled;
 import redis.embedded.RedisServer;
 
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 
 import static org.mockito.Mockito.*;
@@ -69,4 +70,83 @@ public class GlobalBroadcasterTest {
         verify(mockWs2, times(0)).send("Test content 2");
         verify(mockWs3).send("Test content 2");
     }
+
+    @Test
+    public void testBroadcastBinary() throws InterruptedException, ExecutionException {
+        // given
+        var broadcastService1 = new GlobalBroadcaster(jedis);
+        var broadcastService2 = new GlobalBroadcaster(jedis);
+
+        var mockWs1 = mock(WebSocket.class);
+        var mockWs2 = mock(WebSocket.class);
+
+        var subscriber1 = broadcastService1.startListenSubscribe();
+        var subscriber2 = broadcastService2.startListenSubscribe();
+
+        // when
+        broadcastService1.subscribe("id:binary", mockWs1);
+        broadcastService2.subscribe("id:binary", mockWs2);
+
+        var content = new byte[]{3, 0x1e, 0, (byte) 0xFF}; // the split byte may appear in the frame itself
+        broadcastService2.broadcast("id:binary", content);
+
+        Thread.sleep(500);
+        subscriber1.unsubscribe();
+        subscriber2.unsubscribe();
+
+        // then
+        verify(mockWs1).sendBinary(content);
+        verify(mockWs2).sendBinary(content);
+        verify(mockWs1, times(0)).send(anyString());
+    }
+
+    @Test
+    public void testSubscribedIds() {
+        // given
+        var broadcastService1 = new GlobalBroadcaster(jedis);
+        var broadcastService2 = new GlobalBroadcaster(jedis);
+
+        var mockWs1 = mock(WebSocket.class);
+        var mockWs2 = mock(WebSocket.class);
+        var mockWs3 = mock(WebSocket.class);
+
+        // when
+        broadcastService1.subscribe("id:binary", mockWs1);
+        broadcastService2.subscribe("id:binary", mockWs2);
+        broadcastService1.subscribe("id:delta", mockWs1);
+        broadcastService1.unsubscribe("id:delta", mockWs1);
+        broadcastService1.unsubscribe("id:binary", mockWs1);
+        // a socket that closes before it subscribed doesn't take another socket's count
+        var removed = broadcastService1.unsubscribe("id:binary", mockWs3);
+
+        // then
+        Assertions.assertFalse(removed);
+        Assertions.assertEquals(List.of("id:binary"), broadcastService1.subscribedIds("id:delta", "id:binary"));
+        Assertions.assertEquals(List.of("id:binary"), broadcastService2.subscribedIds("id:delta", "id:binary"));
+
+        broadcastService2.unsubscribe("id:binary", mockWs2);
+        Assertions.assertEquals(List.of(), broadcastService1.subscribedIds("id:delta", "id:binary"));
+    }
+
+    @Test
+    public void testSubscriberCountsExpire() {
+        // given
+        var broadcastService1 = new GlobalBroadcaster(jedis);
+        var broadcastService2 = new GlobalBroadcaster(jedis);
+
+        broadcastService1.subscribe("id:binary", mock(WebSocket.class));
+        broadcastService2.subscribe("id:delta", mock(WebSocket.class));
+
+        // when
+        for (var key : jedis.keys("ws-subscribers:*")) {
+            Assertions.assertTrue(jedis.pttl(key) > 0);
+            jedis.del(key); // as if both nodes had died and their counts expired
+        }
+        var afterExpiry = broadcastService1.subscribedIds("id:delta", "id:binary");
+        broadcastService2.heartbeat(); // a node that is still alive writes its counts back from its sockets
+
+        // then
+        Assertions.assertEquals(List.of(), afterExpiry);
+        Assertions.assertEquals(List.of("id:delta"), broadcastService1.subscribedIds("id:delta", "id:binary"));
+    }
 }
@@ -1,12 +1,17 @@
 package services;
 
+import domain.Move;
 import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
 import models.HistoryEntity;
+import org.apache.commons.dbutils.QueryRunner;
 import org.junit.jupiter.api.*;
 import utils.Config;
+import utils.MoveHistoryFormat;
 
 import javax.sql.DataSource;
 import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.List;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -43,11 +48,12 @@ public class HistoryDaoTest {
     public void testInsertThenGet() {
         // given
         createTestUserData(userDao);
+        var moves = List.of(Move.fromNotation("f5-f6"), Move.fromNotation("f7-f6"));
 
         // when
-        historyDao.insert("id1", "id2", HistoryEntity.WHITE_WIN, 30, -30, "{}");
-        historyDao.insert("id2", "id3", HistoryEntity.BLACK_WIN, 30, -30, "{}");
-        historyDao.insert("id3", "id1", HistoryEntity.DRAW, 30, -30, "{}");
+        historyDao.insert("id1", "id2", HistoryEntity.WHITE_WIN, 30, -30, moves);
+        historyDao.insert("id2", "id3", HistoryEntity.BLACK_WIN, 30, -30, List.of());
+        historyDao.insert("id3", "id1", HistoryEntity.DRAW, 30, -30, List.of());
 
         var actualHistory1 = historyDao.getHistory(1);
         var actualHistory2 = historyDao.getHistory(2);
@@ -55,15 +61,17 @@ public class HistoryDaoTest {
 
         // then
         var expectedHistory1 = new HistoryEntity(1, "id1", "id2", "user1", "user2",
-            "us", "us", "{}", HistoryEntity.WHITE_WIN, 30, -30, null);
+            "us", "us", MoveHistoryFormat.encode(moves), HistoryEntity.WHITE_WIN, 30, -30, null);
         var expectedHistory2 = new HistoryEntity(2, "id2", "id3", "user2", "user3",
-            "us", "us", "{}", HistoryEntity.BLACK_WIN, 30, -30, null);
+            "us", "us", new byte[0], HistoryEntity.BLACK_WIN, 30, -30, null);
         var expectedHistory3 = new HistoryEntity(3, "id3", "id1", "user3", "user1",
-            "us", "us", "{}", HistoryEntity.DRAW, 30, -30, null);
+            "us", "us", new byte[0], HistoryEntity.DRAW, 30, -30, null);
 
         Assertions.assertEquals(expectedHistory1, actualHistory1);
         Assertions.assertEquals(expectedHistory2, actualHistory2);
         Assertions.assertEquals(expectedHistory3, actualHistory3);
+        Assertions.assertEquals(moves, actualHistory1.getMoveList());
+        Assertions.assertEquals(4, actualHistory1.getData().length); // two bytes a ply
     }
 
     @Test
@@ -72,9 +80,9 @@ public class HistoryDaoTest {
         createTestUserData(userDao);
 
         // when
-        historyDao.insert("id1", "id2", HistoryEntity.WHITE_WIN, 30, -30, "{}");
-        historyDao.insert("id2", "id3", HistoryEntity.BLACK_WIN, 30, -30, "{}");
-        historyDao.insert("id3", "id1", HistoryEntity.DRAW, 30, -30, "{}");
+        historyDao.insert("id1", "id2", HistoryEntity.WHITE_WIN, 30, -30, List.of());
+        historyDao.insert("id2", "id3", HistoryEntity.BLACK_WIN, 30, -30, List.of());
+        historyDao.insert("id3", "id1", HistoryEntity.DRAW, 30, -30, List.of());
 
         var actualHistoryList1 = historyDao.getUserHistories("id1", null, 5);
         var actualHistoryList2 = historyDao.getUserHistories("id1", 3L, 5);
@@ -92,4 +100,26 @@ public class HistoryDaoTest {
         Assertions.assertEquals(expectedHistoryList1, actualHistoryList1);
         Assertions.assertEquals(expectedHistoryList2, actualHistoryList2);
     }
+
+    @Test
+    public void testGetHistoriesAfterCursor() throws SQLException {
+        // given
+        createTestUserData(userDao);
+        historyDao.insert("id1", "id2", HistoryEntity.WHITE_WIN, 30, -30, List.of());
+        historyDao.insert("id2", "id3", HistoryEntity.BLACK_WIN, 30, -30, List.of());
+        historyDao.insert("id3", "id1", HistoryEntity.DRAW, 30, -30, List.of());
+        // the first insert started last, so it committed after the others even though its id came first
+        new QueryRunner(ds).update("UPDATE game_histories SET playedOn = playedOn + INTERVAL '1 second' WHERE id = 1");
+        var noLagDao = new HistoryDao(ds, Duration.ZERO);
+
+        // when
+        var page1 = noLagDao.getHistoriesAfter(HistoryDao.Cursor.start(), 2);
+        var page2 = noLagDao.getHistoriesAfter(HistoryDao.Cursor.of(page1.getLast()), 2);
+        var tooRecent = historyDao.getHistoriesAfter(HistoryDao.Cursor.start(), 2); // inside the default commit lag
+
+        // then
+        Assertions.assertEquals(List.of(2L, 3L), page1.stream().map(HistoryEntity::getId).toList());
+        Assertions.assertEquals(List.of(1L), page2.stream().map(HistoryEntity::getId).toList());
+        Assertions.assertTrue(tooRecent.isEmpty());
+    }
 }
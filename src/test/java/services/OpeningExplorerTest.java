@@ -0,0 +1,117 @@
+package services;
+
+import domain.Hexagon;
+import domain.Move;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import models.HistoryEntity;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import utils.Config;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class OpeningExplorerTest {
+
+    public EmbeddedPostgres pg;
+    private DataSource ds;
+    private UserDao userDao;
+    private HistoryDao historyDao;
+
+    @TempDir
+    public Path tempDir;
+
+    @BeforeAll
+    public void beforeAll() throws IOException {
+        pg = EmbeddedPostgres.builder().start();
+        ds = pg.getPostgresDatabase();
+
+        userDao = new UserDao(ds);
+        historyDao = new HistoryDao(ds, Duration.ZERO); // the histories are read as soon as they are inserted
+    }
+
+    @BeforeEach
+    public void beforeEach() {
+        Config.createSchema(ds);
+    }
+
+    private static List<Move> toMoves(String... notations) {
+        return List.of(notations).stream().map(Move::fromNotation).toList();
+    }
+
+    @Test
+    public void testExplore() throws IOException {
+        // given
+        HistoryDaoTest.createTestUserData(userDao);
+        historyDao.insert("id1", "id2", HistoryEntity.WHITE_WIN, 30, -30, toMoves("f5-f6", "f7-f6", "e4-e5"));
+        historyDao.insert("id2", "id3", HistoryEntity.BLACK_WIN, 30, -30, toMoves("f5-f6", "f7-f6", "g4-g5"));
+        historyDao.insert("id3", "id1", HistoryEntity.DRAW, 30, -30, toMoves("f5-f6", "e7-e6"));
+        historyDao.insert("id1", "id3", HistoryEntity.WHITE_WIN, 30, -30, toMoves("e4-e5"));
+
+        var path = tempDir.resolve("openings.bin");
+        try (var explorer = new OpeningExplorer(path, 2)) {
+            // when
+            var added = explorer.catchUp(historyDao);
+            var root = explorer.explore(List.of());
+            var afterF6 = explorer.explore(List.of(Move.fromNotation("f5-f6")));
+
+            // then
+            Assertions.assertEquals(4, added);
+            Assertions.assertEquals(4, explorer.getCursor().getId());
+
+            Assertions.assertEquals(new OpeningExplorer.Position(2, 1, 1, List.of(
+                new OpeningExplorer.Continuation("f5-f6", 1, 1, 1),
+                new OpeningExplorer.Continuation("e4-e5", 1, 0, 0))), root);
+            Assertions.assertEquals(new OpeningExplorer.Position(1, 1, 1, List.of(
+                new OpeningExplorer.Continuation("f7-f6", 1, 1, 0),
+                new OpeningExplorer.Continuation("e7-e6", 0, 0, 1))), afterF6);
+
+            // plies past the limit aren't in the trie
+            var afterF6F6 = explorer.explore(List.of(Move.fromNotation("f5-f6"), Move.fromNotation("f7-f6")));
+            Assertions.assertTrue(afterF6F6.getContinuations().isEmpty());
+            Assertions.assertNull(explorer.explore(List.of(Move.fromNotation("a1-a2"))));
+        }
+
+        // the trie is read back from the file, and a catch up only adds the histories it hasn't seen
+        historyDao.insert("id2", "id1", HistoryEntity.BLACK_WIN, 30, -30, toMoves("e4-e5"));
+        try (var explorer = new OpeningExplorer(path, 2)) {
+            Assertions.assertEquals(4, explorer.getCursor().getId());
+            Assertions.assertEquals(1, explorer.catchUp(historyDao));
+            Assertions.assertEquals(0, explorer.catchUp(historyDao));
+
+            var afterE5 = explorer.explore(List.of(Move.fromNotation("e4-e5")));
+            Assertions.assertEquals(1, afterE5.getWhite());
+            Assertions.assertEquals(1, afterE5.getBlack());
+        }
+    }
+
+    @Test
+    public void testGrowsFile() throws IOException {
+        // given
+        HistoryDaoTest.createTestUserData(userDao);
+        // the trie doesn't check the moves are legal, so random cells give games that almost never share a prefix
+        var rand = new Random(1);
+        for (int i = 0; i < 500; i++) {
+            List<Move> moves = new ArrayList<>();
+            for (int j = 0; j < 10; j++) {
+                moves.add(new Move(Hexagon.ofIndex(rand.nextInt(Hexagon.CELLS)), Hexagon.ofIndex(rand.nextInt(Hexagon.CELLS))));
+            }
+            historyDao.insert("id1", "id2", HistoryEntity.DRAW, 30, -30, moves);
+        }
+
+        try (var explorer = new OpeningExplorer(tempDir.resolve("grow.bin"), 10)) {
+            // when
+            explorer.catchUp(historyDao);
+
+            // then
+            Assertions.assertTrue(explorer.getNodeCount() > 4096);
+            Assertions.assertEquals(500, explorer.explore(List.of()).getDraws());
+        }
+    }
+}
@@ -90,6 +90,53 @@ public class RemoteDictTest {
         Assertions.assertNull(scanResult2.getNextCursor());
     }
 
+    @Test
+    public void testGameExpiry() throws InterruptedException {
+        // given
+        remoteDict.setGame("old-id", GameState.startWithGame("old-id"));
+        Thread.sleep(50);
+        remoteDict.setGame("new-id", GameState.startWithGame("new-id"));
+
+        // when
+        var expired = remoteDict.expireGames(25);
+
+        // then
+        Assertions.assertEquals(1, expired);
+        Assertions.assertNull(remoteDict.getGame("old-id"));
+        Assertions.assertNotNull(remoteDict.getGame("new-id"));
+        Assertions.assertEquals(1, remoteDict.getGames(null, 10).getGameStates().size());
+        Assertions.assertTrue(jedis.pttl("game:new-id") > 0); // the native ttl backstop
+    }
+
+    @Test
+    public void testLegacyScoresAreRescored() {
+        // given
+        remoteDict.setGame("legacy-id", GameState.startWithGame("legacy-id"));
+        jedis.zadd("games", 1e18, "game:legacy-id"); // a System.nanoTime score
+
+        // when
+        var expired = remoteDict.expireGames(0);
+
+        // then
+        Assertions.assertEquals(1, expired);
+        Assertions.assertNull(remoteDict.getGame("legacy-id"));
+    }
+
+    @Test
+    public void testSweepLease() {
+        // given
+        var sweeper1 = new GameSweeper(remoteDict);
+        var sweeper2 = new GameSweeper(remoteDict);
+
+        // when
+        var swept1 = sweeper1.sweepOnce(60_000);
+        var swept2 = sweeper2.sweepOnce(60_000);
+
+        // then
+        Assertions.assertEquals(0, swept1);
+        Assertions.assertEquals(-1, swept2);
+    }
+
     @Test
     public void testSessions() throws InterruptedException {
         // given
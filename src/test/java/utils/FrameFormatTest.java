@@ -0,0 +1,65 @@
+package utils;
+
+import domain.Hexagon;
+import domain.Move;
+import models.GameState;
+import models.Player;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+
+import static domain.ChessBoard.*;
+
+public class FrameFormatTest {
+
+    @Test
+    public void testErrorFrame() {
+        var frame = FrameFormat.encode(0, "No", null, null, null, null);
+
+        Assertions.assertEquals("000100024e6f", HexFormat.of().formatHex(frame));
+    }
+
+    @Test
+    public void testMoveFrame() {
+        // given
+        var state = GameState.startWithGame("g");
+        state.setWhitePlayer(new Player("w", "W"));
+        var game = state.getGame();
+        var move = new Move(Hexagon.fromNotation("f5"), Hexagon.fromNotation("f6"));
+        game.makeMove(move);
+        game.initPieceMoves();
+        state.pushMoveHistory(move);
+
+        // when
+        var frame = FrameFormat.encode(3, null, null, move, state.getVersion(), state);
+
+        // then
+        Assertions.assertEquals(3, frame[0]);
+        Assertions.assertEquals(FrameFormat.MOVE | FrameFormat.VERSION | FrameFormat.GAME_STATE, frame[1]);
+        Assertions.assertEquals(move.getFrom().index(), frame[2]);
+        Assertions.assertEquals(move.getTo().index(), frame[3]);
+        Assertions.assertEquals(1, frame[5]);
+        Assertions.assertEquals(FrameFormat.HAS_WHITE | FrameFormat.HAS_GAME | FrameFormat.HAS_MOVES, frame[6]);
+
+        var boardStart = 6 + 1 + 3 + 6; // the state flags, the id and the white player
+        Assertions.assertEquals(Turn.BLACK.toInt(), frame[boardStart]);
+        for (int i = 0; i < Hexagon.CELLS; i++) {
+            Assertions.assertEquals(game.getBoard().getPiece(i), frame[boardStart + 1 + i]);
+        }
+
+        // every move is two bytes or less, one for its target and its share of the source's index and count
+        var movesSize = frame.length - (boardStart + 1 + Hexagon.CELLS);
+        var moveCount = game.getWhiteMoveList().size() + game.getBlackMoveList().size();
+        var sourceCount = game.getWhiteMoveList().sourcesSize() + game.getBlackMoveList().sourcesSize();
+        Assertions.assertEquals(2 + moveCount + sourceCount * 2, movesSize);
+    }
+
+    @Test
+    public void testStateWithoutGame() {
+        var frame = FrameFormat.encode(5, null, null, null, 0, GameState.ofPlayers(null, Player.computer()));
+
+        Assertions.assertEquals(FrameFormat.HAS_BLACK, frame[4]);
+        Assertions.assertEquals(4 + 1 + 2 + 2 + 8 + 2 + 8, frame.length);
+    }
+}
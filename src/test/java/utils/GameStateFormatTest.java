@@ -0,0 +1,102 @@
+package utils;
+
+import com.esotericsoftware.kryo.io.Input;
+import domain.Hexagon;
+import domain.Move;
+import models.GameState;
+import models.Player;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import static domain.ChessBoard.*;
+
+public class GameStateFormatTest {
+
+    // a version 1 game written by f5-f6 from the start, with a white player, kept here so a change to the format can't go unnoticed
+    private static final String VERSION_1 = "485801ee67b1827757686974e53ff800000000000001000000000000010000000000020701000000" +
+        "0002080300010000000200040900000100000200000a05050500000102000606060b00000100000200000c030001000000020004070100" +
+        "00000002080100000000000200000000000001ad2e";
+
+    private static GameState versionOneState() {
+        var state = GameState.startWithGame("g1");
+        state.setWhitePlayer(new Player("w", "White"));
+        state.setIsFirstPlayerWhite(true);
+        state.setTouch(1.5);
+        var move = new Move(Hexagon.fromNotation("f5"), Hexagon.fromNotation("f6"));
+        state.getGame().initPieceMoves();
+        state.getGame().makeMove(move);
+        state.getGame().initPieceMoves();
+        state.pushMoveHistory(move);
+        return state;
+    }
+
+    @Test
+    public void testReadsVersionOne() {
+        // given
+        var bytes = HexFormat.of().parseHex(VERSION_1);
+
+        // when
+        var state = GameStateFormat.deserialize(bytes);
+
+        // then
+        Assertions.assertEquals(versionOneState(), state);
+        Assertions.assertEquals("White", state.getWhitePlayer().getName());
+        Assertions.assertEquals(WHITE_PAWN, state.getGame().getBoard().getPiece("f6"));
+        Assertions.assertEquals(Turn.BLACK, state.getGame().getBoard().turn());
+        Assertions.assertEquals(List.of(new Move(Hexagon.fromNotation("f5"), Hexagon.fromNotation("f6"))), state.getMoveList());
+        Assertions.assertArrayEquals(bytes, GameStateFormat.serialize(versionOneState()));
+    }
+
+    @Test
+    public void testSkipsFieldsFromNewerVersions() {
+        // given
+        var bytes = GameStateFormat.serialize(versionOneState());
+        var newer = Arrays.copyOf(bytes, bytes.length + 3);
+        newer[GameStateFormat.MAGIC.length] = GameStateFormat.VERSION + 1;
+        newer[bytes.length] = 42; // fields a later version appended
+
+        // when
+        var state = GameStateFormat.deserialize(newer);
+
+        // then
+        Assertions.assertEquals(versionOneState(), state);
+    }
+
+    @Test
+    public void testOptionalFields() {
+        // given
+        var state = GameState.ofPlayers(null, Player.computer());
+
+        // when
+        var afterState = GameStateFormat.deserialize(GameStateFormat.serialize(state));
+
+        // then
+        Assertions.assertEquals(state, afterState);
+        Assertions.assertNull(afterState.getGame());
+        Assertions.assertNull(afterState.getMoveList());
+        Assertions.assertNull(afterState.getWhitePlayer());
+        Assertions.assertTrue(afterState.getBlackPlayer().isComputer());
+    }
+
+    @Test
+    public void testRejectsUnknownVersion() {
+        var bytes = GameStateFormat.serialize(versionOneState());
+        bytes[GameStateFormat.MAGIC.length] = 0;
+
+        Assertions.assertThrows(IllegalStateException.class, () -> GameStateFormat.deserialize(bytes));
+    }
+
+    @Test
+    public void testIgnoresLegacyKryoBlob() {
+        // a game with a black player as the kryo format wrote it, it starts with kryo's not null marker which reads as version 1
+        var legacy = HexFormat.of().parseHex("0101006d6f64656c732e506c617965f20101826201426c6163eb000181000000000000000000000000");
+
+        Assertions.assertNull(GameStateFormat.deserialize(legacy));
+        Assertions.assertNull(GameStateFormat.deserialize(new byte[0]));
+        Assertions.assertThrows(IllegalStateException.class, () -> GameStateFormat.read(new Input(legacy)));
+    }
+}
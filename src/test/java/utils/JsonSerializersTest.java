@@ -0,0 +1,65 @@
+package utils;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import domain.ChessGame;
+import domain.Hexagon;
+import domain.MoveDelta;
+import domain.PieceMoves;
+import models.GameState;
+import models.Player;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static utils.Globals.JSON_MAPPER;
+
+public class JsonSerializersTest {
+
+    // the mapper before the hand-written serializers, whose output they must match
+    private static final ObjectMapper REFLECTIVE_MAPPER = new ObjectMapper()
+        .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+        .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+
+    private static void assertSameJson(Object value) throws Exception {
+        Assertions.assertEquals(REFLECTIVE_MAPPER.writeValueAsString(value), JSON_MAPPER.writeValueAsString(value));
+    }
+
+    @Test
+    public void testGameStateMatchesReflective() throws Exception {
+        var state = GameState.startWithGame("g1");
+        state.setWhitePlayer(new Player("w", "\"White\""));
+        state.setBlackPlayer(Player.computer());
+        var game = state.getGame();
+        game.initPieceMoves();
+        for (var move : GameState.applyRandomSequence(30)) {
+            game.makeMove(move);
+            game.initPieceMoves();
+            state.pushMoveHistory(move);
+            assertSameJson(state);
+        }
+        assertSameJson(state.getMoveList());
+    }
+
+    @Test
+    public void testPartialStatesMatchReflective() throws Exception {
+        assertSameJson(GameState.ofPlayers(null, Player.computer()));
+        assertSameJson(new GameState("g1", new ChessGame(), null, null, true, null, 0, null));
+        assertSameJson(new GameState("g1", ChessGame.start(), null, null, false, null, 0, null));
+        assertSameJson(new PieceMoves(Hexagon.fromNotation("f5"), List.of(Hexagon.fromNotation("f6"), Hexagon.OFF_BOARD)));
+        assertSameJson(new MoveDelta(new int[]{1, 2}, new int[0]));
+    }
+
+    @Test
+    public void testPendingMovesAreWritten() throws Exception {
+        var game = ChessGame.start();
+        game.initPieceMoves();
+        var expected = JSON_MAPPER.writeValueAsString(game);
+
+        var pending = ChessGame.withPendingMoves(ChessGame.start().getBoard());
+
+        Assertions.assertEquals(expected, JSON_MAPPER.writeValueAsString(pending));
+    }
+}
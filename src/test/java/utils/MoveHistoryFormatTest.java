@@ -0,0 +1,42 @@
+package utils;
+
+import domain.Hexagon;
+import domain.Move;
+import models.GameState;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+import java.util.List;
+
+public class MoveHistoryFormatTest {
+
+    @Test
+    public void testRoundTrip() {
+        // given
+        var moves = GameState.applyRandomSequence(40);
+
+        // when
+        var bytes = MoveHistoryFormat.encode(moves);
+
+        // then
+        Assertions.assertEquals(80, bytes.length);
+        Assertions.assertEquals(moves, MoveHistoryFormat.decode(bytes));
+    }
+
+    @Test
+    public void testEncoding() {
+        var moves = List.of(Move.fromNotation("f5-f6"), new Move(Hexagon.ofIndex(0), Hexagon.OFF_BOARD));
+
+        var bytes = MoveHistoryFormat.encode(moves);
+
+        Assertions.assertEquals("2c2d00ff", HexFormat.of().formatHex(bytes));
+        Assertions.assertEquals(moves, MoveHistoryFormat.decode(bytes));
+    }
+
+    @Test
+    public void testRejectsCorruptHistory() {
+        Assertions.assertThrows(IllegalStateException.class, () -> MoveHistoryFormat.decode(new byte[]{1}));
+        Assertions.assertThrows(IllegalStateException.class, () -> MoveHistoryFormat.decode(new byte[]{1, 91}));
+    }
+}
@@ -2,12 +2,19 @@ package utils;
 
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
+import domain.Hexagon;
+import domain.Move;
 import models.GameState;
+import models.Player;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class SerializerTest {
 
@@ -19,18 +26,131 @@ public class SerializerTest {
         // when
         var rawBytesOut = new ByteArrayOutputStream();
         try (var output = new Output(rawBytesOut)) {
-            var kryo = Serializer.get();
-            kryo.writeObject(output, match);
+            Serializer.run((kryo) -> {
+                kryo.writeObject(output, match);
+                return null;
+            });
         }
 
         GameState afterGameState;
         var rawBytesIn = new ByteArrayInputStream(rawBytesOut.toByteArray());
         try (var input = new Input(rawBytesIn)) {
-            var kryo = Serializer.get();
-            afterGameState = kryo.readObject(input, GameState.class);
+            afterGameState = Serializer.run((kryo) -> kryo.readObject(input, GameState.class));
         }
 
         // then
         Assertions.assertEquals(match, afterGameState);
     }
+
+    @Test
+    public void testRoundTripWithMoves() {
+        // given
+        var match = GameState.startWithGame("1");
+        match.getGame().initPieceMoves();
+
+        // when
+        var afterGameState = Serializer.deserialize(Serializer.serialize(match), GameState.class);
+
+        // then
+        Assertions.assertEquals(match, afterGameState);
+        Assertions.assertEquals(match.getGame().getWhiteMoves(), afterGameState.getGame().getWhiteMoves());
+        Assertions.assertEquals(match.getGame().getBoard().getZobrist(), afterGameState.getGame().getBoard().getZobrist());
+        Assertions.assertTrue(afterGameState.getGame().isValidMove(new Move(Hexagon.fromNotation("f5"), Hexagon.fromNotation("f6"))));
+    }
+
+    @Test
+    public void testRoundTripWithHistory() {
+        // given
+        var match = GameState.startWithGame("1");
+        match.setWhitePlayer(new Player("white-id", "White"));
+        match.setBlackPlayer(Player.computer());
+        match.setIsFirstPlayerWhite(false);
+        match.setTouch(12345.0);
+        var game = match.getGame();
+        game.initPieceMoves();
+        for (var move : GameState.applyRandomSequence(10)) {
+            game.makeMove(move);
+            game.initPieceMoves();
+            match.pushMoveHistory(move);
+        }
+        match.setEnded(true);
+
+        // when
+        var bytes = Serializer.serialize(match);
+        var afterGameState = Serializer.deserialize(bytes, GameState.class);
+
+        // then
+        Assertions.assertEquals(match, afterGameState);
+        Assertions.assertEquals("White", afterGameState.getWhitePlayer().getName());
+        Assertions.assertEquals(12345.0, afterGameState.getTouch());
+        Assertions.assertEquals(match.getMoveList(), afterGameState.getMoveList());
+        Assertions.assertEquals(match.getGame().getBlackMoves(), afterGameState.getGame().getBlackMoves());
+        // the board, players and history, but not the move lists derived from the board
+        Assertions.assertTrue(bytes.length < 160);
+    }
+
+    @Test
+    public void testRoundTripWithoutMoves() {
+        // given
+        var match = GameState.startWithGame("1");
+
+        // when
+        var afterGameState = Serializer.deserialize(Serializer.serialize(match), GameState.class);
+
+        // then
+        Assertions.assertNull(afterGameState.getGame().getWhiteMoveList());
+        Assertions.assertNull(afterGameState.getIsFirstPlayerWhite());
+        Assertions.assertNull(afterGameState.getWhitePlayer());
+        Assertions.assertTrue(afterGameState.getMoveList().isEmpty());
+    }
+
+    @Test
+    public void testPooledOnVirtualThreads() throws Exception {
+        // given
+        var match = GameState.startWithGame("1");
+        match.getGame().initPieceMoves();
+        var expected = Serializer.serialize(match);
+
+        // when
+        List<Future<byte[]>> futures = new ArrayList<>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 200; i++) {
+                futures.add(executor.submit(() -> Serializer.serialize(Serializer.deserialize(expected, GameState.class))));
+            }
+        }
+
+        // then
+        for (var future : futures) {
+            Assertions.assertArrayEquals(expected, future.get());
+        }
+    }
+
+    @Test
+    public void testSerializeIntoOutput() {
+        // given
+        var match = GameState.startWithGame("1");
+        var output = Serializer.borrowOutput();
+
+        // when
+        Serializer.serialize(match, output);
+        var afterGameState = Serializer.deserialize(output.toBytes(), GameState.class);
+        Serializer.releaseOutput(output);
+
+        // then
+        Assertions.assertEquals(match, afterGameState);
+        Assertions.assertArrayEquals(Serializer.serialize(match), Serializer.serialize(afterGameState));
+    }
+
+    @Test
+    public void testHexagonsInterned() {
+        // given
+        var move = new Move(Hexagon.fromNotation("f5"), Hexagon.fromNotation("f6"));
+
+        // when
+        var afterMove = Serializer.deserialize(Serializer.serialize(move), Move.class);
+
+        // then
+        Assertions.assertSame(move.getFrom(), afterMove.getFrom());
+        Assertions.assertSame(move.getTo(), afterMove.getTo());
+    }
 }
@@ -0,0 +1,48 @@
+package web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import domain.Hexagon;
+import domain.Move;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static utils.Globals.JSON_MAPPER;
+
+public class InputMsgTest {
+
+    private static WsRouter.InputMsg read(String json) throws JsonProcessingException {
+        return JSON_MAPPER.readValue(json, WsRouter.InputMsg.class);
+    }
+
+    @Test
+    public void testReadMove() throws JsonProcessingException {
+        var msg = read("{\"move\":{\"to\":{\"rank\":5,\"file\":5},\"from\":{\"file\":5,\"rank\":4}},\"type\":1}");
+
+        var expected = new WsRouter.InputMsg(WsRouter.InputMsg.MOVE, new Move(Hexagon.fromNotation("f5"), Hexagon.fromNotation("f6")));
+        Assertions.assertEquals(expected, msg);
+    }
+
+    @Test
+    public void testSkipsUnknownFields() throws JsonProcessingException {
+        var msg = read("{\"extra\":{\"type\":1,\"move\":[1]},\"type\":2,\"move\":null}");
+
+        Assertions.assertEquals(new WsRouter.InputMsg(WsRouter.InputMsg.RESYNC, null), msg);
+    }
+
+    @Test
+    public void testRejectsMalformedType() {
+        // none of these may be read as a forfeit or a move
+        for (var type : new String[]{"\"move\"", "\"1\"", "null", "true", "{}", "[1]", "1.5"}) {
+            Assertions.assertThrows(JsonProcessingException.class, () -> read("{\"type\":" + type + "}"), type);
+        }
+    }
+
+    @Test
+    public void testRejectsMalformedMove() {
+        Assertions.assertThrows(JsonProcessingException.class, () -> read("{\"type\":1,\"move\":[]}"));
+        Assertions.assertThrows(JsonProcessingException.class, () -> read("{\"type\":1,\"move\":{\"from\":5}}"));
+        Assertions.assertThrows(JsonProcessingException.class, () -> read("{\"type\":1,\"move\":{\"from\":{\"file\":\"f\",\"rank\":4}}}"));
+        Assertions.assertThrows(JsonProcessingException.class, () -> read("{\"type\":1,\"move\":{\"from\":{\"file\":5,\"rank\":null}}}"));
+        Assertions.assertThrows(JsonProcessingException.class, () -> read("[1]"));
+    }
+}